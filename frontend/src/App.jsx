@@ -1,6 +1,17 @@
 import { useState, useEffect } from 'react'
 import './App.css'
 
+const MAX_MESSAGES = 100
+const POLL_INTERVAL_MS = 2000
+
+// Combine two newest-first lists: one entry per id (the incoming copy wins), newest first
+const mergeMessages = (current, incoming) => {
+  const incomingIds = new Set(incoming.map((m) => m.id))
+  return [...incoming, ...current.filter((m) => !incomingIds.has(m.id))]
+    .sort((a, b) => new Date(b.createdAt) - new Date(a.createdAt))
+    .slice(0, MAX_MESSAGES)
+}
+
 function App() {
   const [messages, setMessages] = useState([])
   const [inputValue, setInputValue] = useState('')
@@ -11,21 +22,67 @@ function App() {
   const API_URL = 'http://localhost:8080/api/messages'
 
   useEffect(() => {
-    fetchMessages()
-    const interval = setInterval(fetchMessages, 2000)
-    return () => clearInterval(interval)
+    let timer = null
+    let stopped = false
+
+    // Without a stream (several instances share the consumer group), poll for changes
+    // from the newest update already loaded
+    const pollChanges = async (since) => {
+      let next = since
+      try {
+        const response = await fetch(`${API_URL}/changes?since=${encodeURIComponent(since)}&limit=${MAX_MESSAGES}`)
+        const data = await response.json()
+        if (data.success) {
+          setMessages((previous) => mergeMessages(previous, data.data.messages))
+          next = data.data.watermark
+          if (data.data.hasMore && !stopped) {
+            pollChanges(next)
+            return
+          }
+        }
+      } catch (err) {
+        console.error('Error polling changes:', err)
+      }
+      if (!stopped) {
+        timer = setTimeout(() => pollChanges(next), POLL_INTERVAL_MS)
+      }
+    }
+
+    // Load the latest messages on every (re)connect, then apply pushed ones
+    const source = new EventSource(`${API_URL}/stream`)
+    source.onopen = () => fetchMessages()
+    source.addEventListener('message', (event) => {
+      const message = JSON.parse(event.data)
+      setMessages((previous) => mergeMessages(previous, [message]))
+    })
+    source.onerror = async () => {
+      // Closed rather than reconnecting: the server does not offer the stream
+      if (source.readyState === EventSource.CLOSED && !stopped && timer === null) {
+        const loaded = await fetchMessages()
+        const newest = Math.max(0, ...loaded.map((m) => new Date(m.updatedAt || m.createdAt).getTime()))
+        pollChanges(String(newest || Date.now()))
+      }
+    }
+    return () => {
+      stopped = true
+      clearTimeout(timer)
+      source.close()
+    }
   }, [])
 
   const fetchMessages = async () => {
     try {
-      const response = await fetch(`${API_URL}`)
+      const response = await fetch(`${API_URL}/recent?limit=${MAX_MESSAGES}`)
       const data = await response.json()
       if (data.success) {
-        setMessages(data.data || [])
+        // Merge rather than replace, so messages pushed while the request was in flight stay
+        setMessages((previous) => mergeMessages(previous, data.data || []))
+        return data.data || []
       }
     } catch (err) {
       console.error('Error fetching messages:', err)
     }
+    return []
   }
 
   const sendMessage = async (e) => {
@@ -113,7 +170,7 @@ function App() {
 
         <div className="stats-section">
           <div className="stats-card">
-            <h3>Total Messages</h3>
+            <h3>Recent Messages</h3>
             <p className="stats-number">{messages.length}</p>
           </div>
           <div className="stats-card">
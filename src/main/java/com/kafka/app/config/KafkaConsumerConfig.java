@@ -0,0 +1,148 @@
+package com.kafka.app.config;
+
+import com.kafka.app.consumer.KafkaConsumer;
+import com.kafka.app.consumer.RetryTopicRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+/**
+ * Listener container configuration for the message consumer.
+ * Adds a batch container factory next to Spring Boot's default record-at-a-time one,
+ * and record container factories for the retry topics and the dead-letter topic.
+ */
+@Configuration
+public class KafkaConsumerConfig {
+
+    public static final String BATCH_LISTENER_CONTAINER_FACTORY = "batchKafkaListenerContainerFactory";
+    public static final String RETRY_LISTENER_CONTAINER_FACTORY = "retryKafkaListenerContainerFactory";
+    public static final String DEAD_LETTER_LISTENER_CONTAINER_FACTORY = "deadLetterKafkaListenerContainerFactory";
+
+    /**
+     * Container factory that hands each poll to the listener as a single list.
+     * Spring Boot's spring.kafka.listener.* and spring.kafka.consumer.* settings still apply.
+     *
+     * @param configurer Spring Boot's container factory configurer
+     * @param consumerFactory the auto-configured consumer factory
+     * @return the batch listener container factory
+     */
+    @Bean(name = BATCH_LISTENER_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        return factory;
+    }
+
+    /**
+     * Container factory for the retry tiers.
+     * Offsets are acknowledged manually so a record that is not yet due can be
+     * nacked and re-read later without blocking the consumer; a failure is never
+     * retried in place but handed straight to the next tier.
+     *
+     * @param configurer Spring Boot's container factory configurer
+     * @param consumerFactory the auto-configured consumer factory
+     * @param failedAttemptRecoverer recoverer that records and republishes failed records
+     * @return the retry listener container factory
+     */
+    @Bean(name = RETRY_LISTENER_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> retryKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            ConsumerRecordRecoverer failedAttemptRecoverer) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(failedAttemptRecoverer, new FixedBackOff(0L, 0L)));
+        return factory;
+    }
+
+    /**
+     * Container factory for the dead-letter topic.
+     * The dead-letter topic is the last stop, so a record whose FAILED copy cannot be stored
+     * is not recovered anywhere: it is re-read from its uncommitted offset at a fixed interval
+     * until storing it succeeds, holding back its partition meanwhile.
+     *
+     * @param configurer Spring Boot's container factory configurer
+     * @param consumerFactory the auto-configured consumer factory
+     * @param intervalMs delay between attempts to store a dead-lettered record
+     * @return the dead-letter listener container factory
+     */
+    @Bean(name = DEAD_LETTER_LISTENER_CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> deadLetterKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            @Value("${app.kafka.dead-letter.retry.interval-ms:5000}") long intervalMs) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setCommonErrorHandler(new DefaultErrorHandler(new FixedBackOff(intervalMs, FixedBackOff.UNLIMITED_ATTEMPTS)));
+        return factory;
+    }
+
+    /**
+     * Recoverer that republishes a failed record to its next retry tier or the dead-letter topic.
+     * The original topic, partition and offset headers are kept from the first failure so the
+     * record keeps its message ID across hops.
+     *
+     * @param kafkaTemplate template used to republish
+     * @param retryTopicRouter decides the destination and retry headers
+     * @return the recoverer
+     */
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(KafkaTemplate<String, String> kafkaTemplate,
+                                                                       RetryTopicRouter retryTopicRouter) {
+        DeadLetterPublishingRecoverer recoverer =
+                new DeadLetterPublishingRecoverer(kafkaTemplate, retryTopicRouter::nextDestination);
+        recoverer.setHeadersFunction(retryTopicRouter::nextHeaders);
+        recoverer.setAppendOriginalHeaders(false);
+        return recoverer;
+    }
+
+    /**
+     * Recoverer for records that failed on the messages topic or a retry tier: stores the
+     * attempt's retry count and error on the message, then republishes the record to its
+     * next retry tier or the dead-letter topic.
+     *
+     * @param deadLetterPublishingRecoverer recoverer that republishes failed records
+     * @param kafkaConsumer records the failed attempt
+     * @return the recoverer
+     */
+    @Bean
+    public ConsumerRecordRecoverer failedAttemptRecoverer(DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                                          KafkaConsumer kafkaConsumer) {
+        return (record, exception) -> {
+            kafkaConsumer.recordFailedAttempt(record, exception);
+            deadLetterPublishingRecoverer.accept(record, exception);
+        };
+    }
+
+    /**
+     * Error handler for the messages topic listeners.
+     * A listener exception re-delivers the failed record (or the failed batch) from its
+     * uncommitted offset a few times; after that the record moves to the first retry topic
+     * so the partition keeps moving while it is retried with back-off.
+     *
+     * @param failedAttemptRecoverer recoverer that records and republishes failed records
+     * @param intervalMs delay between in-place attempts
+     * @param maxAttempts number of in-place re-deliveries after the first failure
+     * @return the error handler, picked up by Spring Boot's container factory configurer
+     */
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(ConsumerRecordRecoverer failedAttemptRecoverer,
+                                                 @Value("${app.kafka.consumer.retry.interval-ms:1000}") long intervalMs,
+                                                 @Value("${app.kafka.consumer.retry.max-attempts:3}") long maxAttempts) {
+        return new DefaultErrorHandler(failedAttemptRecoverer, new FixedBackOff(intervalMs, maxAttempts));
+    }
+}
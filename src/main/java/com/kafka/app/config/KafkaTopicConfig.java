@@ -0,0 +1,75 @@
+package com.kafka.app.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.util.List;
+
+/**
+ * Declares the application's topics so KafkaAdmin creates them on startup
+ * with the configured partition count instead of the broker defaults.
+ */
+@Configuration
+public class KafkaTopicConfig {
+
+    public static final String MESSAGES_TOPIC = "messages";
+    public static final String RETRY_TOPIC_PREFIX = MESSAGES_TOPIC + "-retry-";
+    public static final String DEAD_LETTER_TOPIC = MESSAGES_TOPIC + "-dlt";
+
+    /**
+     * The messages topic. Its partition count bounds consumer parallelism,
+     * so the listener concurrency is driven by the same property.
+     *
+     * @param partitions number of partitions (app.kafka.topic.partitions)
+     * @param replicationFactor replication factor (app.kafka.topic.replication-factor)
+     * @return the topic definition
+     */
+    @Bean
+    public NewTopic messagesTopic(@Value("${app.kafka.topic.partitions:3}") int partitions,
+                                  @Value("${app.kafka.topic.replication-factor:1}") short replicationFactor) {
+        return TopicBuilder.name(MESSAGES_TOPIC)
+                .partitions(partitions)
+                .replicas(replicationFactor)
+                .build();
+    }
+
+    /**
+     * One retry topic per back-off tier plus the dead-letter topic.
+     *
+     * @param retryDelays delay of each retry tier (app.kafka.retry.delays-ms)
+     * @param partitions number of partitions, same as the messages topic
+     * @param replicationFactor replication factor, same as the messages topic
+     * @return the topic definitions
+     */
+    @Bean
+    public KafkaAdmin.NewTopics retryTopics(@Value("${app.kafka.retry.delays-ms:1000,10000,60000}") List<Long> retryDelays,
+                                            @Value("${app.kafka.topic.partitions:3}") int partitions,
+                                            @Value("${app.kafka.topic.replication-factor:1}") short replicationFactor) {
+        NewTopic[] topics = new NewTopic[retryDelays.size() + 1];
+        for (int tier = 0; tier < retryDelays.size(); tier++) {
+            topics[tier] = TopicBuilder.name(retryTopic(tier))
+                    .partitions(partitions)
+                    .replicas(replicationFactor)
+                    .build();
+        }
+        topics[retryDelays.size()] = TopicBuilder.name(DEAD_LETTER_TOPIC)
+                .partitions(partitions)
+                .replicas(replicationFactor)
+                .build();
+        return new KafkaAdmin.NewTopics(topics);
+    }
+
+    /**
+     * Name of the retry topic for a back-off tier.
+     *
+     * @param tier zero-based tier index
+     * @return the topic name
+     */
+    public static String retryTopic(int tier) {
+        return RETRY_TOPIC_PREFIX + tier;
+    }
+}
@@ -0,0 +1,103 @@
+package com.kafka.app.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured data source with one that routes read-only transactions
+ * to the replicas in {@code app.datasource.replica.urls}. Enabled by
+ * {@code app.datasource.replica.enabled}; Flyway, writes and non-transactional work keep
+ * using the primary, as do the reads MessageStorageService runs outside read-only
+ * transactions because they must see this instance's own writes.
+ * <p>
+ * Every pool, the primary included, reports HikariCP metrics tagged with its pool name.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    /**
+     * The primary and replica pools behind the router. Replica pools copy the primary's
+     * {@code spring.datasource.hikari} settings and are opened read-only.
+     *
+     * @param properties the primary's spring.datasource settings
+     * @param environment source of the spring.datasource.hikari settings
+     * @param meterRegistry registry for pool and replica metrics
+     * @param urls JDBC URLs of the replicas (app.datasource.replica.urls)
+     * @param username replica user, the primary's by default
+     * @param password replica password, the primary's by default
+     * @param maxLagMs lag above which a replica stops receiving reads (app.datasource.replica.max-lag-ms)
+     * @param changesSettleMs how far the changes feed trails the clock (app.messages.changes.settle-ms)
+     * @return the routing data source
+     * @throws IllegalStateException if the changes feed does not trail the replicas' maximum lag
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            DataSourceProperties properties, Environment environment, MeterRegistry meterRegistry,
+            @Value("${app.datasource.replica.urls}") List<String> urls,
+            @Value("${app.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${app.datasource.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${app.datasource.replica.max-lag-ms:1000}") long maxLagMs,
+            @Value("${app.messages.changes.settle-ms:2000}") long changesSettleMs) {
+        // Clients seed the changes feed from a list read that may come from a replica; the
+        // feed only covers what that replica was missing if it reaches back further than the lag
+        if (changesSettleMs <= maxLagMs) {
+            throw new IllegalStateException("app.messages.changes.settle-ms (" + changesSettleMs
+                    + ") must be greater than app.datasource.replica.max-lag-ms (" + maxLagMs + ")");
+        }
+        MetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        primary.setMetricsTrackerFactory(metrics);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            HikariConfig config = new HikariConfig();
+            primary.copyStateTo(config);
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setJdbcUrl(url);
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setReadOnly(true);
+            // A replica that is down at startup is left out of rotation instead of failing the application
+            config.setInitializationFailTimeout(-1);
+            replicas.put(config.getPoolName(), new HikariDataSource(config));
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, maxLagMs, meterRegistry);
+        routing.checkReplicas();
+        return routing;
+    }
+
+    /**
+     * The application's data source. Connections are only taken from the router when the
+     * first statement runs, by which time the transaction's read-only flag is set.
+     *
+     * @param replicaRoutingDataSource the router
+     * @return the data source used by JPA, JdbcTemplate and Flyway
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,185 @@
+package com.kafka.app.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary.
+ * <p>
+ * Replicas are used round robin, skipping any whose last lag check failed or measured more
+ * than {@code maxLagMs}; with none left, reads fall back to the primary and are counted in
+ * {@code db.replica.fallback}. The lag is checked every {@code app.datasource.replica.lag-check-ms}.
+ * <p>
+ * The read-only flag is only known once the transaction has begun, after the transaction
+ * manager asked for a connection, so this must sit behind a LazyConnectionDataSourceProxy.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    /** Zero when the replica has replayed everything it received, else the age of its last replayed commit. */
+    private static final String POSTGRES_LAG_MS =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    /**
+     * Measures how far a replica is behind the primary.
+     */
+    @FunctionalInterface
+    interface LagProbe {
+        long lagMs(DataSource replica) throws SQLException;
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final long maxLagMs;
+    private final LagProbe lagProbe;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter fallbackCounter;
+
+    /**
+     * @param primary the write primary
+     * @param replicas replica data sources by pool name
+     * @param maxLagMs lag above which a replica stops receiving reads
+     * @param meterRegistry registry for the lag, availability and fallback metrics
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long maxLagMs,
+                                    MeterRegistry meterRegistry) {
+        this(primary, replicas, maxLagMs, meterRegistry, ReplicaRoutingDataSource::measureLag);
+    }
+
+    ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, long maxLagMs,
+                             MeterRegistry meterRegistry, LagProbe lagProbe) {
+        this.primary = primary;
+        this.maxLagMs = maxLagMs;
+        this.lagProbe = lagProbe;
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        replicas.forEach((name, dataSource) -> {
+            Replica replica = new Replica(name, dataSource);
+            this.replicas.add(replica);
+            Gauge.builder("db.replica.lag", replica, r -> r.lagMs < 0 ? Double.NaN : r.lagMs)
+                    .description("Replication lag measured by the last check, in milliseconds")
+                    .tag("pool", name)
+                    .register(meterRegistry);
+            Gauge.builder("db.replica.available", replica, r -> r.available ? 1 : 0)
+                    .description("Whether the replica currently receives read-only transactions")
+                    .tag("pool", name)
+                    .register(meterRegistry);
+        });
+        this.fallbackCounter = Counter.builder("db.replica.fallback")
+                .description("Read-only transactions sent to the primary because no replica was in sync")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || replicas.isEmpty()) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.available) {
+                return replica.name;
+            }
+        }
+        fallbackCounter.increment();
+        return PRIMARY;
+    }
+
+    /**
+     * Measure every replica's lag and take those behind by more than {@code maxLagMs},
+     * or unreachable, out of rotation until a later check passes.
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-ms:5000}",
+            initialDelayString = "${app.datasource.replica.lag-check-ms:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean available;
+            try {
+                replica.lagMs = lagProbe.lagMs(replica.dataSource);
+                available = replica.lagMs <= maxLagMs;
+            } catch (Exception e) {
+                replica.lagMs = -1;
+                available = false;
+                if (replica.available) {
+                    logger.warn("Lag check failed for replica {}", replica.name, e);
+                }
+            }
+            if (available != replica.available) {
+                logger.info("Replica {} {} rotation (lag {} ms, max {} ms)", replica.name,
+                        available ? "back in" : "taken out of", replica.lagMs, maxLagMs);
+            }
+            replica.available = available;
+        }
+    }
+
+    /**
+     * Close the primary and replica pools, which are owned by this data source rather than
+     * registered as beans.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            closeIfCloseable(replica.dataSource);
+        }
+        closeIfCloseable(primary);
+    }
+
+    private static void closeIfCloseable(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
+    static long measureLag(DataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection()) {
+            if (!connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("postgresql")) {
+                // Other databases (such as two local H2 instances) have no replication to measure
+                return 0;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(POSTGRES_LAG_MS)) {
+                result.next();
+                return result.getLong(1);
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean available;
+        private volatile long lagMs = -1;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
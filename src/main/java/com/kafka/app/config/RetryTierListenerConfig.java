@@ -0,0 +1,66 @@
+package com.kafka.app.config;
+
+import com.kafka.app.consumer.KafkaConsumer;
+import com.kafka.app.consumer.RetryTopicRouter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.KafkaListenerConfigurer;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistrar;
+import org.springframework.kafka.config.MethodKafkaListenerEndpoint;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
+
+import java.lang.reflect.Method;
+/**
+ * Registers one listener container per retry tier, each running
+ * {@link KafkaConsumer#consumeRetry}.
+ * <p>
+ * A record that is not yet due is nacked, which pauses the consumer that read it until the
+ * record is due. Every record on a tier waits the same delay and records are appended in the
+ * order they failed, so nothing behind the paused record on its tier is due earlier. Sharing
+ * one container between tiers would let a 60 second wait on the last tier hold back records
+ * on the first tier that are due in one second.
+ */
+@Configuration
+public class RetryTierListenerConfig implements KafkaListenerConfigurer {
+
+    private final KafkaConsumer kafkaConsumer;
+    private final ConcurrentKafkaListenerContainerFactory<Object, Object> retryContainerFactory;
+    private final RetryTopicRouter retryTopicRouter;
+
+    public RetryTierListenerConfig(KafkaConsumer kafkaConsumer,
+                                   @Qualifier(KafkaConsumerConfig.RETRY_LISTENER_CONTAINER_FACTORY)
+                                   ConcurrentKafkaListenerContainerFactory<Object, Object> retryContainerFactory,
+                                   RetryTopicRouter retryTopicRouter) {
+        this.kafkaConsumer = kafkaConsumer;
+        this.retryContainerFactory = retryContainerFactory;
+        this.retryTopicRouter = retryTopicRouter;
+    }
+
+    @Override
+    public void configureKafkaListeners(KafkaListenerEndpointRegistrar registrar) {
+        DefaultMessageHandlerMethodFactory messageHandlerMethodFactory = new DefaultMessageHandlerMethodFactory();
+        messageHandlerMethodFactory.afterPropertiesSet();
+        Method consumeRetry = consumeRetryMethod();
+        for (String topic : retryTopicRouter.getRetryTopics()) {
+            MethodKafkaListenerEndpoint<String, String> endpoint = new MethodKafkaListenerEndpoint<>();
+            endpoint.setId(topic + "-listener");
+            endpoint.setGroupId("kafka-group");
+            endpoint.setTopics(topic);
+            endpoint.setBean(kafkaConsumer);
+            endpoint.setMethod(consumeRetry);
+            endpoint.setMessageHandlerMethodFactory(messageHandlerMethodFactory);
+            registrar.registerEndpoint(endpoint, retryContainerFactory);
+        }
+    }
+
+    private static Method consumeRetryMethod() {
+        try {
+            return KafkaConsumer.class.getMethod("consumeRetry", ConsumerRecord.class, Acknowledgment.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("KafkaConsumer has no retry listener method", e);
+        }
+    }
+}
@@ -1,52 +1,357 @@
 package com.kafka.app.consumer;
 
+import com.kafka.app.config.KafkaConsumerConfig;
+import com.kafka.app.config.KafkaTopicConfig;
+import com.kafka.app.event.MessagesConsumedEvent;
 import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
 import com.kafka.app.service.MessageStorageService;
+import com.kafka.app.service.MessageWriteBehindBuffer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.stereotype.Service;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Counter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class KafkaConsumer {
     
     private static final Logger logger = LoggerFactory.getLogger(KafkaConsumer.class);
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 1000;
+    
+    /**
+     * Creation time of records without one (NO_TIMESTAMP, only written by pre-0.10 producers).
+     * It must not be the time of storing: on PostgreSQL a message is only unique on
+     * (id, created_at), so a redelivery stamped later would be stored a second time.
+     * Such messages sort as the oldest and are the first to go under retention.
+     */
+    static final long NO_RECORD_TIME = 0L;
+    
+    /** High half of the message IDs of each topic partition, which never changes. */
+    private static final Map<String, Long> PARTITION_ID_BITS = new ConcurrentHashMap<>();
     
     private final MessageStorageService messageStorageService;
+    private final MessageWriteBehindBuffer writeBehindBuffer;
+    private final ApplicationEventPublisher eventPublisher;
     private final Counter messagesConsumedCounter;
+    private final Counter messagesDuplicateCounter;
+    private final Counter messagesRetriedCounter;
+    private final Counter messagesDeadLetteredCounter;
     
-    public KafkaConsumer(MessageStorageService messageStorageService, MeterRegistry meterRegistry) {
+    public KafkaConsumer(MessageStorageService messageStorageService, MessageWriteBehindBuffer writeBehindBuffer,
+                         ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
         this.messageStorageService = messageStorageService;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.eventPublisher = eventPublisher;
         this.messagesConsumedCounter = Counter.builder("kafka.messages.consumed")
                 .description("Total number of messages consumed from Kafka")
                 .register(meterRegistry);
+        this.messagesDuplicateCounter = Counter.builder("kafka.messages.duplicate")
+                .description("Total number of re-delivered messages skipped because they were already stored")
+                .register(meterRegistry);
+        this.messagesRetriedCounter = Counter.builder("kafka.messages.retried")
+                .description("Total number of messages stored from a retry topic")
+                .register(meterRegistry);
+        this.messagesDeadLetteredCounter = Counter.builder("kafka.messages.dead_lettered")
+                .description("Total number of messages that exhausted their retries and were stored as FAILED")
+                .register(meterRegistry);
     }
     
-    @KafkaListener(topics = "messages", groupId = "kafka-group")
-    public void consume(String messageContent) {
+    /**
+     * Consume a single record and store it, or hand it to the write-behind buffer when that
+     * mode is enabled. The record is acknowledged once it is stored.
+     * 
+     * @param record the consumed record
+     * @param acknowledgment acknowledgment for the record's offset
+     */
+    @KafkaListener(topics = "messages", groupId = "kafka-group",
+            concurrency = "${app.kafka.topic.partitions:3}",
+            autoStartup = "#{!${app.kafka.consumer.batch-enabled:true}}")
+    public void consume(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        String messageContent = record.value();
         try {
             logger.debug("Consuming message: {}", messageContent);
             
-            Message message = new Message(
-                    UUID.randomUUID().toString(),
-                    messageContent,
-                    System.currentTimeMillis(),
-                    "PROCESSED",
-                    null,
-                    null
-            );
+            Message message = toMessage(record);
+            
+            if (writeBehindBuffer.isEnabled()) {
+                // The buffer acknowledges the record and publishes the consumed event once the message is stored
+                writeBehindBuffer.enqueue(List.of(record), List.of(message), acknowledgment);
+                messagesConsumedCounter.increment();
+                logger.debug("Message consumed and queued for storage: {}", message.getId());
+                return;
+            }
             
-            messageStorageService.addMessage(message);
+            if (!messageStorageService.addMessageIfAbsent(message)) {
+                messagesDuplicateCounter.increment();
+                logger.debug("Skipping already stored message: {}", message.getId());
+            }
             messagesConsumedCounter.increment();
+            acknowledgment.acknowledge();
+            publishConsumed(List.of(message));
             
-            logger.info("Message consumed and stored successfully. Total messages: {}", 
-                    messageStorageService.getMessageCount());
+            logger.info("Message consumed and stored successfully: {}", message.getId());
         } catch (Exception e) {
             logger.error("Error consuming message: {}", messageContent, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Consume a whole poll at once and store it in a single transaction, or hand it to the
+     * write-behind buffer when that mode is enabled.
+     * The poll is acknowledged once it is stored and the container commits its offsets after
+     * this method returns; in write-behind mode the buffer acknowledges it once it is written.
+     * If the batch cannot be stored, its records are stored one by one to find the failing one;
+     * that record is reported to the error handler, which commits everything before it and
+     * sends it on to the retry topics.
+     * 
+     * @param records the records returned by one poll
+     * @param acknowledgment acknowledgment for the offsets of the whole poll
+     */
+    @KafkaListener(topics = "messages", groupId = "kafka-group",
+            containerFactory = KafkaConsumerConfig.BATCH_LISTENER_CONTAINER_FACTORY,
+            concurrency = "${app.kafka.topic.partitions:3}",
+            autoStartup = "${app.kafka.consumer.batch-enabled:true}")
+    public void consumeBatch(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        logger.debug("Consuming batch of {} messages", records.size());
+        
+        List<Message> messages = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            messages.add(toMessage(record));
+        }
+        
+        if (writeBehindBuffer.isEnabled()) {
+            // The buffer acknowledges the poll and publishes the consumed event once the batch is stored
+            writeBehindBuffer.enqueue(records, messages, acknowledgment);
+            messagesConsumedCounter.increment(messages.size());
+            logger.debug("Batch of {} messages consumed and queued for storage", messages.size());
+            return;
+        }
+        
+        Integer inserted;
+        try {
+            inserted = messageStorageService.addMessagesIfAbsent(messages);
+        } catch (Exception e) {
+            logger.warn("Error storing batch of {} messages, storing them one by one", records.size(), e);
+            inserted = storeIndividually(messages);
+        }
+        if (inserted != null) {
+            messagesDuplicateCounter.increment(messages.size() - inserted);
+        }
+        messagesConsumedCounter.increment(messages.size());
+        acknowledgment.acknowledge();
+        publishConsumed(messages);
+        
+        logger.info("Batch of {} messages consumed and stored successfully", messages.size());
+    }
+    
+    /**
+     * Consume a record from one of the retry topics once its back-off has elapsed.
+     * A record that is not yet due is nacked so it is re-read after the remaining delay;
+     * the consumer is paused meanwhile. Each tier has its own container, registered by
+     * RetryTierListenerConfig, so neither the main topic nor the other tiers are affected.
+     * 
+     * @param record the record to retry
+     * @param acknowledgment acknowledgment for the record's offset
+     */
+    public void consumeRetry(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        long remaining = RetryTopicRouter.dueAt(record) - System.currentTimeMillis();
+        if (remaining > 0) {
+            acknowledgment.nack(Duration.ofMillis(remaining));
+            return;
+        }
+        
+        Message message = toMessage(record);
+        logger.info("Retrying message {} (attempt {}) from {}", message.getId(), message.getRetryCount(), record.topic());
+        
+        messageStorageService.recordAttempt(message);
+        messagesRetriedCounter.increment();
+        publishConsumed(List.of(message));
+        acknowledgment.acknowledge();
+    }
+    
+    /**
+     * Consume a record that exhausted its retries and store it with FAILED status,
+     * so it can be inspected and replayed through MessageStorageService.
+     * If storing fails, the container retries the record in place until it succeeds.
+     * 
+     * @param record the dead-lettered record
+     * @param acknowledgment acknowledgment for the record's offset
+     */
+    @KafkaListener(topics = KafkaTopicConfig.DEAD_LETTER_TOPIC, groupId = "kafka-group",
+            containerFactory = KafkaConsumerConfig.DEAD_LETTER_LISTENER_CONTAINER_FACTORY)
+    public void consumeDeadLetter(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        Message message = toMessage(record);
+        message.setStatus(MessageStatus.FAILED);
+        if (message.getContent() == null) {
+            message.setContent("");
         }
+        logger.error("Message {} from {} failed after {} attempts: {}",
+                message.getId(), message.getSourceTopic(), message.getRetryCount(), message.getErrorMessage());
+        
+        messageStorageService.recordAttempt(message);
+        messagesDeadLetteredCounter.increment();
+        publishConsumed(List.of(message));
+        acknowledgment.acknowledge();
+    }
+    
+    /**
+     * Record a failed attempt before the record moves on to the next retry tier or the
+     * dead-letter topic: the message is stored as PENDING with the attempt number and error,
+     * and overwritten by the outcome of a later attempt. Storing is best effort, as the
+     * attempt most likely failed because the database is unavailable; the retry topics
+     * carry the same details in their headers either way.
+     * 
+     * @param record the record whose processing failed
+     * @param exception the failure
+     */
+    @SuppressWarnings("unchecked")
+    public void recordFailedAttempt(ConsumerRecord<?, ?> record, Exception exception) {
+        Throwable cause = exception instanceof ListenerExecutionFailedException && exception.getCause() != null
+                ? exception.getCause() : exception;
+        try {
+            Message message = toMessage((ConsumerRecord<String, String>) record);
+            message.setStatus(MessageStatus.PENDING);
+            if (message.getContent() == null) {
+                message.setContent("");
+            }
+            message.setRetryCount(message.getRetryCount() + 1);
+            message.setErrorMessage(truncateError(cause.getMessage()));
+            messageStorageService.recordAttempt(message);
+        } catch (Exception e) {
+            logger.warn("Could not record failed attempt for record {}-{}@{}",
+                    record.topic(), record.partition(), record.offset(), e);
+        }
+    }
+    
+    /**
+     * Notify in-process listeners of stored messages. The records are already stored,
+     * so a failing listener is logged rather than allowed to trigger a redelivery.
+     */
+    private void publishConsumed(List<Message> messages) {
+        try {
+            eventPublisher.publishEvent(new MessagesConsumedEvent(messages));
+        } catch (Exception e) {
+            logger.warn("Error notifying listeners of {} consumed messages", messages.size(), e);
+        }
+    }
+    
+    private int storeIndividually(List<Message> messages) {
+        int inserted = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            try {
+                if (messageStorageService.addMessageIfAbsent(message)) {
+                    inserted++;
+                }
+            } catch (Exception e) {
+                // The error handler commits the records before this one, so account for them now
+                messagesDuplicateCounter.increment(i - inserted);
+                messagesConsumedCounter.increment(i);
+                if (i > 0) {
+                    publishConsumed(List.copyOf(messages.subList(0, i)));
+                }
+                throw new BatchListenerFailedException("Failed to store message " + message.getId(), e, i);
+            }
+        }
+        return inserted;
+    }
+    
+    /**
+     * Derive a stable message ID from the record's position in the log.
+     * The same record always maps to the same ID, so re-deliveries can be detected,
+     * and IDs within a partition increase with the offset, which keeps primary key
+     * inserts close together instead of scattered across the index.
+     * <p>
+     * The ID is an RFC 9562 version 8 UUID: the high half holds 60 bits of the SHA-256 of
+     * topic and partition around the version, the low half the variant and the offset.
+     * 
+     * @param topic the record's topic
+     * @param partition the record's partition
+     * @param offset the record's offset
+     * @return the record's message ID
+     */
+    static UUID messageId(String topic, int partition, long offset) {
+        long mostSignificantBits = PARTITION_ID_BITS.computeIfAbsent(topic + '/' + partition, KafkaConsumer::partitionIdBits);
+        return new UUID(mostSignificantBits, (offset & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+    }
+    
+    private static long partitionIdBits(String topicPartition) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(topicPartition.getBytes(StandardCharsets.UTF_8));
+            return (ByteBuffer.wrap(hash).getLong() & ~0xF000L) | 0x8000L;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    /**
+     * Build the entity for a record. Records from retry or dead-letter topics keep the ID,
+     * topic, time and error of the original record, taken from the headers added on
+     * republishing. The record's time becomes the creation time, so every delivery of a
+     * record has the same (id, created_at) key and lands in the same daily partition;
+     * records without a time get {@link #NO_RECORD_TIME}.
+     */
+    private Message toMessage(ConsumerRecord<String, String> record) {
+        String topic = headerString(record, KafkaHeaders.DLT_ORIGINAL_TOPIC);
+        Header partition = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_PARTITION);
+        Header offset = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_OFFSET);
+        Header timestamp = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TIMESTAMP);
+        
+        UUID id;
+        long recordTime = record.timestamp();
+        if (topic != null && partition != null && offset != null) {
+            id = messageId(topic, ByteBuffer.wrap(partition.value()).getInt(), ByteBuffer.wrap(offset.value()).getLong());
+            if (timestamp != null) {
+                // -1 as well if the original had none, so every tier derives the same time
+                recordTime = ByteBuffer.wrap(timestamp.value()).getLong();
+            }
+        } else {
+            topic = record.topic();
+            id = messageId(record.topic(), record.partition(), record.offset());
+        }
+        
+        Message message = new Message(
+                id,
+                record.value(),
+                System.currentTimeMillis(),
+                MessageStatus.PROCESSED,
+                recordTime >= 0 ? new Date(recordTime) : new Date(NO_RECORD_TIME),
+                null
+        );
+        message.setSourceTopic(topic);
+        message.setKey(record.key());
+        message.setRetryCount(RetryTopicRouter.attempt(record));
+        message.setErrorMessage(truncateError(headerString(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE)));
+        return message;
+    }
+    
+    private static String truncateError(String error) {
+        return error != null && error.length() > MAX_ERROR_MESSAGE_LENGTH ? error.substring(0, MAX_ERROR_MESSAGE_LENGTH) : error;
+    }
+    
+    private static String headerString(ConsumerRecord<String, String> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
     }
 }
-
@@ -0,0 +1,110 @@
+package com.kafka.app.consumer;
+
+import com.kafka.app.config.KafkaTopicConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Decides where a record goes after a failed attempt.
+ * A record that fails on the messages topic moves to the first retry tier, then to each
+ * following tier, and finally to the dead-letter topic. Each hop carries the attempt number
+ * and the time the record becomes due, so the retry listener can hold it back until then
+ * without blocking the partitions of the main topic.
+ */
+@Component
+public class RetryTopicRouter {
+
+    public static final String ATTEMPT_HEADER = "x-retry-attempt";
+    public static final String DUE_AT_HEADER = "x-retry-due-at";
+
+    private final List<Long> retryDelays;
+
+    public RetryTopicRouter(@Value("${app.kafka.retry.delays-ms:1000,10000,60000}") List<Long> retryDelays) {
+        this.retryDelays = List.copyOf(retryDelays);
+    }
+
+    /**
+     * Names of all retry tier topics, in order.
+     * 
+     * @return the retry topic names
+     */
+    public String[] getRetryTopics() {
+        String[] topics = new String[retryDelays.size()];
+        for (int tier = 0; tier < topics.length; tier++) {
+            topics[tier] = KafkaTopicConfig.retryTopic(tier);
+        }
+        return topics;
+    }
+
+    /**
+     * Destination for a record whose processing failed.
+     * 
+     * @param record the failed record
+     * @param exception the failure
+     * @return the next retry tier or the dead-letter topic, or null for a record
+     *         that already failed on the dead-letter topic
+     */
+    public TopicPartition nextDestination(ConsumerRecord<?, ?> record, Exception exception) {
+        if (KafkaTopicConfig.DEAD_LETTER_TOPIC.equals(record.topic())) {
+            return null;
+        }
+        int attempt = attempt(record);
+        String topic = attempt < retryDelays.size()
+                ? KafkaTopicConfig.retryTopic(attempt)
+                : KafkaTopicConfig.DEAD_LETTER_TOPIC;
+        // A negative partition lets the producer pick one, so tiers may have any partition count
+        return new TopicPartition(topic, -1);
+    }
+
+    /**
+     * Headers to put on the republished record: the next attempt number and, for retry
+     * tiers, the time it becomes due.
+     * 
+     * @param record the failed record
+     * @param exception the failure
+     * @return the headers to add, replacing any previous values
+     */
+    public Headers nextHeaders(ConsumerRecord<?, ?> record, Exception exception) {
+        int nextAttempt = attempt(record) + 1;
+        Headers headers = new RecordHeaders();
+        headers.add(new DeadLetterPublishingRecoverer.SingleRecordHeader(ATTEMPT_HEADER,
+                ByteBuffer.allocate(Integer.BYTES).putInt(nextAttempt).array()));
+        if (nextAttempt <= retryDelays.size()) {
+            long dueAt = System.currentTimeMillis() + retryDelays.get(nextAttempt - 1);
+            headers.add(new DeadLetterPublishingRecoverer.SingleRecordHeader(DUE_AT_HEADER,
+                    ByteBuffer.allocate(Long.BYTES).putLong(dueAt).array()));
+        }
+        return headers;
+    }
+
+    /**
+     * Number of failed attempts the record has been through; 0 on the messages topic.
+     * 
+     * @param record the record
+     * @return the attempt number
+     */
+    public static int attempt(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(ATTEMPT_HEADER);
+        return header == null ? 0 : ByteBuffer.wrap(header.value()).getInt();
+    }
+
+    /**
+     * Epoch millis at which a retry record may be processed; 0 if it is due immediately.
+     * 
+     * @param record the record
+     * @return the due time
+     */
+    public static long dueAt(ConsumerRecord<?, ?> record) {
+        Header header = record.headers().lastHeader(DUE_AT_HEADER);
+        return header == null ? 0L : ByteBuffer.wrap(header.value()).getLong();
+    }
+}
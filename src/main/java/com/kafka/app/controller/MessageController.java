@@ -1,16 +1,52 @@
 package com.kafka.app.controller;
 
+import com.kafka.app.config.AsyncTimeoutConfig;
 import com.kafka.app.producer.KafkaProducer;
+import com.kafka.app.service.MessageBroadcaster;
+import com.kafka.app.service.MessageCursor;
+import com.kafka.app.service.MessageSearchService;
 import com.kafka.app.service.MessageStorageService;
+import com.kafka.app.service.RecentMessageBuffer;
 import com.kafka.app.dto.ApiResponse;
+import com.kafka.app.dto.BatchSendItemResult;
+import com.kafka.app.dto.MessageChanges;
+import com.kafka.app.dto.MessageCursorPage;
 import com.kafka.app.dto.MessageRequest;
+import com.kafka.app.dto.MessageSendResult;
+import com.kafka.app.dto.MessageSummary;
 import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -19,46 +55,139 @@ public class MessageController {
     
     private static final Logger logger = LoggerFactory.getLogger(MessageController.class);
     
+    /** Shorter terms contain no trigram, so the content index cannot narrow the search. */
+    private static final int MIN_SEARCH_TERM_LENGTH = 3;
+    
     private final KafkaProducer kafkaProducer;
     private final MessageStorageService messageStorageService;
+    private final MessageSearchService messageSearchService;
+    private final RecentMessageBuffer recentMessageBuffer;
+    private final MessageBroadcaster messageBroadcaster;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+    private final int maxPageLimit;
+    private final long changesSettleMs;
+    private final int previewLength;
+    private final int maxListSize;
+    private final long exportTimeoutMs;
+    /** Runs the database update that follows a replay's send; revertReplayed blocks on JDBC. */
+    private final ExecutorService replayExecutor;
     
-    public MessageController(KafkaProducer kafkaProducer, MessageStorageService messageStorageService) {
+    public MessageController(KafkaProducer kafkaProducer, MessageStorageService messageStorageService,
+                             MessageSearchService messageSearchService, RecentMessageBuffer recentMessageBuffer,
+                             MessageBroadcaster messageBroadcaster, ObjectMapper objectMapper,
+                             @Value("${app.messages.send-batch.max-size:1000}") int maxBatchSize,
+                             @Value("${app.messages.page.max-limit:1000}") int maxPageLimit,
+                             @Value("${app.messages.changes.settle-ms:2000}") long changesSettleMs,
+                             @Value("${app.messages.list.preview-length:200}") int previewLength,
+                             @Value("${app.messages.list.max-size:10000}") int maxListSize,
+                             @Value("${app.messages.export.timeout-ms:1800000}") long exportTimeoutMs,
+                             @Value("${app.messages.replay.threads:2}") int replayThreads) {
         this.kafkaProducer = kafkaProducer;
         this.messageStorageService = messageStorageService;
+        this.messageSearchService = messageSearchService;
+        this.recentMessageBuffer = recentMessageBuffer;
+        this.messageBroadcaster = messageBroadcaster;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
+        this.maxPageLimit = maxPageLimit;
+        this.changesSettleMs = changesSettleMs;
+        this.previewLength = previewLength;
+        this.maxListSize = maxListSize;
+        this.exportTimeoutMs = exportTimeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.replayExecutor = Executors.newFixedThreadPool(replayThreads, runnable -> {
+            Thread thread = new Thread(runnable, "message-replay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        replayExecutor.shutdown();
     }
     
     @PostMapping("/send")
-    public ResponseEntity<ApiResponse<String>> sendMessage(@RequestParam String message) {
+    public CompletableFuture<ResponseEntity<ApiResponse<String>>> sendMessage(@RequestParam String message,
+                                                                               @RequestParam(required = false) String key) {
         try {
             logger.info("Received request to send message: {}", message);
-            kafkaProducer.sendMessage(message);
-            return ResponseEntity.ok(new ApiResponse<>(true, "Message sent successfully", message));
+            return kafkaProducer.sendMessageAsync(key, message)
+                    .thenApply(result -> ResponseEntity.ok(new ApiResponse<>(true, "Message sent successfully", message)))
+                    .exceptionally(error -> sendFailure("Error sending message", error));
         } catch (Exception error) {
-            logger.error("Error sending message", error);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new ApiResponse<>(false, "Failed to send message: " + error.getMessage(), null));
+            return CompletableFuture.completedFuture(sendFailure("Error sending message", error));
         }
     }
     
     @PostMapping("/send-json")
-    public ResponseEntity<ApiResponse<Message>> sendJsonMessage(@RequestBody MessageRequest request) {
+    public CompletableFuture<ResponseEntity<ApiResponse<MessageSendResult>>> sendJsonMessage(@RequestBody MessageRequest request) {
+        if (request.getMessage() == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Field 'message' is required", null)));
+        }
         try {
             logger.info("Received request to send JSON message: {}", request.getMessage());
-            kafkaProducer.sendMessage(request.getMessage());
-            return ResponseEntity.ok(new ApiResponse<>(true, "Message sent successfully", null));
+            return kafkaProducer.sendMessageAsync(request.getKey(), request.getMessage())
+                    .thenApply(result -> ResponseEntity.ok(new ApiResponse<>(true, "Message sent successfully", result)))
+                    .exceptionally(error -> sendFailure("Error sending JSON message", error));
         } catch (Exception error) {
-            logger.error("Error sending JSON message", error);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new ApiResponse<>(false, "Failed to send message: " + error.getMessage(), null));
+            return CompletableFuture.completedFuture(sendFailure("Error sending JSON message", error));
         }
     }
     
+    @PostMapping(value = "/send-batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<ApiResponse<List<BatchSendItemResult>>>> sendBatch(@RequestBody List<MessageRequest> requests) {
+        return sendBatchInternal(requests);
+    }
+    
+    @PostMapping(value = "/send-batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public CompletableFuture<ResponseEntity<ApiResponse<List<BatchSendItemResult>>>> sendBatchNdjson(InputStream body)
+            throws IOException {
+        List<MessageRequest> requests = new ArrayList<>();
+        // Read line by line instead of buffering the upload; NDJSON is always UTF-8
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        try {
+            // Stop one past the limit: that is enough for the size check to reject the batch
+            String line;
+            while (requests.size() <= maxBatchSize && (line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    requests.add(objectMapper.readValue(line, MessageRequest.class));
+                }
+            }
+        } catch (JsonProcessingException error) {
+            logger.warn("Rejected malformed NDJSON batch", error);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Malformed NDJSON line: " + error.getOriginalMessage(), null)));
+        }
+        return sendBatchInternal(requests);
+    }
+    
+    /**
+     * All messages, newest first, as summaries whose content is cut to
+     * {@code app.messages.list.preview-length}; pass {@code full=true} for complete messages.
+     * At most {@code app.messages.list.max-size} are listed; beyond that only the newest are
+     * and the response message says so.
+     */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<Message>>> getAllMessages() {
+    public ResponseEntity<ApiResponse<List<?>>> getAllMessages(@RequestParam(required = false) String after,
+                                                               @RequestParam(defaultValue = "false") boolean full,
+                                                               WebRequest request) {
+        if (after != null) {
+            // A cursor only means something to the paginated listing, which needs a limit
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Parameter 'after' requires 'limit'", null));
+        }
+        if (isNotModified(request)) {
+            return null;
+        }
         try {
-            logger.debug("Fetching all messages");
-            List<Message> messages = messageStorageService.getAllMessages();
-            return ResponseEntity.ok(new ApiResponse<>(true, "Messages retrieved successfully", messages));
+            logger.debug("Fetching all messages (full: {})", full);
+            Slice<?> messages = full
+                    ? messageStorageService.getMessagesAfter(null, maxListSize)
+                    : messageStorageService.getMessageSummariesAfter(null, maxListSize, previewLength);
+            return listResponse(messages, "; pass limit and after to page through all");
         } catch (Exception error) {
             logger.error("Error retrieving messages", error);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -66,8 +195,361 @@ public class MessageController {
         }
     }
     
+    /**
+     * Cursor-paginated listing, newest first. Selected whenever {@code limit} is present;
+     * pass the returned {@code nextCursor} as {@code after} to fetch the following page.
+     * Like the unpaginated listing it returns summaries unless {@code full=true}.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<ApiResponse<MessageCursorPage<?>>> getMessagesPage(@RequestParam(required = false) String after,
+                                                                             @RequestParam int limit,
+                                                                             @RequestParam(defaultValue = "false") boolean full) {
+        if (limit < 1 || limit > maxPageLimit) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Limit must be between 1 and " + maxPageLimit, null));
+        }
+        MessageCursor cursor;
+        try {
+            cursor = after == null || after.isEmpty() ? null : MessageCursor.decode(after);
+        } catch (IllegalArgumentException error) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Invalid cursor", null));
+        }
+        try {
+            logger.debug("Fetching messages after cursor {} with limit {}", after, limit);
+            MessageCursorPage<?> page;
+            if (full) {
+                Slice<Message> slice = messageStorageService.getMessagesAfter(cursor, limit);
+                List<Message> messages = slice.getContent();
+                String nextCursor = slice.hasNext() && !messages.isEmpty()
+                        ? MessageCursor.after(messages.get(messages.size() - 1)).encode()
+                        : null;
+                page = new MessageCursorPage<>(messages, nextCursor, slice.hasNext());
+            } else {
+                Slice<MessageSummary> slice = messageStorageService.getMessageSummariesAfter(cursor, limit, previewLength);
+                List<MessageSummary> summaries = slice.getContent();
+                String nextCursor = slice.hasNext() && !summaries.isEmpty()
+                        ? MessageCursor.after(summaries.get(summaries.size() - 1)).encode()
+                        : null;
+                page = new MessageCursorPage<>(summaries, nextCursor, slice.hasNext());
+            }
+            return ResponseEntity.ok(new ApiResponse<>(true, "Messages retrieved successfully", page));
+        } catch (Exception error) {
+            logger.error("Error retrieving messages page", error);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "Failed to retrieve messages", null));
+        }
+    }
+    
+    /**
+     * Messages with the given status, newest first, as summaries unless {@code full=true}.
+     * Like the unpaginated listing it returns at most {@code app.messages.list.max-size}.
+     */
+    @GetMapping("/status/{status}")
+    public ResponseEntity<ApiResponse<List<?>>> getMessagesByStatus(@PathVariable("status") String status,
+                                                                    @RequestParam(defaultValue = "false") boolean full) {
+        if (!MessageStatus.isValid(status)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Unknown status: " + status, null));
+        }
+        try {
+            logger.debug("Fetching messages with status {} (full: {})", status, full);
+            MessageStatus statusFilter = MessageStatus.valueOf(status);
+            Slice<?> messages = full
+                    ? messageStorageService.getMessagesByStatus(statusFilter, maxListSize)
+                    : messageStorageService.getMessageSummariesByStatus(statusFilter, maxListSize, previewLength);
+            return listResponse(messages, "");
+        } catch (Exception error) {
+            logger.error("Error retrieving messages with status {}", status, error);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "Failed to retrieve messages", null));
+        }
+    }
+    
+    /**
+     * Messages created between {@code from} and {@code to} inclusive, newest first, as
+     * summaries unless {@code full=true}; at most {@code app.messages.list.max-size}.
+     */
+    @GetMapping("/range")
+    public ResponseEntity<ApiResponse<List<?>>> getMessagesByDateRange(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(defaultValue = "false") boolean full) {
+        if (from.after(to)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Parameter 'from' must not be after 'to'", null));
+        }
+        try {
+            logger.debug("Fetching messages from {} to {} (full: {})", from, to, full);
+            Slice<?> messages = full
+                    ? messageStorageService.getMessagesByDateRange(from, to, maxListSize)
+                    : messageStorageService.getMessageSummariesByDateRange(from, to, maxListSize, previewLength);
+            return listResponse(messages, "; narrow the range to see older ones");
+        } catch (Exception error) {
+            logger.error("Error retrieving messages from {} to {}", from, to, error);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "Failed to retrieve messages", null));
+        }
+    }
+    
+    /**
+     * Processed messages, newest timestamp first, as summaries unless {@code full=true};
+     * at most {@code app.messages.list.max-size}.
+     */
+    @GetMapping("/processed")
+    public ResponseEntity<ApiResponse<List<?>>> getProcessedMessages(@RequestParam(defaultValue = "false") boolean full) {
+        try {
+            logger.debug("Fetching processed messages (full: {})", full);
+            Slice<?> messages = full
+                    ? messageStorageService.getProcessedMessages(maxListSize)
+                    : messageStorageService.getProcessedMessageSummaries(maxListSize, previewLength);
+            return listResponse(messages, "");
+        } catch (Exception error) {
+            logger.error("Error retrieving processed messages", error);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "Failed to retrieve messages", null));
+        }
+    }
+    
+    /**
+     * Wrap a list read capped at {@code app.messages.list.max-size}, saying so when it was cut.
+     * 
+     * @param hint appended to the message of a cut list
+     */
+    private ResponseEntity<ApiResponse<List<?>>> listResponse(Slice<?> messages, String hint) {
+        if (messages.hasNext()) {
+            logger.warn("Message list cut to the newest {} messages", maxListSize);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Newest " + maxListSize
+                    + " messages retrieved" + hint, messages.getContent()));
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, "Messages retrieved successfully", messages.getContent()));
+    }
+    
+    /**
+     * Delta sync: messages inserted or updated after {@code since}, oldest change first, plus
+     * the watermark to pass as {@code since} next time. {@code since} is either a watermark
+     * returned earlier or epoch milliseconds; omit it to start from the beginning.
+     * <p>
+     * Changes are only returned up to a bound that trails both the clock and, on PostgreSQL,
+     * the oldest transaction still writing by {@code app.messages.changes.settle-ms}, so a
+     * transaction that commits late with an older timestamp is not skipped. Deletions are
+     * not reported; clients that need them should reload in full after a clear.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<ApiResponse<MessageChanges>> getChanges(@RequestParam(required = false) String since,
+                                                                 @RequestParam(defaultValue = "500") int limit) {
+        if (limit < 1 || limit > maxPageLimit) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Limit must be between 1 and " + maxPageLimit, null));
+        }
+        MessageCursor watermark;
+        try {
+            watermark = parseWatermark(since);
+        } catch (IllegalArgumentException error) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Invalid watermark", null));
+        }
+        try {
+            Date until = messageStorageService.getChangesBound(changesSettleMs);
+            Slice<Message> slice = messageStorageService.getChangesSince(watermark, until, limit);
+            List<Message> messages = slice.getContent();
+            // Once caught up, everything before the settle bound has been seen, so move the
+            // watermark there and keep the next scan short even when nothing changed.
+            MessageCursor next = watermark;
+            if (slice.hasNext()) {
+                next = MessageCursor.afterUpdate(messages.get(messages.size() - 1));
+            } else if (until.after(watermark.getTime())) {
+                next = MessageCursor.of(until, MessageCursor.MIN_ID);
+            }
+            return ResponseEntity.ok(new ApiResponse<>(true, "Changes retrieved successfully",
+                    new MessageChanges(messages, next.encode(), slice.hasNext())));
+        } catch (Exception error) {
+            logger.error("Error retrieving message changes", error);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "Failed to retrieve changes", null));
+        }
+    }
+    
+    private static MessageCursor parseWatermark(String since) {
+        if (since == null || since.isEmpty()) {
+            return MessageCursor.of(new Date(0), MessageCursor.MIN_ID);
+        }
+        if (since.chars().allMatch(Character::isDigit)) {
+            try {
+                return MessageCursor.of(new Date(Long.parseLong(since)), MessageCursor.MIN_ID);
+            } catch (NumberFormatException error) {
+                throw new IllegalArgumentException("Invalid watermark", error);
+            }
+        }
+        return MessageCursor.decode(since);
+    }
+    
+    /**
+     * Newest messages, newest first, served from memory without a database query when this
+     * is the only consuming instance.
+     */
+    @GetMapping("/recent")
+    public ResponseEntity<ApiResponse<List<Message>>> getRecentMessages(@RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > recentMessageBuffer.getCapacity()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Limit must be between 1 and " + recentMessageBuffer.getCapacity(), null));
+        }
+        List<Message> messages = recentMessageBuffer.getRecent(limit);
+        return ResponseEntity.ok(new ApiResponse<>(true, "Messages retrieved successfully", messages));
+    }
+    
+    /**
+     * Server-Sent Events stream of messages as they are consumed, one "message" event each.
+     * Clients that cannot keep up are disconnected and should reload /recent on reconnect.
+     * Not found unless this is the only consuming instance; clients poll /changes then.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessages() {
+        if (!messageBroadcaster.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        SseEmitter emitter = messageBroadcaster.subscribe();
+        if (emitter == null) {
+            logger.warn("Rejecting message stream subscriber, limit reached");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
+    /**
+     * Stream matching messages as NDJSON, one object per line, newest first.
+     * Rows are written as they are read from the database cursor, so heap use
+     * stays flat regardless of how many messages match. The stream may run for
+     * {@code app.messages.export.timeout-ms}, longer than other async requests.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportMessages(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            WebRequest request) {
+        if (status != null && !MessageStatus.isValid(status)) {
+            return ResponseEntity.badRequest().build();
+        }
+        request.setAttribute(AsyncTimeoutConfig.TIMEOUT_ATTRIBUTE, exportTimeoutMs, RequestAttributes.SCOPE_REQUEST);
+        logger.info("Exporting messages with status {} from {} to {}", status, from, to);
+        MessageStatus statusFilter = status == null ? null : MessageStatus.valueOf(status);
+        StreamingResponseBody body = outputStream -> messageStorageService.exportMessages(statusFilter, from, to, message -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(message));
+                outputStream.write('\n');
+            } catch (IOException error) {
+                throw new UncheckedIOException(error);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+    
+    /**
+     * Search message content. With {@code since}, searches that fall inside the recent
+     * message window are answered from memory; everything else goes to the database.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<List<Message>>> searchMessages(
+            @RequestParam String q,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date since,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (q.trim().length() < MIN_SEARCH_TERM_LENGTH) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Search term must be at least " + MIN_SEARCH_TERM_LENGTH + " characters", null));
+        }
+        if (page < 0 || size < 1 || size > maxPageLimit) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Size must be between 1 and " + maxPageLimit, null));
+        }
+        if ((long) page * size > Integer.MAX_VALUE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Page must be at most " + Integer.MAX_VALUE / size, null));
+        }
+        try {
+            logger.debug("Searching messages for '{}', page {}", q, page);
+            List<Message> messages = messageSearchService.search(q.trim(), since, page, size);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Messages retrieved successfully", messages));
+        } catch (Exception error) {
+            logger.error("Error searching messages", error);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "Failed to search messages", null));
+        }
+    }
+    
+    @GetMapping("/failed")
+    public ResponseEntity<ApiResponse<List<Message>>> getFailedMessages(@RequestParam(defaultValue = "0") int page,
+                                                                       @RequestParam(defaultValue = "50") int size) {
+        if (page < 0 || size < 1 || size > maxPageLimit) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Size must be between 1 and " + maxPageLimit, null));
+        }
+        if ((long) page * size > Integer.MAX_VALUE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Page must be at most " + Integer.MAX_VALUE / size, null));
+        }
+        try {
+            logger.debug("Fetching failed messages, page {}", page);
+            List<Message> messages = messageStorageService.getFailedMessages(page, size).getContent();
+            return ResponseEntity.ok(new ApiResponse<>(true, "Failed messages retrieved successfully", messages));
+        } catch (Exception error) {
+            logger.error("Error retrieving failed messages", error);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "Failed to retrieve failed messages", null));
+        }
+    }
+    
+    @PostMapping("/{id}/replay")
+    public CompletableFuture<ResponseEntity<ApiResponse<MessageSendResult>>> replayMessage(@PathVariable("id") String value) {
+        UUID id = Message.parseId(value);
+        if (id == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>(false, "Failed message not found", null)));
+        }
+        Message message;
+        try {
+            // Claim the message first, so concurrent replays cannot both send it
+            message = messageStorageService.markReplayed(id);
+        } catch (Exception error) {
+            return CompletableFuture.completedFuture(sendFailure("Error replaying message", error));
+        }
+        if (message == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>(false, "Failed message not found", null)));
+        }
+        logger.info("Replaying failed message: {}", id);
+        try {
+            // Same key as the original record, so it lands on the same partition
+            return kafkaProducer.sendMessageAsync(message.getKey(), message.getContent())
+                    // Completes on the producer's I/O thread, so move the database update off it
+                    .handleAsync((result, error) -> error == null
+                            ? ResponseEntity.ok(new ApiResponse<>(true, "Message replayed successfully", result))
+                            : replayFailure(id, error), replayExecutor);
+        } catch (Exception error) {
+            return CompletableFuture.completedFuture(replayFailure(id, error));
+        }
+    }
+    
+    /** Release the claim taken by markReplayed so the message can be replayed again. */
+    private ResponseEntity<ApiResponse<MessageSendResult>> replayFailure(UUID id, Throwable error) {
+        try {
+            messageStorageService.revertReplayed(id);
+        } catch (Exception revertError) {
+            logger.error("Could not return message {} to failed after its replay failed", id, revertError);
+        }
+        return sendFailure("Error replaying message", error);
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<Message>> getMessageById(@PathVariable String id) {
+    public ResponseEntity<ApiResponse<Message>> getMessageById(@PathVariable("id") String value) {
+        UUID id = Message.parseId(value);
+        if (id == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse<>(false, "Message not found", null));
+        }
         try {
             logger.debug("Fetching message by id: {}", id);
             Message message = messageStorageService.getMessageById(id);
@@ -85,7 +567,10 @@ public class MessageController {
     }
     
     @GetMapping("/count")
-    public ResponseEntity<ApiResponse<Integer>> getMessageCount() {
+    public ResponseEntity<ApiResponse<Integer>> getMessageCount(WebRequest request) {
+        if (isNotModified(request)) {
+            return null;
+        }
         try {
             int count = messageStorageService.getMessageCount();
             return ResponseEntity.ok(new ApiResponse<>(true, "Message count retrieved", count));
@@ -96,6 +581,26 @@ public class MessageController {
         }
     }
     
+    /**
+     * Delete every message with the given status, in committed chunks.
+     */
+    @DeleteMapping(params = "status")
+    public ResponseEntity<ApiResponse<Long>> deleteMessagesByStatus(@RequestParam String status) {
+        if (!MessageStatus.isValid(status)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Unknown status: " + status, null));
+        }
+        try {
+            logger.info("Deleting messages with status {}", status);
+            long deleted = messageStorageService.deleteMessagesByStatus(MessageStatus.valueOf(status));
+            return ResponseEntity.ok(new ApiResponse<>(true, "Messages deleted", deleted));
+        } catch (Exception error) {
+            logger.error("Error deleting messages with status {}", status, error);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse<>(false, "Failed to delete messages", null));
+        }
+    }
+    
     @DeleteMapping
     public ResponseEntity<ApiResponse<String>> clearMessages() {
         try {
@@ -109,8 +614,48 @@ public class MessageController {
         }
     }
     
+    /**
+     * Answer a conditional GET from the storage version without running any query.
+     * The version is read before the data, so a change made meanwhile yields a stale
+     * ETag and the client simply fetches again on its next poll.
+     * 
+     * @return true if a 304 response has been prepared and the handler should return null
+     */
+    private boolean isNotModified(WebRequest request) {
+        String etag = "\"" + messageStorageService.getVersionTag() + "\"";
+        return request.checkNotModified(etag, messageStorageService.getLastModified());
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<ApiResponse<String>> healthCheck() {
         return ResponseEntity.ok(new ApiResponse<>(true, "API is healthy", "Running"));
     }
+    
+    private <T> ResponseEntity<ApiResponse<T>> sendFailure(String logMessage, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        logger.error(logMessage, cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(new ApiResponse<>(false, "Failed to send message: " + cause.getMessage(), null));
+    }
+    
+    private CompletableFuture<ResponseEntity<ApiResponse<List<BatchSendItemResult>>>> sendBatchInternal(List<MessageRequest> requests) {
+        if (requests.isEmpty() || requests.size() > maxBatchSize) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse<>(false, "Batch must contain between 1 and " + maxBatchSize + " messages", null)));
+        }
+        for (MessageRequest request : requests) {
+            if (request == null || request.getMessage() == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(new ApiResponse<>(false, "Field 'message' is required for every batch item", null)));
+            }
+        }
+        
+        logger.info("Received request to send batch of {} messages", requests.size());
+        return kafkaProducer.sendMessagesAsync(requests)
+                .thenApply(results -> {
+                    long sent = results.stream().filter(BatchSendItemResult::isSuccess).count();
+                    return ResponseEntity.ok(new ApiResponse<>(sent == results.size(),
+                            sent + " of " + results.size() + " messages sent successfully", results));
+                });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,33 @@
+package com.kafka.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchSendItemResult {
+    @JsonProperty("index")
+    private int index;
+    
+    @JsonProperty("success")
+    private boolean success;
+    
+    @JsonProperty("result")
+    private MessageSendResult result;
+    
+    @JsonProperty("error")
+    private String error;
+    
+    public static BatchSendItemResult sent(int index, MessageSendResult result) {
+        return new BatchSendItemResult(index, true, result, null);
+    }
+    
+    public static BatchSendItemResult failed(int index, String error) {
+        return new BatchSendItemResult(index, false, null, error);
+    }
+}
@@ -0,0 +1,23 @@
+package com.kafka.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.kafka.app.model.Message;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageChanges {
+    @JsonProperty("messages")
+    private List<Message> messages;
+    
+    @JsonProperty("watermark")
+    private String watermark;
+    
+    @JsonProperty("hasMore")
+    private boolean hasMore;
+}
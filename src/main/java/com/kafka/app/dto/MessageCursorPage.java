@@ -0,0 +1,23 @@
+package com.kafka.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageCursorPage<T> {
+    /** Either {@code Message} or {@code MessageSummary}, depending on the request. */
+    @JsonProperty("messages")
+    private List<T> messages;
+    
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+    
+    @JsonProperty("hasNext")
+    private boolean hasNext;
+}
@@ -11,4 +11,7 @@ import lombok.NoArgsConstructor;
 public class MessageRequest {
     @JsonProperty("message")
     private String message;
+    
+    @JsonProperty("key")
+    private String key;
 }
@@ -0,0 +1,23 @@
+package com.kafka.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageSendResult {
+    @JsonProperty("topic")
+    private String topic;
+    
+    @JsonProperty("partition")
+    private int partition;
+    
+    @JsonProperty("offset")
+    private long offset;
+    
+    @JsonProperty("timestamp")
+    private long timestamp;
+}
@@ -0,0 +1,69 @@
+package com.kafka.app.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.kafka.app.model.MessageStatus;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * List view of a message: the fields a list renders plus the first characters of its
+ * content. Selected directly by the repository, so neither the full body nor a managed
+ * entity is loaded.
+ */
+@Data
+@NoArgsConstructor
+public class MessageSummary {
+    @JsonProperty("id")
+    private UUID id;
+    
+    @JsonProperty("content")
+    private String content;
+    
+    @JsonProperty("timestamp")
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private long timestamp;
+    
+    @JsonProperty("status")
+    private MessageStatus status;
+    
+    /** True if content holds only the beginning of the message. */
+    @JsonProperty("truncated")
+    private boolean truncated;
+    
+    /** Kept for the keyset cursor only. */
+    @JsonIgnore
+    private Date createdAt;
+    
+    /**
+     * Constructor used by the repository's projection queries.
+     * 
+     * @param content the beginning of the content, fetched one character longer than the
+     *                preview so {@link #limitContent(int)} can tell whether it was cut
+     */
+    public MessageSummary(UUID id, MessageStatus status, long timestamp, Date createdAt, String content) {
+        this.id = id;
+        this.status = status;
+        this.timestamp = timestamp;
+        this.createdAt = createdAt;
+        this.content = content;
+    }
+    
+    /**
+     * Cut the content to the preview length, marking the summary as truncated if it was longer.
+     * 
+     * @param previewLength the number of characters to keep
+     * @return this summary
+     */
+    public MessageSummary limitContent(int previewLength) {
+        if (content != null && content.length() > previewLength) {
+            content = content.substring(0, previewLength);
+            truncated = true;
+        }
+        return this;
+    }
+}
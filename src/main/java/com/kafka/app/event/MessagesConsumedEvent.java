@@ -0,0 +1,24 @@
+package com.kafka.app.event;
+
+import com.kafka.app.model.Message;
+
+import java.util.List;
+
+/**
+ * Published after a record or a poll has been stored: by the Kafka consumer, or by the
+ * write-behind buffer once it has written a batch. Delivered synchronously on the
+ * publishing thread, so handlers must be quick and must not throw.
+ * Re-delivered records are published again; handlers should key on the message ID.
+ */
+public class MessagesConsumedEvent {
+
+    private final List<Message> messages;
+
+    public MessagesConsumedEvent(List<Message> messages) {
+        this.messages = List.copyOf(messages);
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+}
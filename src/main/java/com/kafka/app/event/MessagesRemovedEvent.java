@@ -0,0 +1,67 @@
+package com.kafka.app.event;
+
+import com.kafka.app.model.Message;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Published by MessageStorageService when stored messages are deleted,
+ * so in-memory views of recent messages can drop them.
+ */
+public class MessagesRemovedEvent {
+
+    private final Set<UUID> ids;
+    private final Predicate<Message> filter;
+
+    private MessagesRemovedEvent(Set<UUID> ids, Predicate<Message> filter) {
+        this.ids = ids;
+        this.filter = filter;
+    }
+
+    /**
+     * @return event for the removal of every stored message
+     */
+    public static MessagesRemovedEvent all() {
+        return new MessagesRemovedEvent(null, null);
+    }
+
+    /**
+     * @param ids the IDs of the removed messages
+     * @return event for the removal of the given messages
+     */
+    public static MessagesRemovedEvent of(Set<UUID> ids) {
+        return new MessagesRemovedEvent(Set.copyOf(ids), null);
+    }
+
+    /**
+     * @param filter matches the removed messages, for bulk deletes whose IDs are not known
+     * @return event for the removal of every message the filter matches
+     */
+    public static MessagesRemovedEvent matching(Predicate<Message> filter) {
+        return new MessagesRemovedEvent(null, filter);
+    }
+
+    public boolean isAll() {
+        return ids == null && filter == null;
+    }
+
+    /**
+     * @return the removed IDs; empty when removal is by {@link #isAll()} or by filter
+     */
+    public Set<UUID> getIds() {
+        return ids == null ? Set.of() : ids;
+    }
+
+    /**
+     * @param message a message held in memory
+     * @return true if this event removed it
+     */
+    public boolean removes(Message message) {
+        if (isAll()) {
+            return true;
+        }
+        return filter != null ? filter.test(message) : ids.contains(message.getId());
+    }
+}
@@ -0,0 +1,23 @@
+package com.kafka.app.event;
+
+import com.kafka.app.model.Message;
+
+import java.util.List;
+
+/**
+ * Published after stored messages have been changed in place, such as an edit or a failed
+ * message marked as replayed. Carries the stored copies, so in-memory views holding an
+ * older copy of a message can replace it. Messages a view does not hold are ignored.
+ */
+public class MessagesUpdatedEvent {
+
+    private final List<Message> messages;
+
+    public MessagesUpdatedEvent(List<Message> messages) {
+        this.messages = List.copyOf(messages);
+    }
+
+    public List<Message> getMessages() {
+        return messages;
+    }
+}
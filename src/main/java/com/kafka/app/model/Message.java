@@ -1,26 +1,42 @@
 package com.kafka.app.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
 @Table(name = "messages", indexes = {
     @Index(name = "idx_message_status", columnList = "status"),
     @Index(name = "idx_message_timestamp", columnList = "timestamp")
 })
-public class Message {
+public class Message implements Persistable<UUID> {
+    
+    private static final Pattern ID_PATTERN =
+            Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
     
+    /**
+     * A native uuid column, bound as a uuid rather than as text.
+     * <p>
+     * On PostgreSQL the partitioned table's primary key is (id, created_at), since it must
+     * include the partition key, so the database alone does not keep an ID unique. Lookups by
+     * ID assume it is: consumed messages derive both from their record (position and time),
+     * so every delivery has the same key, and other messages get random IDs.
+     */
     @Id
-    @Column(name = "id", length = 36)
+    @Column(name = "id")
     @JsonProperty("id")
-    private String id;
+    private UUID id;
     
     @Column(name = "content", columnDefinition = "TEXT", nullable = false)
     @JsonProperty("content")
@@ -31,9 +47,11 @@ public class Message {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private long timestamp;
     
-    @Column(name = "status", length = 50, nullable = false)
+    /** Stored as its SMALLINT code; serialized by name. */
+    @Column(name = "status", nullable = false)
+    @Convert(converter = MessageStatusConverter.class)
     @JsonProperty("status")
-    private String status;
+    private MessageStatus status;
     
     @Column(name = "created_at", nullable = false, updatable = false)
     @Temporal(TemporalType.TIMESTAMP)
@@ -43,9 +61,56 @@ public class Message {
     @Temporal(TemporalType.TIMESTAMP)
     private java.util.Date updatedAt;
     
+    @Column(name = "retry_count")
+    @JsonProperty("retryCount")
+    private int retryCount;
+    
+    @Column(name = "error_message", length = 1000)
+    @JsonProperty("errorMessage")
+    private String errorMessage;
+    
+    @Column(name = "source_topic")
+    @JsonProperty("sourceTopic")
+    private String sourceTopic;
+    
+    /** Key of the consumed record, reused when the message is replayed. */
+    @Column(name = "message_key", columnDefinition = "TEXT")
+    @JsonProperty("key")
+    private String key;
+    
+    /**
+     * IDs are assigned by the application, so Spring Data cannot tell new rows
+     * from existing ones by a null ID. Tracking it here lets save/saveAll issue
+     * a plain (batchable) INSERT instead of a SELECT followed by a merge.
+     */
+    @Transient
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean newEntity = true;
+    
+    public Message(UUID id, String content, long timestamp, MessageStatus status,
+                   java.util.Date createdAt, java.util.Date updatedAt) {
+        this.id = id;
+        this.content = content;
+        this.timestamp = timestamp;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+    
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return newEntity;
+    }
+    
+    /** Keeps a creation time set beforehand, such as the consumed record's time. */
     @PrePersist
     protected void onCreate() {
-        createdAt = new java.util.Date();
+        if (createdAt == null) {
+            createdAt = new java.util.Date();
+        }
         updatedAt = new java.util.Date();
     }
     
@@ -53,4 +118,21 @@ public class Message {
     protected void onUpdate() {
         updatedAt = new java.util.Date();
     }
+    
+    @PostPersist
+    @PostLoad
+    protected void markNotNew() {
+        newEntity = false;
+    }
+    
+    /**
+     * Parse a client-supplied ID. Only the canonical 36-character form is accepted;
+     * UUID.fromString alone would also take shortened groups such as "1-2-3-4-5".
+     * 
+     * @param id a candidate message ID
+     * @return the parsed ID, or null if it is not a UUID in its canonical form
+     */
+    public static UUID parseId(String id) {
+        return id != null && ID_PATTERN.matcher(id).matches() ? UUID.fromString(id) : null;
+    }
 }
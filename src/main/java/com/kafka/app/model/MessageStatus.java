@@ -0,0 +1,51 @@
+package com.kafka.app.model;
+
+/**
+ * Processing status of a stored message.
+ * <p>
+ * Stored as a SMALLINT code (see {@link MessageStatusConverter}); codes are persisted, so
+ * existing ones must never change. New statuses get new codes.
+ */
+public enum MessageStatus {
+    PROCESSED((short) 1),
+    PENDING((short) 2),
+    FAILED((short) 3),
+    REPLAYED((short) 4);
+
+    private final short code;
+
+    MessageStatus(short code) {
+        this.code = code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    /**
+     * @param code a stored status code
+     * @return the status with that code
+     * @throws IllegalArgumentException if no status has that code
+     */
+    public static MessageStatus fromCode(short code) {
+        for (MessageStatus status : values()) {
+            if (status.code == code) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unknown message status code: " + code);
+    }
+
+    /**
+     * @param name a client-supplied status name
+     * @return true if a status has exactly that name
+     */
+    public static boolean isValid(String name) {
+        for (MessageStatus status : values()) {
+            if (status.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,22 @@
+package com.kafka.app.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores {@link Message#getStatus()} as its {@link MessageStatus} SMALLINT code.
+ * Query parameters compared with the status attribute are converted the same way.
+ */
+@Converter
+public class MessageStatusConverter implements AttributeConverter<MessageStatus, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(MessageStatus status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public MessageStatus convertToEntityAttribute(Short code) {
+        return code == null ? null : MessageStatus.fromCode(code);
+    }
+}
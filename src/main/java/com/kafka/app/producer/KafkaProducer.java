@@ -1,20 +1,30 @@
 package com.kafka.app.producer;
 
+import com.kafka.app.config.KafkaTopicConfig;
+import com.kafka.app.dto.BatchSendItemResult;
+import com.kafka.app.dto.MessageRequest;
+import com.kafka.app.dto.MessageSendResult;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Counter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class KafkaProducer {
     
     private static final Logger logger = LoggerFactory.getLogger(KafkaProducer.class);
-    private static final String TOPIC = "messages";
+    private static final String TOPIC = KafkaTopicConfig.MESSAGES_TOPIC;
     
     private final KafkaTemplate<String, String> kafkaTemplate;
     private final Counter messagesSentCounter;
@@ -23,30 +33,119 @@ public class KafkaProducer {
     public KafkaProducer(KafkaTemplate<String, String> kafkaTemplate, MeterRegistry meterRegistry) {
         this.kafkaTemplate = kafkaTemplate;
         this.messagesSentCounter = Counter.builder("kafka.messages.sent")
-                .description("Total number of messages sent to Kafka")
+                .description("Total number of messages acknowledged by the Kafka broker")
                 .register(meterRegistry);
         this.messagesFailedCounter = Counter.builder("kafka.messages.failed")
                 .description("Total number of failed message sends")
                 .register(meterRegistry);
     }
     
+    /**
+     * Send a message without waiting for the broker.
+     * The delivery outcome is recorded in the sent/failed counters.
+     * 
+     * @param message the message payload
+     */
     public void sendMessage(String message) {
+        sendMessageAsync(message);
+    }
+    
+    /**
+     * Send an unkeyed message and complete once the broker has acknowledged it.
+     * 
+     * @param message the message payload
+     * @return future completed with the record's topic, partition and offset
+     * @see #sendMessageAsync(String, String)
+     */
+    public CompletableFuture<MessageSendResult> sendMessageAsync(String message) {
+        return sendMessageAsync(null, message);
+    }
+    
+    /**
+     * Send a message and complete once the broker has acknowledged it.
+     * Counters are updated from the send callback, so kafka.messages.sent only
+     * counts acknowledged records and broker-side failures land in kafka.messages.failed.
+     * 
+     * Records with the same key land on the same partition and keep their relative order;
+     * unkeyed records are spread across partitions by the producer.
+     * 
+     * @param key the partitioning key, or null for none
+     * @param message the message payload
+     * @return future completed with the record's topic, partition and offset,
+     *         or exceptionally if the broker rejected it
+     * @throws RuntimeException if the record could not be handed to the producer at all
+     */
+    public CompletableFuture<MessageSendResult> sendMessageAsync(String key, String message) {
+        CompletableFuture<SendResult<String, String>> future;
         try {
-            logger.debug("Producing message: {}", message);
+            logger.debug("Producing message with key {}: {}", key, message);
             
-            Message<String> kafkaMessage = MessageBuilder
+            MessageBuilder<String> builder = MessageBuilder
                     .withPayload(message)
-                    .setHeader(KafkaHeaders.TOPIC, TOPIC)
-                    .build();
+                    .setHeader(KafkaHeaders.TOPIC, TOPIC);
+            if (key != null) {
+                builder.setHeader(KafkaHeaders.KEY, key);
+            }
+            Message<String> kafkaMessage = builder.build();
             
-            kafkaTemplate.send(kafkaMessage);
-            messagesSentCounter.increment();
-            logger.info("Message sent successfully to topic: {}", TOPIC);
+            future = kafkaTemplate.send(kafkaMessage);
         } catch (Exception e) {
             messagesFailedCounter.increment();
             logger.error("Failed to send message: {}", message, e);
             throw new RuntimeException("Failed to send message to Kafka", e);
         }
+        
+        return future.handle((result, error) -> {
+            if (error != null) {
+                messagesFailedCounter.increment();
+                logger.error("Broker rejected message: {}", message, error);
+                throw new CompletionException(new RuntimeException("Failed to send message to Kafka", error));
+            }
+            
+            messagesSentCounter.increment();
+            RecordMetadata metadata = result.getRecordMetadata();
+            logger.info("Message acknowledged on topic {} partition {} at offset {}",
+                    metadata.topic(), metadata.partition(), metadata.offset());
+            return new MessageSendResult(metadata.topic(), metadata.partition(),
+                    metadata.offset(), metadata.timestamp());
+        });
+    }
+    
+    /**
+     * Send a batch of messages without waiting between records, so the producer
+     * can pack them into as few broker requests as linger.ms/batch.size allow.
+     * 
+     * @param messages the messages to send, each with an optional key, in order
+     * @return future completed with one result per message, in input order,
+     *         once every record has been acknowledged or has failed
+     */
+    public CompletableFuture<List<BatchSendItemResult>> sendMessagesAsync(List<MessageRequest> messages) {
+        logger.debug("Producing batch of {} messages", messages.size());
+        
+        List<CompletableFuture<BatchSendItemResult>> items = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            final int index = i;
+            CompletableFuture<MessageSendResult> future;
+            try {
+                MessageRequest request = messages.get(i);
+                future = sendMessageAsync(request.getKey(), request.getMessage());
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            items.add(future.handle((result, error) -> error == null
+                    ? BatchSendItemResult.sent(index, result)
+                    : BatchSendItemResult.failed(index, rootCauseMessage(error))));
+        }
+        
+        return CompletableFuture.allOf(items.toArray(CompletableFuture<?>[]::new))
+                .thenApply(done -> items.stream().map(CompletableFuture::join).toList());
+    }
+    
+    private static String rootCauseMessage(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
     }
 }
-
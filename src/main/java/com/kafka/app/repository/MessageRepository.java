@@ -1,9 +1,13 @@
 package com.kafka.app.repository;
 
+import com.kafka.app.dto.MessageSummary;
 import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,13 +15,14 @@ import org.springframework.stereotype.Repository;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Spring Data JPA Repository for Message entity.
  * Provides database operations for Message CRUD and custom queries.
  */
 @Repository
-public interface MessageRepository extends JpaRepository<Message, String> {
+public interface MessageRepository extends JpaRepository<Message, UUID>, MessageRepositoryCustom {
 
     /**
      * Find all messages with a specific status.
@@ -25,7 +30,7 @@ public interface MessageRepository extends JpaRepository<Message, String> {
      * @param status the status to filter by
      * @return list of messages with the given status
      */
-    List<Message> findByStatus(String status);
+    List<Message> findByStatus(MessageStatus status);
 
     /**
      * Find messages within a date range.
@@ -37,6 +42,62 @@ public interface MessageRepository extends JpaRepository<Message, String> {
     @Query("SELECT m FROM Message m WHERE m.createdAt BETWEEN :startDate AND :endDate ORDER BY m.createdAt DESC")
     List<Message> findMessagesByDateRange(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
 
+    /**
+     * Find the newest messages with a specific status, newest first by (createdAt, id).
+     * 
+     * @param status the status to filter by
+     * @param pageable the page size; the page number is always 0
+     * @return the newest messages with the given status
+     */
+    @Query("SELECT m FROM Message m WHERE m.status = :status ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<Message> findNewestByStatus(@Param("status") MessageStatus status, Pageable pageable);
+
+    /**
+     * Summary variant of {@link #findNewestByStatus(MessageStatus, Pageable)}.
+     * 
+     * @param status the status to filter by
+     * @param contentLength the number of content characters to fetch
+     * @param pageable the page size; the page number is always 0
+     * @return summaries of the newest messages with the given status
+     * @see #findFirstKeysetSummaryPage(int, Pageable)
+     */
+    @Query("SELECT new com.kafka.app.dto.MessageSummary(m.id, m.status, m.timestamp, m.createdAt, "
+            + "SUBSTRING(m.content, 1, :contentLength)) FROM Message m WHERE m.status = :status "
+            + "ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<MessageSummary> findNewestSummariesByStatus(@Param("status") MessageStatus status,
+                                                      @Param("contentLength") int contentLength, Pageable pageable);
+
+    /**
+     * Find the newest messages within a date range, newest first by (createdAt, id).
+     * 
+     * @param startDate the start date
+     * @param endDate the end date
+     * @param pageable the page size; the page number is always 0
+     * @return the newest messages created within the date range
+     */
+    @Query("SELECT m FROM Message m WHERE m.createdAt BETWEEN :startDate AND :endDate "
+            + "ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<Message> findNewestByDateRange(@Param("startDate") Date startDate, @Param("endDate") Date endDate,
+                                         Pageable pageable);
+
+    /**
+     * Summary variant of {@link #findNewestByDateRange(Date, Date, Pageable)}.
+     * 
+     * @param startDate the start date
+     * @param endDate the end date
+     * @param contentLength the number of content characters to fetch
+     * @param pageable the page size; the page number is always 0
+     * @return summaries of the newest messages created within the date range
+     * @see #findFirstKeysetSummaryPage(int, Pageable)
+     */
+    @Query("SELECT new com.kafka.app.dto.MessageSummary(m.id, m.status, m.timestamp, m.createdAt, "
+            + "SUBSTRING(m.content, 1, :contentLength)) FROM Message m "
+            + "WHERE m.createdAt BETWEEN :startDate AND :endDate ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<MessageSummary> findNewestSummariesByDateRange(@Param("startDate") Date startDate,
+                                                         @Param("endDate") Date endDate,
+                                                         @Param("contentLength") int contentLength,
+                                                         Pageable pageable);
+
     /**
      * Find all messages with pagination.
      * 
@@ -45,6 +106,75 @@ public interface MessageRepository extends JpaRepository<Message, String> {
      */
     Page<Message> findAll(Pageable pageable);
 
+    /**
+     * Find the first keyset page, newest first by (createdAt, id).
+     * Returns a slice, so no count query is issued.
+     * 
+     * @param pageable the page size; the page number is always 0
+     * @return the newest messages
+     */
+    @Query("SELECT m FROM Message m ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<Message> findFirstKeysetPage(Pageable pageable);
+
+    /**
+     * Find the keyset page that follows the given (createdAt, id) position, newest first.
+     * The redundant {@code createdAt <= :createdAt} bound lets the database start the
+     * index scan at the cursor instead of filtering every newer row.
+     * 
+     * @param createdAt creation time of the last message already returned
+     * @param id ID of the last message already returned
+     * @param pageable the page size; the page number is always 0
+     * @return the messages strictly after the cursor position
+     */
+    @Query("SELECT m FROM Message m WHERE m.createdAt <= :createdAt "
+            + "AND (m.createdAt < :createdAt OR m.id < :id) "
+            + "ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<Message> findKeysetPageAfter(@Param("createdAt") Date createdAt, @Param("id") UUID id, Pageable pageable);
+
+    /**
+     * Summary variant of {@link #findFirstKeysetPage(Pageable)}. The rest of a body is never
+     * read; on PostgreSQL a compressed body is only decompressed as far as the prefix needs.
+     * 
+     * @param contentLength the number of content characters to fetch
+     * @param pageable the page size; the page number is always 0
+     * @return summaries of the newest messages
+     */
+    @Query("SELECT new com.kafka.app.dto.MessageSummary(m.id, m.status, m.timestamp, m.createdAt, "
+            + "SUBSTRING(m.content, 1, :contentLength)) FROM Message m ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<MessageSummary> findFirstKeysetSummaryPage(@Param("contentLength") int contentLength, Pageable pageable);
+
+    /**
+     * Summary variant of {@link #findKeysetPageAfter(Date, UUID, Pageable)}.
+     * 
+     * @param createdAt creation time of the last message already returned
+     * @param id ID of the last message already returned
+     * @param contentLength the number of content characters to fetch
+     * @param pageable the page size; the page number is always 0
+     * @return summaries of the messages strictly after the cursor position
+     */
+    @Query("SELECT new com.kafka.app.dto.MessageSummary(m.id, m.status, m.timestamp, m.createdAt, "
+            + "SUBSTRING(m.content, 1, :contentLength)) FROM Message m WHERE m.createdAt <= :createdAt "
+            + "AND (m.createdAt < :createdAt OR m.id < :id) "
+            + "ORDER BY m.createdAt DESC, m.id DESC")
+    Slice<MessageSummary> findKeysetSummaryPageAfter(@Param("createdAt") Date createdAt, @Param("id") UUID id,
+                                                     @Param("contentLength") int contentLength, Pageable pageable);
+
+    /**
+     * Find messages inserted or updated after the given (updatedAt, id) position and before
+     * {@code until}, oldest change first.
+     * 
+     * @param updatedAt update time of the last change already returned
+     * @param id ID of the last change already returned, or {@code MessageCursor.MIN_ID} to include every row at updatedAt
+     * @param until exclusive upper bound on updatedAt
+     * @param pageable the page size; the page number is always 0
+     * @return the changes strictly after the position
+     */
+    @Query("SELECT m FROM Message m WHERE m.updatedAt >= :updatedAt "
+            + "AND (m.updatedAt > :updatedAt OR m.id > :id) AND m.updatedAt < :until "
+            + "ORDER BY m.updatedAt ASC, m.id ASC")
+    Slice<Message> findChangedAfter(@Param("updatedAt") Date updatedAt, @Param("id") UUID id,
+                                    @Param("until") Date until, Pageable pageable);
+
     /**
      * Find all messages by status with pagination.
      * 
@@ -52,24 +182,50 @@ public interface MessageRepository extends JpaRepository<Message, String> {
      * @param pageable pagination information
      * @return paginated list of messages with the given status
      */
-    Page<Message> findByStatus(String status, Pageable pageable);
+    Page<Message> findByStatus(MessageStatus status, Pageable pageable);
 
     /**
-     * Find all processed messages.
+     * Find all messages with a specific status, newest timestamp first.
      * 
-     * @return list of processed messages
+     * @param status the status to filter by
+     * @return list of messages with the given status
      */
-    @Query("SELECT m FROM Message m WHERE m.status = 'PROCESSED' ORDER BY m.timestamp DESC")
-    List<Message> findAllProcessedMessages();
+    List<Message> findByStatusOrderByTimestampDesc(MessageStatus status);
 
     /**
-     * Find messages by content search.
+     * Find the messages with a specific status with the newest timestamps, newest first.
      * 
-     * @param searchTerm the search term
-     * @return list of messages matching the search term
+     * @param status the status to filter by
+     * @param pageable the page size; the page number is always 0
+     * @return the messages with the given status
      */
-    @Query("SELECT m FROM Message m WHERE LOWER(m.content) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    List<Message> searchByContent(@Param("searchTerm") String searchTerm);
+    Slice<Message> findSliceByStatusOrderByTimestampDesc(MessageStatus status, Pageable pageable);
+
+    /**
+     * Summary variant of {@link #findSliceByStatusOrderByTimestampDesc(MessageStatus, Pageable)}.
+     * 
+     * @param status the status to filter by
+     * @param contentLength the number of content characters to fetch
+     * @param pageable the page size; the page number is always 0
+     * @return summaries of the messages with the given status
+     * @see #findFirstKeysetSummaryPage(int, Pageable)
+     */
+    @Query("SELECT new com.kafka.app.dto.MessageSummary(m.id, m.status, m.timestamp, m.createdAt, "
+            + "SUBSTRING(m.content, 1, :contentLength)) FROM Message m WHERE m.status = :status "
+            + "ORDER BY m.timestamp DESC")
+    Slice<MessageSummary> findSummariesByStatusOrderByTimestampDesc(@Param("status") MessageStatus status,
+                                                                    @Param("contentLength") int contentLength,
+                                                                    Pageable pageable);
+
+    /**
+     * Find all processed messages.
+     * The status is bound as a parameter so it goes through the status code converter.
+     * 
+     * @return list of processed messages
+     */
+    default List<Message> findAllProcessedMessages() {
+        return findByStatusOrderByTimestampDesc(MessageStatus.PROCESSED);
+    }
 
     /**
      * Count messages by status.
@@ -77,7 +233,7 @@ public interface MessageRepository extends JpaRepository<Message, String> {
      * @param status the status to count
      * @return count of messages with the given status
      */
-    long countByStatus(String status);
+    long countByStatus(MessageStatus status);
 
     /**
      * Check if a message exists by ID.
@@ -85,14 +241,58 @@ public interface MessageRepository extends JpaRepository<Message, String> {
      * @param id the message ID
      * @return true if message exists, false otherwise
      */
-    boolean existsById(String id);
+    boolean existsById(UUID id);
 
     /**
-     * Delete all messages with a specific status.
+     * Delete all messages with a specific status in one bulk statement, without loading them.
+     * For large deletes prefer the chunked {@link #deleteChunk}.
      * 
      * @param status the status to delete
+     * @return the number of messages deleted
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Message m WHERE m.status = :status")
+    int deleteByStatus(@Param("status") MessageStatus status);
+
+    /**
+     * Move a message to another status only if it still has the expected one. The check and
+     * the change are one statement, so of two concurrent callers exactly one succeeds.
+     * 
+     * @param id the message ID
+     * @param from the status the message must have
+     * @param to the new status
+     * @param updatedAt the new update time
+     * @return 1 if the message was moved, 0 if it is missing or has another status
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Message m SET m.status = :to, m.updatedAt = :updatedAt WHERE m.id = :id AND m.status = :from")
+    int updateStatusIf(@Param("id") UUID id, @Param("from") MessageStatus from, @Param("to") MessageStatus to,
+                       @Param("updatedAt") Date updatedAt);
+
+    /**
+     * Overwrite the outcome recorded for a delivery attempt of a message, only if the
+     * message still has the expected status.
+     * 
+     * @param id the message ID
+     * @param from the status the message must have
+     * @param status the status of the new attempt
+     * @param retryCount the number of failed attempts so far
+     * @param errorMessage the last error, or null
+     * @param updatedAt the new update time
+     * @return 1 if the message was overwritten, 0 if it is missing or has another status
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Message m SET m.status = :status, m.retryCount = :retryCount, m.errorMessage = :errorMessage, "
+            + "m.updatedAt = :updatedAt WHERE m.id = :id AND m.status = :from")
+    int updateAttemptIf(@Param("id") UUID id, @Param("from") MessageStatus from, @Param("status") MessageStatus status,
+                        @Param("retryCount") int retryCount, @Param("errorMessage") String errorMessage,
+                        @Param("updatedAt") Date updatedAt);
+
+    /**
+     * @return the latest update time of any message, or null if there are none
      */
-    void deleteByStatus(String status);
+    @Query("SELECT MAX(m.updatedAt) FROM Message m")
+    Date findLastUpdatedAt();
 
     /**
      * Find the most recent message.
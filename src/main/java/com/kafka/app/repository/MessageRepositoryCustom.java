@@ -0,0 +1,150 @@
+package com.kafka.app.repository;
+
+import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Custom repository operations that bypass the JPA persistence context.
+ */
+public interface MessageRepositoryCustom {
+
+    /**
+     * Insert messages as one JDBC batch, silently skipping any that are already stored.
+     * On PostgreSQL, whose partitioned table is only unique on (id, created_at), that is
+     * ON CONFLICT on that key; a message's creation time is written as it carries it (its
+     * record's time for consumed messages), so a redelivery conflicts. The same ID with another
+     * creation time is stored as a second row there, so callers must not stamp a redelivered
+     * message with the current time. Elsewhere MERGE on the ID.
+     * Entities saved earlier in the transaction are flushed first, so they count as stored.
+     * Only the messages actually inserted get the stored creation and update times set.
+     * 
+     * @param messages the messages to insert
+     * @return the number of rows actually inserted, or null if the driver did not report it
+     */
+    Integer insertIgnoringDuplicates(List<Message> messages);
+
+    /**
+     * Stream messages newest first from a server-side cursor, optionally filtered by
+     * status and creation time. Rows are fetched in chunks of
+     * {@code app.messages.export.fetch-size} and detached as they are consumed, so
+     * memory use does not grow with the number of rows.
+     * Must be called inside a transaction and the stream must be closed.
+     * 
+     * @param status the status to filter by, or null for all
+     * @param from the inclusive lower creation time bound, or null
+     * @param to the inclusive upper creation time bound, or null
+     * @return a lazily populated stream of detached messages
+     */
+    Stream<Message> streamMessages(MessageStatus status, Date from, Date to);
+
+    /**
+     * Case-insensitive substring search over message content, best matches first.
+     * On PostgreSQL this is served by the pg_trgm index and, without a time bound, ranked by
+     * word similarity; time-bounded searches and other databases use LIKE ordered newest first.
+     * 
+     * @param searchTerm the literal text to look for; LIKE wildcards are matched literally
+     * @param since the inclusive lower creation time bound, or null
+     * @param pageable the page to return; its sort is ignored
+     * @return the requested page, without a total count
+     */
+    Slice<Message> searchByContent(String searchTerm, Date since, Pageable pageable);
+
+    /**
+     * Count messages per status. On PostgreSQL this reads the trigger-maintained
+     * {@code message_status_counts} table instead of scanning {@code messages};
+     * elsewhere it falls back to GROUP BY.
+     * 
+     * @return the number of messages for every status that has any
+     */
+    Map<MessageStatus, Long> countMessagesByStatus();
+
+    /**
+     * Start time of the oldest transaction that has written to the database and not yet
+     * finished. Rows it stamped stay invisible until it commits, however long that takes.
+     * 
+     * @return the start time, or null if there is none or the database cannot tell (not PostgreSQL)
+     */
+    Date findOldestOpenWriteStart();
+
+    /**
+     * @return true if {@code messages} is range-partitioned by day (PostgreSQL after V7)
+     */
+    boolean isPartitioned();
+
+    /**
+     * Create the daily partitions for every day in the range that does not have one yet.
+     * Days before the first daily partition are covered by the partition V7 made of the
+     * original table and are skipped. Fails for a day whose rows already landed in the
+     * default partition.
+     * 
+     * @param from the first day, inclusive
+     * @param to the last day, inclusive
+     * @return the number of partitions created
+     */
+    int createPartitions(LocalDate from, LocalDate to);
+
+    /**
+     * @param cutoff the first day to keep
+     * @return the days of the daily partitions holding only days before the cutoff, oldest
+     *         first, including any left detached by an interrupted {@link #dropPartition}
+     */
+    List<LocalDate> findExpiredPartitions(LocalDate cutoff);
+
+    /**
+     * Detach one daily partition, concurrently where PostgreSQL allows it, then subtract its
+     * rows from {@code message_status_counts} and drop it; detaching and dropping bypass
+     * the triggers that would otherwise do that.
+     * Must be called outside a transaction: a concurrent detach cannot run inside one, and
+     * each step commits on its own so a failed drop resumes from where it stopped.
+     * 
+     * @param day the day the partition covers
+     * @return the number of messages dropped
+     */
+    long dropPartition(LocalDate day);
+
+    /**
+     * Delete up to {@code limit} matching messages with one set-based statement.
+     * Outside a transaction each call commits on its own, which keeps locks short
+     * when deleting many rows chunk by chunk.
+     * 
+     * @param status the status to delete, or null for any
+     * @param createdBefore the exclusive upper creation time bound, or null
+     * @param limit the maximum number of rows to delete
+     * @return the number of rows deleted
+     */
+    int deleteChunk(MessageStatus status, Date createdBefore, int limit);
+
+    /**
+     * Remove every message: TRUNCATE on PostgreSQL, a single DELETE elsewhere.
+     */
+    void truncateMessages();
+
+    /**
+     * Make PostgreSQL compress message content with the given codec and move it out of the
+     * row once the row exceeds the threshold (TOAST). Applies to rows written from now on;
+     * existing rows keep their current form. Does nothing on other databases.
+     * 
+     * @param codec "lz4" or "pglz"
+     * @param thresholdBytes the toast_tuple_target for every partition, 128 to 8160
+     * @return true if any setting changed
+     */
+    boolean configureContentCompression(String codec, int thresholdBytes);
+
+    /**
+     * Measure the content of the newest messages, reading every body in full so the
+     * call's duration includes decompressing them.
+     * 
+     * @param rows the number of newest messages to sample
+     * @return the number of sampled rows, their uncompressed and their stored size in bytes,
+     *         or null if not supported
+     */
+    long[] sampleContentSizes(int rows);
+}
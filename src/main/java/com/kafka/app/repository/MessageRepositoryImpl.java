@@ -0,0 +1,641 @@
+package com.kafka.app.repository;
+
+import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * JDBC implementation of {@link MessageRepositoryCustom}.
+ * Statements run on the connection of the surrounding JPA transaction.
+ * <p>
+ * On PostgreSQL, batches of at least {@code app.storage.copy-threshold} messages are
+ * streamed with COPY FROM STDIN into a session-local staging table and then moved into
+ * {@code messages} with a single INSERT ... SELECT. Both paths skip rows whose
+ * (id, created_at) key is already stored, which the partitioned table's primary key
+ * enforces; consumed messages carry their record's time, so a redelivery has the same key.
+ */
+class MessageRepositoryImpl implements MessageRepositoryCustom {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageRepositoryImpl.class);
+
+    private static final String COLUMNS =
+            "id, content, timestamp, status, created_at, updated_at, retry_count, error_message, source_topic, "
+                    + "message_key";
+
+    private static final String CREATE_STAGING =
+            "CREATE TEMPORARY TABLE IF NOT EXISTS messages_copy_staging (LIKE messages INCLUDING DEFAULTS)";
+
+    private static final String TRUNCATE_STAGING = "TRUNCATE messages_copy_staging";
+
+    private static final String COPY_INTO_STAGING =
+            "COPY messages_copy_staging (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    /** Repeats within the batch and keys already stored are skipped. */
+    private static final String MOVE_FROM_STAGING =
+            "INSERT INTO messages (" + COLUMNS + ") SELECT " + COLUMNS + " FROM messages_copy_staging "
+                    + "ON CONFLICT (id, created_at) DO NOTHING RETURNING id";
+
+    /** Encoded rows are handed to the driver in chunks of roughly this many characters. */
+    private static final int COPY_CHUNK_CHARS = 64 * 1024;
+
+    /**
+     * A row whose (id, created_at) key is already stored is skipped and reported as 0 rows.
+     * A concurrent insert of the same key waits on the primary key, so only one is stored.
+     */
+    private static final String POSTGRES_INSERT_IGNORE =
+            "INSERT INTO messages (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+                    + "ON CONFLICT (id, created_at) DO NOTHING";
+
+    private static final String STANDARD_INSERT_IGNORE =
+            "MERGE INTO messages t USING (SELECT CAST(? AS UUID) AS id) s ON t.id = s.id "
+                    + "WHEN NOT MATCHED THEN INSERT (id, content, timestamp, status, created_at, updated_at, "
+                    + "retry_count, error_message, source_topic, message_key) "
+                    + "VALUES (s.id, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String POSTGRES_SEARCH =
+            "SELECT * FROM messages WHERE content ILIKE :pattern ESCAPE '!' "
+                    + "ORDER BY word_similarity(:searchTerm, content) DESC, created_at DESC, id DESC";
+
+    /** Time-bounded searches are ordered newest first, like the recent message index. */
+    private static final String POSTGRES_SEARCH_SINCE =
+            "SELECT * FROM messages WHERE content ILIKE :pattern ESCAPE '!' AND created_at >= :since "
+                    + "ORDER BY created_at DESC, id DESC";
+
+    private static final String STANDARD_SEARCH =
+            "SELECT m FROM Message m WHERE LOWER(m.content) LIKE LOWER(:pattern) ESCAPE '!'%s "
+                    + "ORDER BY m.createdAt DESC, m.id DESC";
+
+    private static final String POSTGRES_COUNTS = "SELECT status, message_count FROM message_status_counts";
+
+    private static final String STANDARD_COUNTS = "SELECT m.status, COUNT(m) FROM Message m GROUP BY m.status";
+
+    /** Client transactions that hold a transaction ID, i.e. have written, and are still open. */
+    private static final String OLDEST_OPEN_WRITE_START =
+            "SELECT CAST(EXTRACT(EPOCH FROM MIN(xact_start)) * 1000 AS BIGINT) FROM pg_stat_activity "
+                    + "WHERE backend_xid IS NOT NULL AND backend_type = 'client backend' "
+                    + "AND datname = current_database()";
+
+    /** Daily partitions created by V7 and {@link #createPartitions}. */
+    private static final String PARTITION_PREFIX = "messages_p";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final String LIST_PARTITIONS =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                    + "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = 'messages'";
+
+    private static final String CREATE_PARTITION =
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF messages FOR VALUES FROM ('%s') TO ('%s')";
+
+    /** Daily tables, attached or left detached by an interrupted drop. */
+    private static final String LIST_DAILY_TABLES =
+            "SELECT c.relname FROM pg_class c WHERE c.relkind = 'r' AND starts_with(c.relname, '"
+                    + PARTITION_PREFIX + "') AND pg_table_is_visible(c.oid)";
+
+    /** No row once detached; true while a concurrent detach was interrupted half way. */
+    private static final String DETACH_PENDING =
+            "SELECT i.inhdetachpending FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                    + "WHERE c.relname = ? AND i.inhparent = 'messages'::regclass";
+
+    private static final String HAS_DEFAULT_PARTITION =
+            "SELECT partdefid <> 0 FROM pg_partitioned_table WHERE partrelid = 'messages'::regclass";
+
+    /** Bounds the wait for the parent lock a detach without CONCURRENTLY needs. */
+    private static final String DETACH_LOCK_TIMEOUT = "5s";
+
+    /**
+     * Dropping bypasses the triggers, so the detached table's rows are taken off the counts
+     * first. A DO block is one statement, so both commit together.
+     */
+    private static final String DROP_DETACHED_PARTITION =
+            "DO $$ BEGIN "
+                    + "UPDATE message_status_counts c SET message_count = c.message_count - d.removed "
+                    + "FROM (SELECT status, COUNT(*) AS removed FROM %1$s GROUP BY status) d WHERE c.status = d.status; "
+                    + "DROP TABLE %1$s; "
+                    + "END $$";
+
+    /** Deletes by full primary key, so each row is found in its own partition's index. */
+    private static final String POSTGRES_DELETE_CHUNK =
+            "DELETE FROM messages WHERE (id, created_at) IN (SELECT id, created_at FROM messages WHERE %s LIMIT ?)";
+
+    private static final String STANDARD_DELETE_CHUNK =
+            "DELETE FROM messages WHERE id IN (SELECT id FROM messages WHERE %s LIMIT ?)";
+
+    private static final String CONTENT_COMPRESSION =
+            "SELECT a.attcompression FROM pg_attribute a WHERE a.attrelid = 'messages'::regclass AND a.attname = 'content'";
+
+    private static final String PARTITION_TOAST_TARGETS =
+            "SELECT c.relname, (SELECT option_value FROM pg_options_to_table(c.reloptions) "
+                    + "WHERE option_name = 'toast_tuple_target') AS toast_tuple_target FROM pg_inherits i "
+                    + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                    + "WHERE p.relname = 'messages'";
+
+    /**
+     * The newest rows, so the sample reflects the current settings and is the same from one
+     * run to the next while nothing is written. octet_length and pg_column_size only read the
+     * value's header; length has to decompress and count the whole body.
+     */
+    private static final String SAMPLE_CONTENT_SIZES =
+            "SELECT COUNT(*), COALESCE(SUM(octet_length(content)), 0), COALESCE(SUM(pg_column_size(content)), 0), "
+                    + "COALESCE(SUM(length(content)), 0) "
+                    + "FROM (SELECT content FROM messages ORDER BY created_at DESC LIMIT ?) s";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final int copyThreshold;
+    private final int exportFetchSize;
+    private volatile String insertIgnoreSql;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    MessageRepositoryImpl(DataSource dataSource,
+                          @Value("${app.storage.copy-threshold:100}") int copyThreshold,
+                          @Value("${app.messages.export.fetch-size:1000}") int exportFetchSize) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.copyThreshold = copyThreshold;
+        this.exportFetchSize = exportFetchSize;
+    }
+
+    @Override
+    public Stream<Message> streamMessages(MessageStatus status, Date from, Date to) {
+        StringBuilder jpql = new StringBuilder("SELECT m FROM Message m WHERE 1 = 1");
+        if (status != null) {
+            jpql.append(" AND m.status = :status");
+        }
+        if (from != null) {
+            jpql.append(" AND m.createdAt >= :from");
+        }
+        if (to != null) {
+            jpql.append(" AND m.createdAt <= :to");
+        }
+        jpql.append(" ORDER BY m.createdAt DESC, m.id DESC");
+
+        TypedQuery<Message> query = entityManager.createQuery(jpql.toString(), Message.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        // Detach each row once read so the persistence context does not grow with the result
+        return query.getResultStream().peek(entityManager::detach);
+    }
+
+    @Override
+    public Integer insertIgnoringDuplicates(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        // Entities saved earlier in this transaction must reach the database before the check
+        flushPersistenceContext();
+        if (messages.size() == 1) {
+            return insertIgnoringDuplicate(messages.get(0));
+        }
+        if (copyThreshold > 0 && messages.size() >= copyThreshold && isPostgres()) {
+            return copyIgnoringDuplicates(messages);
+        }
+        return batchInsertIgnoringDuplicates(messages);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Slice<Message> searchByContent(String searchTerm, Date since, Pageable pageable) {
+        Query query;
+        if (isPostgres()) {
+            query = since == null
+                    ? entityManager.createNativeQuery(POSTGRES_SEARCH, Message.class).setParameter("searchTerm", searchTerm)
+                    : entityManager.createNativeQuery(POSTGRES_SEARCH_SINCE, Message.class);
+        } else {
+            query = entityManager.createQuery(
+                    String.format(STANDARD_SEARCH, since == null ? "" : " AND m.createdAt >= :since"), Message.class);
+        }
+        if (since != null) {
+            query.setParameter("since", since);
+        }
+        // Fetch one extra row to learn whether another page exists without counting
+        List<Message> rows = query
+                .setParameter("pattern", "%" + escapeLike(searchTerm) + "%")
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    @Override
+    public Map<MessageStatus, Long> countMessagesByStatus() {
+        flushPersistenceContext();
+        List<Object[]> rows = isPostgres()
+                ? jdbcTemplate.query(POSTGRES_COUNTS, (rs, rowNum) ->
+                        new Object[] {MessageStatus.fromCode(rs.getShort(1)), rs.getLong(2)})
+                : entityManager.createQuery(STANDARD_COUNTS, Object[].class).getResultList();
+        Map<MessageStatus, Long> counts = new EnumMap<>(MessageStatus.class);
+        for (Object[] row : rows) {
+            long count = ((Number) row[1]).longValue();
+            if (count > 0) {
+                counts.put((MessageStatus) row[0], count);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public int deleteChunk(MessageStatus status, Date createdBefore, int limit) {
+        StringBuilder filter = new StringBuilder("1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            filter.append(" AND status = ?");
+            args.add(status.getCode());
+        }
+        if (createdBefore != null) {
+            filter.append(" AND created_at < ?");
+            args.add(new Timestamp(createdBefore.getTime()));
+        }
+        args.add(limit);
+        flushPersistenceContext();
+        int deleted = jdbcTemplate.update(String.format(isPostgres() ? POSTGRES_DELETE_CHUNK : STANDARD_DELETE_CHUNK,
+                filter), args.toArray());
+        clearPersistenceContext();
+        return deleted;
+    }
+
+    @Override
+    public void truncateMessages() {
+        flushPersistenceContext();
+        jdbcTemplate.execute(isPostgres() ? "TRUNCATE messages" : "DELETE FROM messages");
+        clearPersistenceContext();
+    }
+
+    /**
+     * Statements run over JDBC, so pending entity changes must reach the database first
+     * and entities deleted underneath the persistence context must not linger in it.
+     * Outside a transaction there is no persistence context to reconcile.
+     */
+    private void flushPersistenceContext() {
+        if (entityManager.isJoinedToTransaction()) {
+            entityManager.flush();
+        }
+    }
+
+    private void clearPersistenceContext() {
+        if (entityManager.isJoinedToTransaction()) {
+            entityManager.clear();
+        }
+    }
+
+    @Override
+    public Date findOldestOpenWriteStart() {
+        if (!isPostgres()) {
+            return null;
+        }
+        Long millis = jdbcTemplate.queryForObject(OLDEST_OPEN_WRITE_START, Long.class);
+        return millis == null ? null : new Date(millis);
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        return isPostgres() && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table t JOIN pg_class c ON c.oid = t.partrelid "
+                        + "WHERE c.relname = 'messages')", Boolean.class));
+    }
+
+    @Override
+    public int createPartitions(LocalDate from, LocalDate to) {
+        List<String> existing = listPartitions();
+        // Days before the first daily partition belong to messages_legacy, which V7 attached
+        LocalDate first = existing.stream().map(MessageRepositoryImpl::partitionDay)
+                .filter(day -> day != null)
+                .min(LocalDate::compareTo)
+                .orElse(from);
+        int created = 0;
+        for (LocalDate day = first.isAfter(from) ? first : from; !day.isAfter(to); day = day.plusDays(1)) {
+            String name = PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+            if (!existing.contains(name)) {
+                jdbcTemplate.execute(String.format(CREATE_PARTITION, name, day, day.plusDays(1)));
+                logger.info("Created message partition {}", name);
+                created++;
+            }
+        }
+        return created;
+    }
+
+    @Override
+    public List<LocalDate> findExpiredPartitions(LocalDate cutoff) {
+        List<LocalDate> expired = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(LIST_DAILY_TABLES, String.class)) {
+            LocalDate day = partitionDay(name);
+            // A partition holds one day, so it has expired once the day after it is not after the cutoff
+            if (day != null && !day.plusDays(1).isAfter(cutoff)) {
+                expired.add(day);
+            }
+        }
+        expired.sort(null);
+        return expired;
+    }
+
+    @Override
+    public long dropPartition(LocalDate day) {
+        String name = PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+        List<Boolean> pending = jdbcTemplate.queryForList(DETACH_PENDING, Boolean.class, name);
+        if (!pending.isEmpty()) {
+            detachPartition(name, pending.get(0));
+        }
+        // Detached, the table takes no more writes, so the count matches what the drop removes
+        Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + name, Long.class);
+        jdbcTemplate.execute(String.format(DROP_DETACHED_PARTITION, name));
+        logger.info("Dropped expired message partition {} with {} rows", name, rows);
+        return rows != null ? rows : 0;
+    }
+
+    /**
+     * CONCURRENTLY only waits for queries on the partition itself, but PostgreSQL refuses it
+     * while a default partition exists. The plain form locks the whole table, so it gives
+     * up after {@link #DETACH_LOCK_TIMEOUT} rather than queue every query behind it.
+     */
+    private void detachPartition(String name, boolean pending) {
+        if (pending) {
+            jdbcTemplate.execute("ALTER TABLE messages DETACH PARTITION " + name + " FINALIZE");
+        } else if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(HAS_DEFAULT_PARTITION, Boolean.class))) {
+            jdbcTemplate.execute("ALTER TABLE messages DETACH PARTITION " + name + " CONCURRENTLY");
+        } else {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET lock_timeout = '" + DETACH_LOCK_TIMEOUT + "'");
+                    try {
+                        statement.execute("ALTER TABLE messages DETACH PARTITION " + name);
+                    } finally {
+                        statement.execute("RESET lock_timeout");
+                    }
+                }
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public boolean configureContentCompression(String codec, int thresholdBytes) {
+        if (!isPostgres()) {
+            return false;
+        }
+        boolean changed = false;
+        String current = jdbcTemplate.queryForObject(CONTENT_COMPRESSION, String.class);
+        // attcompression is 'p' for pglz, 'l' for lz4 and empty for the server default
+        if (current == null || current.isEmpty() || current.charAt(0) != codec.charAt(0)) {
+            jdbcTemplate.execute("ALTER TABLE messages ALTER COLUMN content SET COMPRESSION " + codec);
+            logger.info("Message content compression set to {}", codec);
+            changed = true;
+        }
+        // Storage parameters cannot be set on a partitioned table, only on its partitions
+        for (Map<String, Object> partition : jdbcTemplate.queryForList(PARTITION_TOAST_TARGETS)) {
+            Object target = partition.get("toast_tuple_target");
+            if (!String.valueOf(thresholdBytes).equals(target == null ? null : target.toString())) {
+                jdbcTemplate.execute("ALTER TABLE " + partition.get("relname")
+                        + " SET (toast_tuple_target = " + thresholdBytes + ")");
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public long[] sampleContentSizes(int rows) {
+        if (!isPostgres()) {
+            return null;
+        }
+        return jdbcTemplate.queryForObject(SAMPLE_CONTENT_SIZES,
+                (rs, rowNum) -> new long[] {rs.getLong(1), rs.getLong(2), rs.getLong(3)}, rows);
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList(LIST_PARTITIONS, String.class);
+    }
+
+    /**
+     * @return the day a daily partition covers, or null for any other partition
+     */
+    static LocalDate partitionDay(String partitionName) {
+        if (!partitionName.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partitionName.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private int insertIgnoringDuplicate(Message message) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int inserted = jdbcTemplate.update(insertIgnoreSql(), ps -> setInsertParameters(ps, message, now));
+        if (inserted > 0) {
+            stampCreated(message, now);
+        }
+        return inserted;
+    }
+
+    /**
+     * @return the number of rows inserted, or null if the driver did not report it for
+     *         every row (SUCCESS_NO_INFO, e.g. pgjdbc with reWriteBatchedInserts)
+     */
+    private Integer batchInsertIgnoringDuplicates(List<Message> messages) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int[] counts = jdbcTemplate.batchUpdate(insertIgnoreSql(), messages, messages.size(),
+                (ps, message) -> setInsertParameters(ps, message, now))[0];
+
+        int inserted = 0;
+        boolean unknown = false;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                stampCreated(messages.get(i), now);
+                inserted += counts[i];
+            } else if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                unknown = true;
+            }
+        }
+        return unknown ? null : inserted;
+    }
+
+    private static void setInsertParameters(PreparedStatement ps, Message message, Timestamp now) throws SQLException {
+        ps.setObject(1, message.getId());
+        ps.setString(2, message.getContent());
+        ps.setLong(3, message.getTimestamp());
+        ps.setShort(4, message.getStatus().getCode());
+        ps.setTimestamp(5, createdAt(message, now));
+        ps.setTimestamp(6, now);
+        ps.setInt(7, message.getRetryCount());
+        ps.setString(8, message.getErrorMessage());
+        ps.setString(9, message.getSourceTopic());
+        ps.setString(10, message.getKey());
+    }
+
+    private int copyIgnoringDuplicates(List<Message> messages) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Set<UUID> insertedIds = jdbcTemplate.execute((ConnectionCallback<Set<UUID>>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING);
+                statement.execute(TRUNCATE_STAGING);
+                copyIntoStaging(connection, messages, now);
+                Set<UUID> ids = new HashSet<>();
+                try (ResultSet moved = statement.executeQuery(MOVE_FROM_STAGING)) {
+                    while (moved.next()) {
+                        ids.add(moved.getObject(1, UUID.class));
+                    }
+                }
+                statement.execute(TRUNCATE_STAGING);
+                return ids;
+            }
+        });
+        if (insertedIds == null) {
+            return 0;
+        }
+        for (Message message : messages) {
+            if (insertedIds.contains(message.getId())) {
+                stampCreated(message, now);
+            }
+        }
+        logger.debug("Copied {} messages, {} inserted", messages.size(), insertedIds.size());
+        return insertedIds.size();
+    }
+
+    private void copyIntoStaging(Connection connection, List<Message> messages, Timestamp now) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_INTO_STAGING);
+        try {
+            StringBuilder chunk = new StringBuilder(COPY_CHUNK_CHARS + 1024);
+            for (Message message : messages) {
+                appendCsvRow(chunk, message, now);
+                if (chunk.length() >= COPY_CHUNK_CHARS) {
+                    writeChunk(copyIn, chunk);
+                }
+            }
+            writeChunk(copyIn, chunk);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    /**
+     * Set the creation and update times written to the database on an inserted message as
+     * well, so callers that keep it in memory see the stored values. Duplicates that were
+     * skipped keep theirs, since the stored row has other times.
+     */
+    private static void stampCreated(Message message, Timestamp now) {
+        message.setCreatedAt(createdAt(message, now));
+        message.setUpdatedAt(now);
+    }
+
+    /** The creation time the message carries, such as its record's time, else the insert time. */
+    private static Timestamp createdAt(Message message, Timestamp now) {
+        return message.getCreatedAt() != null ? new Timestamp(message.getCreatedAt().getTime()) : now;
+    }
+
+    private static void writeChunk(CopyIn copyIn, StringBuilder chunk) throws SQLException {
+        if (chunk.length() > 0) {
+            byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            chunk.setLength(0);
+        }
+    }
+
+    /**
+     * Append one message as a COPY CSV row in {@link #COLUMNS} order.
+     * Strings are always quoted so that an empty string stays distinct from an
+     * unquoted empty field, which COPY reads as NULL.
+     */
+    static void appendCsvRow(StringBuilder row, Message message, Timestamp now) {
+        row.append(message.getId()).append(',');
+        appendCsvText(row, message.getContent()).append(',');
+        row.append(message.getTimestamp()).append(',');
+        row.append(message.getStatus().getCode()).append(',');
+        row.append(createdAt(message, now)).append(',');
+        row.append(now).append(',');
+        row.append(message.getRetryCount()).append(',');
+        appendCsvText(row, message.getErrorMessage()).append(',');
+        appendCsvText(row, message.getSourceTopic()).append(',');
+        appendCsvText(row, message.getKey()).append('\n');
+    }
+
+    private static StringBuilder appendCsvText(StringBuilder row, String value) {
+        if (value == null) {
+            return row;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        return row.append('"');
+    }
+
+    private boolean isPostgres() {
+        return POSTGRES_INSERT_IGNORE.equals(insertIgnoreSql());
+    }
+
+    private String insertIgnoreSql() {
+        String sql = insertIgnoreSql;
+        if (sql == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+                sql = "PostgreSQL".equalsIgnoreCase(product) ? POSTGRES_INSERT_IGNORE : STANDARD_INSERT_IGNORE;
+            } catch (MetaDataAccessException e) {
+                throw new IllegalStateException("Could not determine database product", e);
+            }
+            insertIgnoreSql = sql;
+        }
+        return sql;
+    }
+}
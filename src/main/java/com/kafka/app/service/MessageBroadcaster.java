@@ -0,0 +1,307 @@
+package com.kafka.app.service;
+
+import com.kafka.app.event.MessagesConsumedEvent;
+import com.kafka.app.model.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pushes newly consumed messages to Server-Sent Events subscribers.
+ * <p>
+ * The consumer thread only offers each message to every subscriber's bounded queue and
+ * schedules a send; the network writes happen on a small sender pool. A subscriber whose
+ * queue is full is too slow to keep up and is disconnected, so it never holds back the
+ * consumer or the other subscribers. A comment line is sent every
+ * {@code app.messages.stream.heartbeat-ms} to keep idle connections open and to notice
+ * clients that went away.
+ * <p>
+ * A write to a client that stopped reading blocks, and every emitter method waits for it.
+ * So each subscriber has at most one send in flight: messages, heartbeats and the final
+ * complete all go through that one drain, and a heartbeat skips a subscriber whose send is
+ * still pending. A send pending longer than {@code app.messages.stream.write-timeout-ms}
+ * disconnects the subscriber, and the pool gets an extra thread until that write returns,
+ * so a stalled client only ever holds up itself.
+ * <p>
+ * Fed by {@link MessagesConsumedEvent}, which only carries what this instance's consumer
+ * stored; with several instances a subscriber would only see its instance's share of the
+ * partitions. So, like the recent message index, the stream only runs when
+ * {@code app.kafka.consumer.single-instance} declares this the only consumer, and clients
+ * poll {@code /changes} otherwise.
+ */
+@Component
+public class MessageBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageBroadcaster.class);
+    static final String EVENT_NAME = "message";
+
+    private final boolean enabled;
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final long writeTimeoutNanos;
+    private final Supplier<SseEmitter> emitterFactory;
+    private final ConcurrentHashMap<SseEmitter, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeat;
+    private final Counter droppedCounter;
+
+    @Autowired
+    public MessageBroadcaster(MeterRegistry meterRegistry,
+                              @Value("${app.messages.stream.queue-capacity:256}") int queueCapacity,
+                              @Value("${app.messages.stream.max-subscribers:1000}") int maxSubscribers,
+                              @Value("${app.messages.stream.timeout-ms:1800000}") long timeoutMs,
+                              @Value("${app.messages.stream.heartbeat-ms:15000}") long heartbeatMs,
+                              @Value("${app.messages.stream.sender-threads:2}") int senderThreads,
+                              @Value("${app.messages.stream.write-timeout-ms:10000}") long writeTimeoutMs,
+                              @Value("${app.kafka.consumer.single-instance:false}") boolean singleInstance) {
+        this(meterRegistry, singleInstance, queueCapacity, maxSubscribers, heartbeatMs, writeTimeoutMs,
+                Executors.newFixedThreadPool(senderThreads, daemonThreads("message-stream-sender-")),
+                () -> new SseEmitter(timeoutMs));
+        if (!singleInstance) {
+            logger.info("Message stream disabled: it needs app.kafka.consumer.single-instance=true, "
+                    + "other consumers' messages would be missing from it; clients poll /changes instead");
+        }
+    }
+
+    MessageBroadcaster(MeterRegistry meterRegistry, boolean enabled, int queueCapacity, int maxSubscribers,
+                       long heartbeatMs, long writeTimeoutMs, ExecutorService senders,
+                       Supplier<SseEmitter> emitterFactory) {
+        this.enabled = enabled;
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        this.emitterFactory = emitterFactory;
+        this.senders = senders;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(daemonThreads("message-stream-heartbeat-"));
+        this.heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        Gauge.builder("messages.stream.subscribers", subscribers, ConcurrentHashMap::size)
+                .description("Number of connected message stream subscribers")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("messages.stream.dropped")
+                .description("Subscribers disconnected because they fell too far behind or stopped reading")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Register a new subscriber.
+     *
+     * @return the emitter to return from the controller, or null if the stream is disabled
+     *         or the subscriber limit is reached
+     */
+    public SseEmitter subscribe() {
+        if (!enabled || subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        SseEmitter emitter = emitterFactory.get();
+        subscribers.put(emitter, new Subscriber(emitter, queueCapacity));
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> close(emitter));
+        emitter.onError(error -> close(emitter));
+        logger.debug("Message stream subscriber added, {} connected", subscribers.size());
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @EventListener
+    public void onMessagesConsumed(MessagesConsumedEvent event) {
+        for (Subscriber subscriber : subscribers.values()) {
+            boolean accepted = true;
+            for (Message message : event.getMessages()) {
+                if (!subscriber.queue.offer(message)) {
+                    accepted = false;
+                    break;
+                }
+            }
+            if (!accepted) {
+                logger.warn("Message stream subscriber fell {} messages behind, disconnecting", queueCapacity);
+                droppedCounter.increment();
+                close(subscriber.emitter);
+            } else {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (!subscriber.closed) {
+                Message message = subscriber.queue.poll();
+                if (message != null) {
+                    send(subscriber, SseEmitter.event()
+                            .id(message.getId().toString())
+                            .name(EVENT_NAME)
+                            .data(message, MediaType.APPLICATION_JSON));
+                } else if (subscriber.heartbeatDue.getAndSet(false)) {
+                    send(subscriber, SseEmitter.event().comment("heartbeat"));
+                } else {
+                    break;
+                }
+            }
+            if (subscriber.closed && !subscriber.completed) {
+                subscriber.completed = true;
+                subscriber.emitter.complete();
+            }
+        } catch (Exception e) {
+            logger.debug("Message stream subscriber disconnected", e);
+            subscribers.remove(subscriber.emitter);
+            subscriber.closed = true;
+            subscriber.completed = true;
+            subscriber.emitter.complete();
+        } finally {
+            releaseStalled(subscriber);
+            subscriber.scheduled.set(false);
+        }
+        // Work added after the last check but before the flag was cleared would otherwise wait
+        if (!subscriber.completed
+                && (subscriber.closed || !subscriber.queue.isEmpty() || subscriber.heartbeatDue.get())) {
+            schedule(subscriber);
+        }
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.sendStartedAt = System.nanoTime();
+        subscriber.emitter.send(event);
+        subscriber.sendStartedAt = 0;
+    }
+
+    /**
+     * Runs on the heartbeat thread, which like the consumer never calls the emitters itself.
+     */
+    private void sendHeartbeats() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.values()) {
+            if (markStalled(subscriber, now)) {
+                logger.warn("Message stream subscriber stopped reading, disconnecting");
+                droppedCounter.increment();
+                close(subscriber.emitter);
+            } else {
+                // Skipped while a send is in flight; the running drain sends it afterwards
+                subscriber.heartbeatDue.set(true);
+                schedule(subscriber);
+            }
+        }
+    }
+
+    /**
+     * Stop sending to a subscriber. The emitter is completed by its drain, after any send
+     * in flight, so the calling thread never waits on a stalled connection.
+     */
+    private void close(SseEmitter emitter) {
+        Subscriber subscriber = subscribers.remove(emitter);
+        if (subscriber != null) {
+            subscriber.closed = true;
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Flag a send pending for longer than the write timeout. The stuck write keeps its
+     * thread until it fails, so the pool gets an extra one for everyone else.
+     * 
+     * @return true if the subscriber was newly flagged
+     */
+    private synchronized boolean markStalled(Subscriber subscriber, long now) {
+        long started = subscriber.sendStartedAt;
+        if (subscriber.stalled || started == 0 || now - started <= writeTimeoutNanos) {
+            return false;
+        }
+        subscriber.stalled = true;
+        resizeSenders(1);
+        return true;
+    }
+
+    /** Called when a drain ends, so the extra thread is given back exactly once. */
+    private synchronized void releaseStalled(Subscriber subscriber) {
+        subscriber.sendStartedAt = 0;
+        if (subscriber.stalled) {
+            subscriber.stalled = false;
+            resizeSenders(-1);
+        }
+    }
+
+    private void resizeSenders(int delta) {
+        if (senders instanceof ThreadPoolExecutor pool) {
+            // The maximum has to stay at or above the core size at every step
+            if (delta > 0) {
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+            } else {
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        subscribers.keySet().forEach(SseEmitter::complete);
+        subscribers.clear();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Queue<Message> queue;
+        /** Set while a drain is queued or running; at most one runs per subscriber. */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        /** Set while the pool has an extra thread for this subscriber's stuck send; guarded by the broadcaster. */
+        private boolean stalled;
+        /** System.nanoTime() when the send in flight began, 0 if none is. */
+        private volatile long sendStartedAt;
+        private volatile boolean closed;
+        /** Only touched by the drain. */
+        private boolean completed;
+
+        private Subscriber(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.kafka.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kafka.app.model.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache for single-message lookups by ID.
+ * <p>
+ * Entries expire {@code app.cache.messages.ttl-ms} after they are loaded, and beyond
+ * {@code max-size} Caffeine's size-based eviction (W-TinyLFU, weighing how often and how
+ * recently an entry is used) drops the entries it judges least likely to be read again.
+ * Lookups that find nothing are not cached. Hit, miss, eviction and size metrics are published under the cache name
+ * {@code messages}.
+ * <p>
+ * Invalidation happens immediately and again once the surrounding transaction completes,
+ * so a concurrent read cannot re-cache the old row while the change is uncommitted.
+ */
+@Component
+public class MessageByIdCache {
+
+    static final String CACHE_NAME = "messages";
+
+    private final Cache<UUID, Message> cache;
+
+    public MessageByIdCache(MeterRegistry meterRegistry,
+                            @Value("${app.cache.messages.enabled:true}") boolean enabled,
+                            @Value("${app.cache.messages.max-size:10000}") long maxSize,
+                            @Value("${app.cache.messages.ttl-ms:300000}") long ttlMs) {
+        this.cache = enabled ? Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build() : null;
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        }
+    }
+
+    /**
+     * Return the cached message, loading and caching it on a miss.
+     *
+     * @param id the message ID
+     * @param loader loads the message, returning null if it does not exist
+     * @return the message, or null if it does not exist
+     */
+    public Message get(UUID id, Function<UUID, Message> loader) {
+        return cache == null ? loader.apply(id) : cache.get(id, loader);
+    }
+
+    public void invalidate(UUID id) {
+        if (cache != null) {
+            cache.invalidate(id);
+            afterCompletion(() -> cache.invalidate(id));
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+            afterCompletion(cache::invalidateAll);
+        }
+    }
+
+    private static void afterCompletion(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+}
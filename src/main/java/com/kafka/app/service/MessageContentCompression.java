@@ -0,0 +1,130 @@
+package com.kafka.app.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compression of large message bodies, done by PostgreSQL's TOAST rather than in the
+ * application so content stays searchable by the trigram index and is only decompressed
+ * when a query actually reads it.
+ * <p>
+ * When enabled, content is compressed with {@code app.storage.content-compression.codec}
+ * once a row exceeds {@code threshold-bytes}; smaller rows stay inline and uncompressed.
+ * The settings are applied at startup and re-applied periodically so partitions created
+ * later pick them up. With the defaults nothing changes: compression is off, and the
+ * threshold is PostgreSQL's own, so only enabling it (lz4 instead of pglz) or lowering the
+ * threshold makes a difference.
+ * <p>
+ * Whether it is worth it is measured rather than assumed: while enabled, every
+ * {@code sample-interval-ms} the newest {@code sample-rows} messages are read back in full.
+ * Their uncompressed over stored size is published as {@code messages.content.compression.ratio}
+ * and the time the read took as the {@code messages.content.sample.read} timer, so the two
+ * can be compared across settings; enabled with pglz and the default threshold gives
+ * PostgreSQL's own behaviour as the baseline. Nothing is sampled while disabled.
+ * <p>
+ * The timer is the latency of the whole read as the application sees it: the query, the
+ * I/O of the rows and their TOAST chunks and the decompression together. It is not the CPU
+ * spent decompressing, which PostgreSQL does not report separately; a codec that
+ * decompresses faster shows up only as far as it shortens that read.
+ */
+@Component
+public class MessageContentCompression {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageContentCompression.class);
+    private static final Set<String> CODECS = Set.of("lz4", "pglz");
+
+    private final MessageStorageService messageStorageService;
+    private final boolean enabled;
+    private final String codec;
+    private final int thresholdBytes;
+    private final int sampleRows;
+    private final Timer sampleReadTimer;
+
+    private volatile long sampledRawBytes;
+    private volatile long sampledStoredBytes;
+
+    public MessageContentCompression(MessageStorageService messageStorageService, MeterRegistry meterRegistry,
+                                     @Value("${app.storage.content-compression.enabled:false}") boolean enabled,
+                                     @Value("${app.storage.content-compression.codec:lz4}") String codec,
+                                     @Value("${app.storage.content-compression.threshold-bytes:2032}") int thresholdBytes,
+                                     @Value("${app.storage.content-compression.sample-rows:1000}") int sampleRows) {
+        if (!CODECS.contains(codec)) {
+            throw new IllegalArgumentException("Unsupported content compression codec: " + codec);
+        }
+        if (thresholdBytes < 128 || thresholdBytes > 8160) {
+            throw new IllegalArgumentException("Content compression threshold must be between 128 and 8160 bytes");
+        }
+        if (sampleRows < 1) {
+            throw new IllegalArgumentException("Content compression sample must have at least 1 row");
+        }
+        this.messageStorageService = messageStorageService;
+        this.enabled = enabled;
+        this.codec = codec;
+        this.thresholdBytes = thresholdBytes;
+        this.sampleRows = sampleRows;
+        this.sampleReadTimer = Timer.builder("messages.content.sample.read")
+                .description("Latency of reading the sampled message content in full: query, I/O and "
+                        + "decompression together, not decompression CPU alone")
+                .register(meterRegistry);
+        Gauge.builder("messages.content.compression.ratio", this, MessageContentCompression::getCompressionRatio)
+                .description("Uncompressed over stored size of sampled message content")
+                .register(meterRegistry);
+        Gauge.builder("messages.content.sampled.bytes", this, c -> c.sampledRawBytes)
+                .description("Size of sampled message content")
+                .tag("form", "raw")
+                .register(meterRegistry);
+        Gauge.builder("messages.content.sampled.bytes", this, c -> c.sampledStoredBytes)
+                .description("Size of sampled message content")
+                .tag("form", "stored")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${app.storage.content-compression.sample-interval-ms:600000}",
+            initialDelayString = "${app.storage.content-compression.sample-interval-ms:600000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (messageStorageService.configureContentCompression(codec, thresholdBytes)) {
+                logger.info("Applied {} content compression above {} bytes", codec, thresholdBytes);
+            }
+            long start = System.nanoTime();
+            long[] sizes = messageStorageService.sampleContentSizes(sampleRows);
+            if (sizes != null) {
+                long elapsed = System.nanoTime() - start;
+                sampleReadTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                sampledRawBytes = sizes[1];
+                sampledStoredBytes = sizes[2];
+                logger.debug("Sampled {} messages: {} bytes raw, {} bytes stored, read in {} ms",
+                        sizes[0], sizes[1], sizes[2], TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        } catch (Exception e) {
+            logger.warn("Message content compression refresh failed; retrying on the next run", e);
+        }
+    }
+
+    /**
+     * @return sampled uncompressed size over stored size, or 1 before anything was sampled
+     */
+    public double getCompressionRatio() {
+        long stored = sampledStoredBytes;
+        return stored == 0 ? 1.0 : (double) sampledRawBytes / stored;
+    }
+}
@@ -0,0 +1,122 @@
+package com.kafka.app.service;
+
+import com.kafka.app.model.MessageStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-memory per-status message counts, loaded once and then adjusted by the deltas of
+ * committed writes, so reading a count costs no query.
+ * <p>
+ * A write whose effect on the counts is not known (a clear, a delete, an update that may
+ * change the status) drops the snapshot and the next read reloads it. A reload that ran
+ * while any write was in flight is returned but not kept, because the write may or may
+ * not be part of it. The snapshot is also reloaded every {@code refreshMs} to pick up
+ * writes made by other instances.
+ * <p>
+ * Deltas are applied when the writing transaction completes, so the counts never include
+ * uncommitted writes; a caller that must see its own writes adds them itself.
+ */
+final class MessageCounters {
+
+    private final Supplier<Map<MessageStatus, Long>> loader;
+    private final LongSupplier clock;
+    private final long refreshMs;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicLong completedWrites = new AtomicLong();
+
+    MessageCounters(Supplier<Map<MessageStatus, Long>> loader, long refreshMs) {
+        this(loader, refreshMs, System::currentTimeMillis);
+    }
+
+    MessageCounters(Supplier<Map<MessageStatus, Long>> loader, long refreshMs, LongSupplier clock) {
+        this.loader = loader;
+        this.refreshMs = refreshMs;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the number of messages per status; statuses without messages may be absent
+     */
+    Map<MessageStatus, Long> get() {
+        Snapshot current = snapshot.get();
+        long now = clock.getAsLong();
+        if (current != null && now - current.loadedAt < refreshMs) {
+            return current.counts;
+        }
+        long completedBefore = completedWrites.get();
+        boolean quietBefore = pendingWrites.get() == 0;
+        Map<MessageStatus, Long> loaded = Map.copyOf(loader.get());
+        if (quietBefore && pendingWrites.get() == 0 && completedWrites.get() == completedBefore) {
+            snapshot.compareAndSet(current, new Snapshot(loaded, now));
+        }
+        return loaded;
+    }
+
+    /**
+     * @return the counts if a snapshot is loaded and still fresh, else null; never loads
+     */
+    Map<MessageStatus, Long> peek() {
+        Snapshot current = snapshot.get();
+        return current != null && clock.getAsLong() - current.loadedAt < refreshMs ? current.counts : null;
+    }
+
+    /**
+     * Record that a write has started; must be paired with {@link #writeCompleted}.
+     */
+    void writeStarted() {
+        pendingWrites.incrementAndGet();
+    }
+
+    /**
+     * @param delta the change per status, or null if unknown
+     * @param committed false if the write rolled back
+     */
+    void writeCompleted(Map<MessageStatus, Long> delta, boolean committed) {
+        try {
+            if (committed) {
+                if (delta == null) {
+                    snapshot.set(null);
+                } else {
+                    snapshot.updateAndGet(current -> current == null ? null : current.plus(delta));
+                }
+                completedWrites.incrementAndGet();
+            }
+        } finally {
+            pendingWrites.decrementAndGet();
+        }
+    }
+
+    /**
+     * Drop the snapshot after a write that was not tracked with {@link #writeStarted}.
+     */
+    void invalidate() {
+        snapshot.set(null);
+        completedWrites.incrementAndGet();
+    }
+
+    private static final class Snapshot {
+        private final Map<MessageStatus, Long> counts;
+        private final long loadedAt;
+
+        private Snapshot(Map<MessageStatus, Long> counts, long loadedAt) {
+            this.counts = counts;
+            this.loadedAt = loadedAt;
+        }
+
+        private Snapshot plus(Map<MessageStatus, Long> delta) {
+            Map<MessageStatus, Long> adjusted = new HashMap<>(counts);
+            delta.forEach((status, change) -> adjusted.merge(status, change, Long::sum));
+            adjusted.values().removeIf(count -> count <= 0);
+            return new Snapshot(Map.copyOf(adjusted), loadedAt);
+        }
+    }
+}
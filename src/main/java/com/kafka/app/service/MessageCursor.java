@@ -0,0 +1,108 @@
+package com.kafka.app.service;
+
+import com.kafka.app.dto.MessageSummary;
+import com.kafka.app.model.Message;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Position in a (time, id) ordering, used by keyset pagination over createdAt and by
+ * delta sync over updatedAt. Clients only see the opaque URL-safe string produced by
+ * {@link #encode()}.
+ */
+public final class MessageCursor {
+
+    private static final char SEPARATOR = '|';
+
+    /** Sorts before every message ID, so a cursor with it includes every row at its time. */
+    public static final UUID MIN_ID = new UUID(0L, 0L);
+
+    private final Instant time;
+    private final UUID id;
+
+    private MessageCursor(Instant time, UUID id) {
+        this.time = time;
+        this.id = id;
+    }
+
+    /**
+     * Build the cursor that points just past the given message in createdAt order.
+     * 
+     * @param message the last message of a page
+     * @return cursor for the following page
+     */
+    public static MessageCursor after(Message message) {
+        return of(message.getCreatedAt(), message.getId());
+    }
+
+    /**
+     * @param summary the last summary of a page
+     * @return cursor for the following page
+     * @see #after(Message)
+     */
+    public static MessageCursor after(MessageSummary summary) {
+        return of(summary.getCreatedAt(), summary.getId());
+    }
+
+    /**
+     * Build the cursor that points just past the given message in updatedAt order.
+     * 
+     * @param message the last change returned
+     * @return cursor for the following changes
+     */
+    public static MessageCursor afterUpdate(Message message) {
+        return of(message.getUpdatedAt(), message.getId());
+    }
+
+    /**
+     * @param time the position's time; a java.sql.Timestamp keeps its sub-millisecond part
+     * @param id the position's ID; {@link #MIN_ID} sorts before every ID
+     * @return the cursor at that position
+     */
+    public static MessageCursor of(Date time, UUID id) {
+        return new MessageCursor(time.toInstant(), id);
+    }
+
+    /**
+     * Parse a cursor previously returned by {@link #encode()}.
+     * 
+     * @param value the opaque cursor string
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static MessageCursor decode(String value) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            UUID id = Message.parseId(decoded.substring(separator + 1));
+            if (id == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new MessageCursor(Instant.parse(decoded.substring(0, separator)), id);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = time.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Date getTime() {
+        return Timestamp.from(time);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+}
@@ -0,0 +1,103 @@
+package com.kafka.app.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * Keeps the daily partitions of the messages table ahead of time and applies retention.
+ * <p>
+ * Runs at startup and on {@code app.messages.partitions.maintenance-cron}. On a partitioned
+ * table (PostgreSQL) partitions are created {@code precreate-days} ahead so inserts never
+ * fall into the default partition. With {@code app.messages.retention.days} above zero,
+ * partitions older than that are dropped whole, which frees their space at once and leaves
+ * nothing for vacuum; whatever is left, such as expired rows in the default partition or
+ * every expired row of an unpartitioned table, is deleted in chunks.
+ */
+@Component
+public class MessagePartitionMaintainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessagePartitionMaintainer.class);
+
+    private final MessageStorageService messageStorageService;
+    private final int precreateDays;
+    private final int retentionDays;
+    private final Clock clock;
+    private final Counter droppedCounter;
+    private volatile Boolean partitioned;
+
+    @Autowired
+    public MessagePartitionMaintainer(MessageStorageService messageStorageService, MeterRegistry meterRegistry,
+                                      @Value("${app.messages.partitions.precreate-days:7}") int precreateDays,
+                                      @Value("${app.messages.retention.days:0}") int retentionDays) {
+        this(messageStorageService, meterRegistry, precreateDays, retentionDays, Clock.systemDefaultZone());
+    }
+
+    MessagePartitionMaintainer(MessageStorageService messageStorageService, MeterRegistry meterRegistry,
+                               int precreateDays, int retentionDays, Clock clock) {
+        this.messageStorageService = messageStorageService;
+        this.precreateDays = precreateDays;
+        this.retentionDays = retentionDays;
+        this.clock = clock;
+        this.droppedCounter = Counter.builder("messages.retention.dropped")
+                .description("Messages removed by dropping expired partitions")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${app.messages.partitions.maintenance-cron:0 5 * * * *}")
+    public void maintain() {
+        try {
+            // Partition bounds are local dates, matching the JVM-local created_at timestamps
+            LocalDate today = LocalDate.now(clock);
+            boolean partitioned = isPartitioned();
+            if (partitioned) {
+                int created = messageStorageService.createPartitions(today, today.plusDays(precreateDays));
+                if (created > 0) {
+                    logger.info("Created {} message partitions up to {}", created, today.plusDays(precreateDays));
+                }
+            }
+            if (retentionDays > 0) {
+                LocalDate cutoff = today.minusDays(retentionDays);
+                if (partitioned) {
+                    long dropped = messageStorageService.dropPartitionsBefore(cutoff);
+                    if (dropped > 0) {
+                        droppedCounter.increment(dropped);
+                        logger.info("Retention dropped {} messages older than {} days", dropped, retentionDays);
+                    }
+                }
+                messageStorageService.deleteMessagesCreatedBefore(
+                        Date.from(cutoff.atStartOfDay(clock.getZone()).toInstant()));
+            }
+        } catch (Exception e) {
+            logger.error("Message partition maintenance failed; retrying on the next run", e);
+        }
+    }
+
+    private boolean isPartitioned() {
+        Boolean known = partitioned;
+        if (known == null) {
+            known = messageStorageService.isPartitioned();
+            partitioned = known;
+            if (!known) {
+                logger.info("Messages table is not partitioned, retention deletes rows in chunks");
+            }
+        }
+        return known;
+    }
+}
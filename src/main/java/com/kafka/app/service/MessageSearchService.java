@@ -0,0 +1,50 @@
+package com.kafka.app.service;
+
+import com.kafka.app.model.Message;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Routes content searches to the in-memory {@link RecentMessageIndex} when it covers the
+ * requested time range, and to the database otherwise. The index is only enabled when this
+ * instance is the only consumer, so it holds every stored message of its window.
+ * <p>
+ * Both paths return the same page for the same query: case-insensitive substring matches,
+ * newest first by creation time. Searches without a lower time bound always go to the
+ * database, which ranks them by similarity on PostgreSQL.
+ */
+@Service
+@RequiredArgsConstructor
+public class MessageSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageSearchService.class);
+
+    private final RecentMessageIndex recentMessageIndex;
+    private final MessageStorageService messageStorageService;
+
+    /**
+     * Search messages by content.
+     * 
+     * @param searchTerm the search term
+     * @param since the inclusive lower time bound, or null for all messages
+     * @param page the page number (0-indexed), with {@code page * size} within int range
+     * @param size the page size
+     * @return one page of matching messages
+     */
+    public List<Message> search(String searchTerm, Date since, int page, int size) {
+        if (since != null) {
+            Optional<List<Message>> recent = recentMessageIndex.search(searchTerm, since.getTime(), page * size, size);
+            if (recent.isPresent()) {
+                logger.debug("Answered search for '{}' from the recent message index", searchTerm);
+                return recent.get();
+            }
+        }
+        return messageStorageService.searchMessages(searchTerm, since, page, size).getContent();
+    }
+}
@@ -1,33 +1,80 @@
 package com.kafka.app.service;
 
+import com.kafka.app.dto.MessageSummary;
+import com.kafka.app.event.MessagesRemovedEvent;
+import com.kafka.app.event.MessagesUpdatedEvent;
 import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
 import com.kafka.app.repository.MessageRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service for managing message storage operations.
  * Uses Spring Data JPA to persist messages to the database.
  */
 @Service
-@RequiredArgsConstructor
 @Transactional
 public class MessageStorageService {
     
     private static final Logger logger = LoggerFactory.getLogger(MessageStorageService.class);
     
     private final MessageRepository messageRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MessageByIdCache messageCache;
+    private final MessageCounters counters;
+    private final MeterRegistry meterRegistry;
+    private final int deleteChunkSize;
+
+    /** Distinguishes versions of this process from those of a previous run. */
+    private final String versionPrefix = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = System.currentTimeMillis();
+    /** Total count and latest update time as of the last shared version check. */
+    private volatile String sharedState;
+
+    @Autowired
+    public MessageStorageService(MessageRepository messageRepository, ApplicationEventPublisher eventPublisher,
+                                 MessageByIdCache messageCache, MeterRegistry meterRegistry,
+                                 @Value("${app.messages.counts.refresh-ms:60000}") long countsRefreshMs,
+                                 @Value("${app.messages.delete.chunk-size:5000}") int deleteChunkSize) {
+        this.messageRepository = messageRepository;
+        this.eventPublisher = eventPublisher;
+        this.messageCache = messageCache;
+        this.meterRegistry = meterRegistry;
+        this.counters = new MessageCounters(messageRepository::countMessagesByStatus, countsRefreshMs);
+        this.deleteChunkSize = deleteChunkSize;
+    }
 
     /**
      * Add a message to the database.
@@ -37,6 +84,7 @@ public class MessageStorageService {
     public void addMessage(Message message) {
         try {
             messageRepository.save(message);
+            changed(Map.of(message.getStatus(), 1L));
             logger.debug("Message saved successfully: {}", message.getId());
         } catch (Exception e) {
             logger.error("Error saving message: {}", message.getId(), e);
@@ -44,6 +92,56 @@ public class MessageStorageService {
         }
     }
 
+    /**
+     * Add a batch of messages to the database in a single transaction.
+     * Inserts are grouped into JDBC batches of hibernate.jdbc.batch_size.
+     * 
+     * @param messages the messages to add
+     */
+    public void addMessages(List<Message> messages) {
+        try {
+            messageRepository.saveAll(messages);
+            changed(countByStatus(messages));
+            logger.debug("Batch of {} messages saved successfully", messages.size());
+        } catch (Exception e) {
+            logger.error("Error saving batch of {} messages", messages.size(), e);
+            throw new RuntimeException("Failed to save messages", e);
+        }
+    }
+
+    /**
+     * Add a message unless a message with the same ID is already stored.
+     * 
+     * @param message the message to add
+     * @return true if the message was inserted, false if it was a duplicate
+     */
+    public boolean addMessageIfAbsent(Message message) {
+        Integer inserted = addMessagesIfAbsent(List.of(message));
+        return inserted != null && inserted > 0;
+    }
+
+    /**
+     * Add a batch of messages in a single transaction, skipping IDs that already exist.
+     * Re-delivered Kafka records therefore become no-ops instead of duplicate rows.
+     * 
+     * @param messages the messages to add
+     * @return the number of messages actually inserted, or null if the driver did not report it
+     */
+    public Integer addMessagesIfAbsent(List<Message> messages) {
+        try {
+            Integer inserted = messageRepository.insertIgnoringDuplicates(messages);
+            if (inserted == null || inserted > 0) {
+                // With duplicates skipped it is unknown which statuses were inserted
+                changed(inserted != null && inserted == messages.size() ? countByStatus(messages) : null);
+            }
+            logger.debug("Batch of {} messages saved, {} inserted", messages.size(), inserted != null ? inserted : "unknown");
+            return inserted;
+        } catch (Exception e) {
+            logger.error("Error saving batch of {} messages", messages.size(), e);
+            throw new RuntimeException("Failed to save messages", e);
+        }
+    }
+
     /**
      * Retrieve all messages from the database.
      * 
@@ -82,22 +180,143 @@ public class MessageStorageService {
     }
 
     /**
-     * Get a message by ID.
+     * Retrieve one keyset page of messages, newest first by (createdAt, id).
+     * Unlike {@link #getAllMessagesPaginated(int, int)} this issues no count query and
+     * seeks straight to the cursor, so the cost does not grow with page depth.
+     * 
+     * @param after position of the last message already seen, or null for the first page
+     * @param limit the maximum number of messages to return
+     * @return the page; use {@link MessageCursor#after(Message)} on its last element for the next one
+     */
+    @Transactional(readOnly = true)
+    public Slice<Message> getMessagesAfter(MessageCursor after, int limit) {
+        try {
+            Pageable pageable = PageRequest.ofSize(limit);
+            Slice<Message> messages = after == null
+                    ? messageRepository.findFirstKeysetPage(pageable)
+                    : messageRepository.findKeysetPageAfter(after.getTime(), after.getId(), pageable);
+            logger.debug("Retrieved keyset page with {} messages", messages.getNumberOfElements());
+            return messages;
+        } catch (Exception e) {
+            logger.error("Error retrieving keyset page of messages", e);
+            throw new RuntimeException("Failed to retrieve messages", e);
+        }
+    }
+
+    /**
+     * Summary variant of {@link #getMessagesAfter(MessageCursor, int)}.
+     * 
+     * @param after position of the last message already seen, or null for the first page
+     * @param limit the maximum number of messages to return
+     * @param previewLength the number of content characters to include
+     * @return the page; use {@link MessageCursor#after(MessageSummary)} on its last element for the next one
+     */
+    @Transactional(readOnly = true)
+    public Slice<MessageSummary> getMessageSummariesAfter(MessageCursor after, int limit, int previewLength) {
+        try {
+            Pageable pageable = PageRequest.ofSize(limit);
+            Slice<MessageSummary> summaries = after == null
+                    ? messageRepository.findFirstKeysetSummaryPage(previewLength + 1, pageable)
+                    : messageRepository.findKeysetSummaryPageAfter(after.getTime(), after.getId(), previewLength + 1, pageable);
+            limitContent(summaries.getContent(), previewLength);
+            logger.debug("Retrieved keyset page with {} message summaries", summaries.getNumberOfElements());
+            return summaries;
+        } catch (Exception e) {
+            logger.error("Error retrieving keyset page of message summaries", e);
+            throw new RuntimeException("Failed to retrieve messages", e);
+        }
+    }
+
+    /**
+     * Exclusive upper bound for a changes scan. Rows are stamped inside their writing
+     * transaction but only become visible when it commits, so the bound stays behind both
+     * the clock and, on PostgreSQL, the start of the oldest transaction still writing, each
+     * less the settle time to cover clock skew between the application and the database.
+     * Elsewhere a transaction that runs longer than the settle time can be skipped.
+     * Not read-only: open transactions are only visible on the primary, not on a replica.
+     * 
+     * @param settleMs how far behind the bound is held
+     * @return the time up to which every change is visible
+     */
+    public Date getChangesBound(long settleMs) {
+        try {
+            long bound = System.currentTimeMillis();
+            Date oldestWrite = messageRepository.findOldestOpenWriteStart();
+            if (oldestWrite != null) {
+                bound = Math.min(bound, oldestWrite.getTime());
+            }
+            return new Date(bound - settleMs);
+        } catch (Exception e) {
+            logger.error("Error finding the changes bound", e);
+            throw new RuntimeException("Failed to find the changes bound", e);
+        }
+    }
+
+    /**
+     * Get messages inserted or updated after the given position, oldest change first.
+     * Deletions are not reported. Not read-only, so it reads the primary: a lagging replica
+     * would hide changes the watermark then moves past.
+     * 
+     * @param since position of the last change the caller has seen
+     * @param until exclusive upper bound on updatedAt
+     * @param limit the maximum number of changes to return
+     * @return the changes, with hasNext set if more are waiting
+     */
+    public Slice<Message> getChangesSince(MessageCursor since, Date until, int limit) {
+        try {
+            Slice<Message> changes = messageRepository.findChangedAfter(
+                    since.getTime(), since.getId(), until, PageRequest.ofSize(limit));
+            logger.debug("Retrieved {} changed messages", changes.getNumberOfElements());
+            return changes;
+        } catch (Exception e) {
+            logger.error("Error retrieving changed messages", e);
+            throw new RuntimeException("Failed to retrieve changed messages", e);
+        }
+    }
+
+    /**
+     * Hand every matching message to the sink, newest first, without materializing the result.
+     * The read-only transaction and the database cursor stay open until the last row is consumed.
+     * 
+     * @param status the status to filter by, or null for all
+     * @param from the inclusive lower creation time bound, or null
+     * @param to the inclusive upper creation time bound, or null
+     * @param sink receives each message as it is read
+     * @return the number of messages exported
+     */
+    @Transactional(readOnly = true)
+    public long exportMessages(MessageStatus status, Date from, Date to, Consumer<Message> sink) {
+        try (Stream<Message> messages = messageRepository.streamMessages(status, from, to)) {
+            long[] exported = {0};
+            messages.forEach(message -> {
+                sink.accept(message);
+                exported[0]++;
+            });
+            logger.info("Exported {} messages", exported[0]);
+            return exported[0];
+        } catch (Exception e) {
+            logger.error("Error exporting messages", e);
+            throw new RuntimeException("Failed to export messages", e);
+        }
+    }
+
+    /**
+     * Get a message by ID, served from {@link MessageByIdCache} when possible.
+     * Not read-only, so a miss loads from the primary: a copy read from a lagging replica
+     * right after a write would be cached for the whole TTL.
      * 
      * @param id the message ID
      * @return the message or null if not found
      */
-    @Transactional(readOnly = true)
-    public Message getMessageById(String id) {
+    public Message getMessageById(UUID id) {
         try {
-            Optional<Message> message = messageRepository.findById(id);
-            if (message.isPresent()) {
+            Message message = messageCache.get(id, key -> messageRepository.findById(key).orElse(null));
+            if (message != null) {
                 logger.debug("Message found: {}", id);
-                return message.get();
             } else {
                 logger.debug("Message not found: {}", id);
-                return null;
             }
+            return message;
         } catch (Exception e) {
             logger.error("Error retrieving message: {}", id, e);
             throw new RuntimeException("Failed to retrieve message", e);
@@ -105,14 +324,16 @@ public class MessageStorageService {
     }
 
     /**
-     * Get count of all messages.
+     * Get count of all messages from the in-memory counters; see {@link MessageCounters}.
+     * Joins a surrounding transaction and then includes its uncommitted writes; on its own
+     * it opens none, so a fresh snapshot costs no connection and a reload reads the primary.
      * 
      * @return the total number of messages
      */
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public int getMessageCount() {
         try {
-            long count = messageRepository.count();
+            long count = totalOf(currentCounts());
             logger.debug("Total message count: {}", count);
             return (int) count;
         } catch (Exception e) {
@@ -122,15 +343,15 @@ public class MessageStorageService {
     }
 
     /**
-     * Get count of messages by status.
+     * Get count of messages by status from the in-memory counters, like {@link #getMessageCount}.
      * 
      * @param status the status to count
      * @return the number of messages with the given status
      */
-    @Transactional(readOnly = true)
-    public long getMessageCountByStatus(String status) {
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long getMessageCountByStatus(MessageStatus status) {
         try {
-            long count = messageRepository.countByStatus(status);
+            long count = currentCounts().getOrDefault(status, 0L);
             logger.debug("Message count for status '{}': {}", status, count);
             return count;
         } catch (Exception e) {
@@ -140,12 +361,17 @@ public class MessageStorageService {
     }
 
     /**
-     * Clear all messages from the database.
+     * Clear all messages from the database with a single TRUNCATE (PostgreSQL) or
+     * set-based DELETE, without loading any entity.
      */
     public void clearMessages() {
         try {
-            long deletedCount = messageRepository.count();
-            messageRepository.deleteAll();
+            long deletedCount = totalOf(currentCounts());
+            messageRepository.truncateMessages();
+            deletedCounter("clear").increment(deletedCount);
+            messageCache.invalidateAll();
+            changed(null);
+            eventPublisher.publishEvent(MessagesRemovedEvent.all());
             logger.info("All messages cleared. Total deleted: {}", deletedCount);
         } catch (Exception e) {
             logger.error("Error clearing messages", e);
@@ -153,6 +379,67 @@ public class MessageStorageService {
         }
     }
 
+    /**
+     * Delete every message with the given status in chunks of {@code app.messages.delete.chunk-size},
+     * each committed on its own, so locks are held briefly and memory use stays flat.
+     * 
+     * @param status the status to delete
+     * @return the number of messages deleted
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long deleteMessagesByStatus(MessageStatus status) {
+        return deleteInChunks(status, null, "status");
+    }
+
+    /**
+     * Delete every message created before the cutoff in chunks, each committed on its own.
+     * 
+     * @param cutoff the exclusive upper creation time bound
+     * @return the number of messages deleted
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long deleteMessagesCreatedBefore(Date cutoff) {
+        return deleteInChunks(null, cutoff, "retention");
+    }
+
+    /**
+     * Run chunked deletes until a chunk comes back short. Progress is visible as the
+     * {@code messages.deleted} counter, incremented after every chunk.
+     */
+    private long deleteInChunks(MessageStatus status, Date createdBefore, String operation) {
+        Counter deleted = deletedCounter(operation);
+        long total = 0;
+        try {
+            int chunk;
+            do {
+                chunk = messageRepository.deleteChunk(status, createdBefore, deleteChunkSize);
+                total += chunk;
+                deleted.increment(chunk);
+            } while (chunk >= deleteChunkSize);
+            logger.info("Deleted {} messages ({})", total, operation);
+            return total;
+        } catch (Exception e) {
+            logger.error("Error deleting messages ({}) after {} deleted", operation, total, e);
+            throw new RuntimeException("Failed to delete messages", e);
+        } finally {
+            if (total > 0) {
+                messageCache.invalidateAll();
+                changed(null);
+                eventPublisher.publishEvent(MessagesRemovedEvent.matching(message ->
+                        (status == null || status == message.getStatus())
+                                && (createdBefore == null || message.getCreatedAt() == null
+                                        || message.getCreatedAt().before(createdBefore))));
+            }
+        }
+    }
+
+    private Counter deletedCounter(String operation) {
+        return Counter.builder("messages.deleted")
+                .description("Messages removed by bulk deletes")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
     /**
      * Get all messages with a specific status.
      * 
@@ -160,7 +447,7 @@ public class MessageStorageService {
      * @return list of messages with the given status
      */
     @Transactional(readOnly = true)
-    public List<Message> getMessagesByStatus(String status) {
+    public List<Message> getMessagesByStatus(MessageStatus status) {
         try {
             List<Message> messages = messageRepository.findByStatus(status);
             logger.debug("Retrieved {} messages with status '{}'", messages.size(), status);
@@ -171,6 +458,47 @@ public class MessageStorageService {
         }
     }
 
+    /**
+     * Get the newest messages with a specific status.
+     * 
+     * @param status the status to filter by
+     * @param limit the maximum number of messages to return
+     * @return the newest messages with the given status, newest first; hasNext is set if more match
+     */
+    @Transactional(readOnly = true)
+    public Slice<Message> getMessagesByStatus(MessageStatus status, int limit) {
+        try {
+            Slice<Message> messages = messageRepository.findNewestByStatus(status, PageRequest.ofSize(limit));
+            logger.debug("Retrieved {} messages with status '{}'", messages.getNumberOfElements(), status);
+            return messages;
+        } catch (Exception e) {
+            logger.error("Error retrieving messages by status: {}", status, e);
+            throw new RuntimeException("Failed to retrieve messages by status", e);
+        }
+    }
+
+    /**
+     * Summary variant of {@link #getMessagesByStatus(MessageStatus, int)}.
+     * 
+     * @param status the status to filter by
+     * @param limit the maximum number of summaries to return
+     * @param previewLength the number of content characters to include
+     * @return summaries of the newest messages with the given status
+     */
+    @Transactional(readOnly = true)
+    public Slice<MessageSummary> getMessageSummariesByStatus(MessageStatus status, int limit, int previewLength) {
+        try {
+            Slice<MessageSummary> summaries = messageRepository.findNewestSummariesByStatus(
+                    status, previewLength + 1, PageRequest.ofSize(limit));
+            limitContent(summaries.getContent(), previewLength);
+            logger.debug("Retrieved {} message summaries with status '{}'", summaries.getNumberOfElements(), status);
+            return summaries;
+        } catch (Exception e) {
+            logger.error("Error retrieving message summaries by status: {}", status, e);
+            throw new RuntimeException("Failed to retrieve messages by status", e);
+        }
+    }
+
     /**
      * Get messages within a date range.
      * 
@@ -191,16 +519,78 @@ public class MessageStorageService {
     }
 
     /**
-     * Search messages by content.
+     * Get the newest messages within a date range.
+     * 
+     * @param startDate the start date
+     * @param endDate the end date
+     * @param limit the maximum number of messages to return
+     * @return the newest messages within the date range, newest first; hasNext is set if more match
+     */
+    @Transactional(readOnly = true)
+    public Slice<Message> getMessagesByDateRange(Date startDate, Date endDate, int limit) {
+        try {
+            Slice<Message> messages = messageRepository.findNewestByDateRange(
+                    startDate, endDate, PageRequest.ofSize(limit));
+            logger.debug("Retrieved {} messages between {} and {}", messages.getNumberOfElements(), startDate, endDate);
+            return messages;
+        } catch (Exception e) {
+            logger.error("Error retrieving messages by date range", e);
+            throw new RuntimeException("Failed to retrieve messages by date range", e);
+        }
+    }
+
+    /**
+     * Summary variant of {@link #getMessagesByDateRange(Date, Date, int)}.
+     * 
+     * @param startDate the start date
+     * @param endDate the end date
+     * @param limit the maximum number of summaries to return
+     * @param previewLength the number of content characters to include
+     * @return summaries of the newest messages within the date range
+     */
+    @Transactional(readOnly = true)
+    public Slice<MessageSummary> getMessageSummariesByDateRange(Date startDate, Date endDate, int limit,
+                                                                int previewLength) {
+        try {
+            Slice<MessageSummary> summaries = messageRepository.findNewestSummariesByDateRange(
+                    startDate, endDate, previewLength + 1, PageRequest.ofSize(limit));
+            limitContent(summaries.getContent(), previewLength);
+            logger.debug("Retrieved {} message summaries between {} and {}",
+                    summaries.getNumberOfElements(), startDate, endDate);
+            return summaries;
+        } catch (Exception e) {
+            logger.error("Error retrieving message summaries by date range", e);
+            throw new RuntimeException("Failed to retrieve messages by date range", e);
+        }
+    }
+
+    /**
+     * Search messages by content, best matches first.
      * 
      * @param searchTerm the search term
-     * @return list of messages matching the search term
+     * @param page the page number (0-indexed)
+     * @param size the page size
+     * @return one page of messages matching the search term
      */
     @Transactional(readOnly = true)
-    public List<Message> searchMessages(String searchTerm) {
+    public Slice<Message> searchMessages(String searchTerm, int page, int size) {
+        return searchMessages(searchTerm, null, page, size);
+    }
+
+    /**
+     * Search messages created at or after the given time by content, best matches first.
+     * 
+     * @param searchTerm the search term
+     * @param since the inclusive lower creation time bound, or null for all
+     * @param page the page number (0-indexed)
+     * @param size the page size
+     * @return one page of messages matching the search term
+     */
+    @Transactional(readOnly = true)
+    public Slice<Message> searchMessages(String searchTerm, Date since, int page, int size) {
         try {
-            List<Message> messages = messageRepository.searchByContent(searchTerm);
-            logger.debug("Found {} messages matching search term: {}", messages.size(), searchTerm);
+            Slice<Message> messages = messageRepository.searchByContent(searchTerm, since, PageRequest.of(page, size));
+            logger.debug("Found {} messages matching search term: {}", messages.getNumberOfElements(), searchTerm);
             return messages;
         } catch (Exception e) {
             logger.error("Error searching messages", e);
@@ -214,10 +604,13 @@ public class MessageStorageService {
      * @param id the message ID
      * @return true if message was deleted, false if not found
      */
-    public boolean deleteMessageById(String id) {
+    public boolean deleteMessageById(UUID id) {
         try {
             if (messageRepository.existsById(id)) {
                 messageRepository.deleteById(id);
+                messageCache.invalidate(id);
+                changed(null);
+                eventPublisher.publishEvent(MessagesRemovedEvent.of(Set.of(id)));
                 logger.info("Message deleted: {}", id);
                 return true;
             } else {
@@ -239,7 +632,11 @@ public class MessageStorageService {
     public Message updateMessage(Message message) {
         try {
             message.setUpdatedAt(new Date());
+            message.setNewEntity(false);
             Message updated = messageRepository.save(message);
+            messageCache.invalidate(message.getId());
+            eventPublisher.publishEvent(new MessagesUpdatedEvent(List.of(updated)));
+            changed(null);
             logger.info("Message updated: {}", message.getId());
             return updated;
         } catch (Exception e) {
@@ -255,7 +652,7 @@ public class MessageStorageService {
      * @return true if message exists, false otherwise
      */
     @Transactional(readOnly = true)
-    public boolean messageExists(String id) {
+    public boolean messageExists(UUID id) {
         try {
             return messageRepository.existsById(id);
         } catch (Exception e) {
@@ -280,4 +677,384 @@ public class MessageStorageService {
             throw new RuntimeException("Failed to retrieve processed messages", e);
         }
     }
+
+    /**
+     * Get the processed messages with the newest timestamps.
+     * 
+     * @param limit the maximum number of messages to return
+     * @return the processed messages, newest timestamp first; hasNext is set if more match
+     */
+    @Transactional(readOnly = true)
+    public Slice<Message> getProcessedMessages(int limit) {
+        try {
+            Slice<Message> messages = messageRepository.findSliceByStatusOrderByTimestampDesc(
+                    MessageStatus.PROCESSED, PageRequest.ofSize(limit));
+            logger.debug("Retrieved {} processed messages", messages.getNumberOfElements());
+            return messages;
+        } catch (Exception e) {
+            logger.error("Error retrieving processed messages", e);
+            throw new RuntimeException("Failed to retrieve processed messages", e);
+        }
+    }
+
+    /**
+     * Summary variant of {@link #getProcessedMessages(int)}.
+     * 
+     * @param limit the maximum number of summaries to return
+     * @param previewLength the number of content characters to include
+     * @return summaries of the processed messages, newest timestamp first
+     */
+    @Transactional(readOnly = true)
+    public Slice<MessageSummary> getProcessedMessageSummaries(int limit, int previewLength) {
+        try {
+            Slice<MessageSummary> summaries = messageRepository.findSummariesByStatusOrderByTimestampDesc(
+                    MessageStatus.PROCESSED, previewLength + 1, PageRequest.ofSize(limit));
+            limitContent(summaries.getContent(), previewLength);
+            logger.debug("Retrieved {} processed message summaries", summaries.getNumberOfElements());
+            return summaries;
+        } catch (Exception e) {
+            logger.error("Error retrieving processed message summaries", e);
+            throw new RuntimeException("Failed to retrieve processed messages", e);
+        }
+    }
+
+    /**
+     * Get messages that exhausted their retries, most recently failed first.
+     * 
+     * @param pageNumber the page number (0-indexed)
+     * @param pageSize the page size
+     * @return paginated failed messages, including their retry count and last error
+     */
+    @Transactional(readOnly = true)
+    public Page<Message> getFailedMessages(int pageNumber, int pageSize) {
+        try {
+            Pageable pageable = PageRequest.of(pageNumber, pageSize, Sort.by(Sort.Direction.DESC, "updatedAt"));
+            Page<Message> messages = messageRepository.findByStatus(MessageStatus.FAILED, pageable);
+            logger.debug("Retrieved page {} with {} failed messages", pageNumber, messages.getNumberOfElements());
+            return messages;
+        } catch (Exception e) {
+            logger.error("Error retrieving failed messages", e);
+            throw new RuntimeException("Failed to retrieve failed messages", e);
+        }
+    }
+
+    /**
+     * Claim a failed message for replay by moving it to REPLAYED. The status is checked and
+     * changed in one statement, so concurrent replays of the same message cannot both claim it.
+     * The replayed copy is stored as a new message when it is consumed again.
+     * 
+     * @param id the message ID
+     * @return the replayed message, or null if no message with that ID is FAILED
+     */
+    public Message markReplayed(UUID id) {
+        try {
+            Message replayed = transition(id, MessageStatus.FAILED, MessageStatus.REPLAYED);
+            if (replayed == null) {
+                logger.debug("No failed message to mark as replayed: {}", id);
+                return null;
+            }
+            logger.info("Failed message marked as replayed: {}", id);
+            return replayed;
+        } catch (Exception e) {
+            logger.error("Error marking message as replayed: {}", id, e);
+            throw new RuntimeException("Failed to mark message as replayed", e);
+        }
+    }
+
+    /**
+     * Undo {@link #markReplayed} after the replay could not be sent, so the message can be
+     * replayed again.
+     * 
+     * @param id the message ID
+     * @return true if the message was moved back to FAILED, false if it is no longer REPLAYED
+     */
+    public boolean revertReplayed(UUID id) {
+        try {
+            boolean reverted = transition(id, MessageStatus.REPLAYED, MessageStatus.FAILED) != null;
+            logger.info("Replayed message {} back to failed: {}", reverted ? "moved" : "not moved", id);
+            return reverted;
+        } catch (Exception e) {
+            logger.error("Error reverting replayed message: {}", id, e);
+            throw new RuntimeException("Failed to revert replayed message", e);
+        }
+    }
+
+    /**
+     * Store the outcome of one delivery attempt of a message. A message left PENDING by an
+     * earlier failed attempt is overwritten with this attempt's status, retry count and error;
+     * a message in any other status already has its final outcome and is kept.
+     * 
+     * @param message the message as of this attempt
+     * @return true if the message was inserted or overwritten
+     */
+    public boolean recordAttempt(Message message) {
+        try {
+            if (addMessageIfAbsent(message)) {
+                return true;
+            }
+            int updated = messageRepository.updateAttemptIf(message.getId(), MessageStatus.PENDING,
+                    message.getStatus(), message.getRetryCount(), message.getErrorMessage(), new Date());
+            if (updated == 0) {
+                logger.debug("Message {} already has its final outcome", message.getId());
+                return false;
+            }
+            updated(message.getId(), MessageStatus.PENDING, message.getStatus());
+            logger.debug("Recorded attempt {} of message {} as {}", message.getRetryCount(), message.getId(), message.getStatus());
+            return true;
+        } catch (Exception e) {
+            logger.error("Error recording attempt of message: {}", message.getId(), e);
+            throw new RuntimeException("Failed to record message attempt", e);
+        }
+    }
+
+    /**
+     * @return true if the messages table is partitioned by day and supports partition retention
+     */
+    @Transactional(readOnly = true)
+    public boolean isPartitioned() {
+        try {
+            return messageRepository.isPartitioned();
+        } catch (Exception e) {
+            logger.error("Error checking message table partitioning", e);
+            throw new RuntimeException("Failed to check message table partitioning", e);
+        }
+    }
+
+    /**
+     * Make sure a daily partition exists for every day in the range.
+     * 
+     * @param from the first day, inclusive
+     * @param to the last day, inclusive
+     * @return the number of partitions created
+     */
+    public int createPartitions(LocalDate from, LocalDate to) {
+        try {
+            return messageRepository.createPartitions(from, to);
+        } catch (Exception e) {
+            logger.error("Error creating message partitions from {} to {}", from, to, e);
+            throw new RuntimeException("Failed to create message partitions", e);
+        }
+    }
+
+    /**
+     * Drop the daily partitions holding only messages created before the cutoff day, one
+     * at a time and each committed on its own, so no lock is held across partitions.
+     * 
+     * @param cutoff the first day to keep
+     * @return the number of messages dropped
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long dropPartitionsBefore(LocalDate cutoff) {
+        long dropped = 0;
+        try {
+            for (LocalDate day : messageRepository.findExpiredPartitions(cutoff)) {
+                dropped += messageRepository.dropPartition(day);
+                Date end = Date.from(day.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+                eventPublisher.publishEvent(MessagesRemovedEvent.matching(message ->
+                        message.getCreatedAt() == null || message.getCreatedAt().before(end)));
+            }
+            return dropped;
+        } catch (Exception e) {
+            logger.error("Error dropping message partitions before {} after {} dropped", cutoff, dropped, e);
+            throw new RuntimeException("Failed to drop expired message partitions", e);
+        } finally {
+            if (dropped > 0) {
+                messageCache.invalidateAll();
+                changed(null);
+            }
+        }
+    }
+
+    /**
+     * @param codec "lz4" or "pglz"
+     * @param thresholdBytes row size above which content is compressed and moved out of line
+     * @return true if any storage setting changed
+     * @see MessageRepository#configureContentCompression(String, int)
+     */
+    public boolean configureContentCompression(String codec, int thresholdBytes) {
+        try {
+            return messageRepository.configureContentCompression(codec, thresholdBytes);
+        } catch (Exception e) {
+            logger.error("Error configuring message content compression", e);
+            throw new RuntimeException("Failed to configure message content compression", e);
+        }
+    }
+
+    /**
+     * @param rows the number of newest messages to sample
+     * @return the sampled row count, uncompressed and stored content size, or null if not supported
+     * @see MessageRepository#sampleContentSizes(int)
+     */
+    @Transactional(readOnly = true)
+    public long[] sampleContentSizes(int rows) {
+        try {
+            return messageRepository.sampleContentSizes(rows);
+        } catch (Exception e) {
+            logger.error("Error sampling message content sizes", e);
+            throw new RuntimeException("Failed to sample message content sizes", e);
+        }
+    }
+
+    /**
+     * Opaque version of the stored messages, changed after every insert, update or delete
+     * made through this instance commits, and within {@code app.messages.version.check-ms}
+     * of a change made by another instance. Suitable as an ETag; it is local to this
+     * instance and resets on restart.
+     * 
+     * @return the current version tag
+     */
+    public String getVersionTag() {
+        return versionPrefix + "-" + version.get();
+    }
+
+    /**
+     * @return the time of the last committed change, or of startup if there was none
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Bump the version when the stored messages changed without this instance seeing it,
+     * such as writes by other instances or direct SQL. Compares the total count and the
+     * latest update time, both served by small tables or indexes, with the previous check.
+     * Not read-only, so every check reads the primary: replicas at different lag would
+     * differ from one check to the next and bump the version with nothing changed.
+     */
+    @Scheduled(fixedDelayString = "${app.messages.version.check-ms:5000}")
+    public void checkSharedVersion() {
+        try {
+            Date lastUpdated = messageRepository.findLastUpdatedAt();
+            String state = totalOf(messageRepository.countMessagesByStatus()) + "@"
+                    + (lastUpdated == null ? 0L : lastUpdated.getTime());
+            String previous = sharedState;
+            sharedState = state;
+            if (previous != null && !previous.equals(state)) {
+                logger.debug("Stored messages changed outside this instance, bumping the version");
+                bumpVersion();
+            }
+        } catch (Exception e) {
+            logger.warn("Shared message version check failed; retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Move a message between statuses if it still has the expected one.
+     * 
+     * @return the stored message after the move, or null if it was not moved
+     */
+    private Message transition(UUID id, MessageStatus from, MessageStatus to) {
+        if (messageRepository.updateStatusIf(id, from, to, new Date()) == 0) {
+            return null;
+        }
+        return updated(id, from, to);
+    }
+
+    /**
+     * Refresh the caches and in-memory views of a message changed by a bulk update.
+     * 
+     * @return the stored message
+     */
+    private Message updated(UUID id, MessageStatus from, MessageStatus to) {
+        Message message = messageRepository.findById(id).orElseThrow();
+        messageCache.invalidate(id);
+        eventPublisher.publishEvent(new MessagesUpdatedEvent(List.of(message)));
+        changed(from.equals(to) ? Map.of() : Map.of(from, -1L, to, 1L));
+        return message;
+    }
+
+    /**
+     * The counters as this caller sees them: the committed counts plus the writes of the
+     * current transaction. Once the transaction made a write of unknown effect, or no fresh
+     * snapshot is loaded, they are counted in the database inside the transaction instead,
+     * since a reload through the counters would be kept without this transaction's writes.
+     */
+    private Map<MessageStatus, Long> currentCounts() {
+        PendingCounts pending = (PendingCounts) TransactionSynchronizationManager.getResource(counters);
+        if (pending == null) {
+            return counters.get();
+        }
+        Map<MessageStatus, Long> committed = counters.peek();
+        if (committed == null || pending.delta == null) {
+            return messageRepository.countMessagesByStatus();
+        }
+        Map<MessageStatus, Long> counts = new EnumMap<>(MessageStatus.class);
+        counts.putAll(committed);
+        pending.delta.forEach((status, change) -> counts.merge(status, change, Long::sum));
+        return counts;
+    }
+
+    /**
+     * Bump the version and adjust the counters once the surrounding transaction completes,
+     * so a reader never pairs the new version with data read before the change was visible.
+     * The deltas of one transaction are collected and applied together.
+     * 
+     * @param countDelta the change in messages per status, or null if unknown
+     */
+    private void changed(Map<MessageStatus, Long> countDelta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counters.invalidate();
+            bumpVersion();
+            return;
+        }
+        PendingCounts pending = (PendingCounts) TransactionSynchronizationManager.getResource(counters);
+        if (pending == null) {
+            PendingCounts created = new PendingCounts();
+            TransactionSynchronizationManager.bindResource(counters, created);
+            counters.writeStarted();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(counters);
+                }
+
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(counters, created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(counters);
+                    counters.writeCompleted(created.delta, status == STATUS_COMMITTED);
+                    bumpVersion();
+                }
+            });
+            pending = created;
+        }
+        pending.add(countDelta);
+    }
+
+    /** Count changes made by the current transaction, bound to it under the counters. */
+    private static final class PendingCounts {
+        /** Null once a write of unknown effect was made. */
+        private Map<MessageStatus, Long> delta = new EnumMap<>(MessageStatus.class);
+
+        private void add(Map<MessageStatus, Long> change) {
+            if (change == null) {
+                delta = null;
+            } else if (delta != null) {
+                change.forEach((status, count) -> delta.merge(status, count, Long::sum));
+            }
+        }
+    }
+
+    /** Summaries are fetched one character past the preview to tell which ones were cut. */
+    private static List<MessageSummary> limitContent(List<MessageSummary> summaries, int previewLength) {
+        summaries.forEach(summary -> summary.limitContent(previewLength));
+        return summaries;
+    }
+
+    private static Map<MessageStatus, Long> countByStatus(List<Message> messages) {
+        return messages.stream().collect(Collectors.groupingBy(Message::getStatus, Collectors.counting()));
+    }
+
+    private static long totalOf(Map<MessageStatus, Long> counts) {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private void bumpVersion() {
+        lastModified = System.currentTimeMillis();
+        version.incrementAndGet();
+    }
 }
@@ -0,0 +1,387 @@
+package com.kafka.app.service;
+
+import com.kafka.app.event.MessagesConsumedEvent;
+import com.kafka.app.model.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional write-behind buffer between the Kafka consumer and the database.
+ * Consumed messages are queued in memory and a background writer stores them through
+ * {@link MessageStorageService#addMessagesIfAbsent(List)} whenever flush-size messages have
+ * accumulated or flush-interval has passed, so the poll loop never waits on a commit.
+ * {@link MessagesConsumedEvent} is published by the writer once a batch is stored, so
+ * in-memory views never show a message the database does not have.
+ *
+ * <p>A record is acknowledged only after the flush that writes its message, so the offsets of
+ * messages still in the queue are not committed and the records are re-delivered if the process
+ * dies; re-delivered messages that were already written are skipped on insert. The buffer is
+ * drained on a graceful shutdown, after the listener containers have stopped, so offsets
+ * acknowledged by that last drain are not committed either and those records are re-read
+ * (and skipped) on the next start.
+ *
+ * <p>A batch that keeps failing with a non-transient error is written one message at a time
+ * after max-flush-attempts, so one bad message cannot hold up the rest. A message that still
+ * fails, or that is left unwritten at shutdown, is handed with its original record to the
+ * failed attempt recoverer, which moves it on through the retry topics to
+ * {@code messages-dlt} like a record that failed in the listener
+ * ({@code messages.write_behind.recovered}); only if that fails too is it dropped
+ * ({@code messages.write_behind.dropped}). Connection-class errors are retried for as long as
+ * the buffer runs.
+ */
+@Component
+public class MessageWriteBehindBuffer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageWriteBehindBuffer.class);
+    private static final int MAX_FLUSH_ATTEMPTS_ON_SHUTDOWN = 3;
+    /** Longest the writer waits for messages before checking whether it was stopped. */
+    private static final long STOP_CHECK_MS = 100;
+
+    private final MessageStorageService messageStorageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+    private final int maxFlushAttempts;
+    private final ObjectProvider<ConsumerRecordRecoverer> recoverer;
+    private final BlockingQueue<Pending> queue;
+    private final Counter flushedCounter;
+    private final Counter duplicateCounter;
+    private final Counter rejectedCounter;
+    private final Counter recoveredCounter;
+    private final Counter droppedCounter;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    /** Size of the batch the writer has taken off the queue and not yet finished with. */
+    private volatile int inFlight;
+    private Thread writer;
+
+    public MessageWriteBehindBuffer(MessageStorageService messageStorageService,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Qualifier("failedAttemptRecoverer") ObjectProvider<ConsumerRecordRecoverer> recoverer,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.storage.write-behind.enabled:false}") boolean enabled,
+                                    @Value("${app.storage.write-behind.capacity:10000}") int capacity,
+                                    @Value("${app.storage.write-behind.flush-size:500}") int flushSize,
+                                    @Value("${app.storage.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                                    @Value("${app.storage.write-behind.offer-timeout-ms:5000}") long offerTimeoutMs,
+                                    @Value("${app.storage.write-behind.shutdown-timeout-ms:30000}") long shutdownTimeoutMs,
+                                    @Value("${app.storage.write-behind.max-flush-attempts:3}") int maxFlushAttempts) {
+        this.messageStorageService = messageStorageService;
+        this.eventPublisher = eventPublisher;
+        this.recoverer = recoverer;
+        this.enabled = enabled;
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        this.maxFlushAttempts = maxFlushAttempts;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        Gauge.builder("messages.write_behind.queue_size", queue, BlockingQueue::size)
+                .description("Number of consumed messages waiting to be written")
+                .register(meterRegistry);
+        this.flushedCounter = Counter.builder("messages.write_behind.flushed")
+                .description("Total number of messages written by the write-behind buffer")
+                .register(meterRegistry);
+        this.duplicateCounter = Counter.builder("messages.write_behind.duplicate")
+                .description("Total number of buffered messages skipped because they were already stored")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("messages.write_behind.rejected")
+                .description("Total number of enqueue attempts rejected because the buffer stayed full")
+                .register(meterRegistry);
+        this.recoveredCounter = Counter.builder("messages.write_behind.recovered")
+                .description("Total number of buffered messages handed to the retry topics because they could not be written")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("messages.write_behind.dropped")
+                .description("Total number of buffered messages lost because they could neither be written nor recovered")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("messages.write_behind.flush")
+                .description("Time taken to write one batch from the write-behind buffer")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether consumed messages should be routed through this buffer.
+     * 
+     * @return true if write-behind mode is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue messages for writing. When the buffer is full this blocks for up to
+     * offer-timeout so the consumer slows down to the writer's pace, then gives up.
+     * 
+     * @param records the consumed records, kept to recover messages that cannot be written
+     * @param messages the messages built from the records, in the same order
+     * @param acknowledgment acknowledgment for the records' offsets, used once the last message
+     *        is written or recovered; the queue is written in order, so all others are done by then
+     * @throws IllegalStateException if the buffer stayed full or is not running; messages queued
+     *         before the failure are kept but never acknowledged, and re-delivered duplicates are
+     *         skipped on insert
+     */
+    public void enqueue(List<ConsumerRecord<String, String>> records, List<Message> messages,
+                        Acknowledgment acknowledgment) {
+        if (records.size() != messages.size()) {
+            throw new IllegalArgumentException("Expected one message per record");
+        }
+        if (!running) {
+            throw new IllegalStateException("Write-behind buffer is not running");
+        }
+        try {
+            for (int i = 0; i < messages.size(); i++) {
+                Acknowledgment last = i == messages.size() - 1 ? acknowledgment : null;
+                if (!queue.offer(new Pending(records.get(i), messages.get(i), last), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    rejectedCounter.increment();
+                    throw new IllegalStateException("Write-behind buffer is full");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing messages", e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::runWriter, "message-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Write-behind buffer started (capacity {}, flush size {}, flush interval {} ms)",
+                queue.remainingCapacity(), flushSize, flushIntervalMs);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            // Stop the writer before the data source closes; what it has not written is lost
+            writer.interrupt();
+        }
+        int unwritten = queue.size() + inFlight;
+        if (unwritten > 0) {
+            logger.error("Write-behind buffer stopped with {} unwritten messages", unwritten);
+        } else {
+            logger.info("Write-behind buffer drained and stopped");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stop after the Kafka listener containers (phase Integer.MAX_VALUE - 100), so nothing
+     * is queued while the buffer drains.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 200;
+    }
+
+    private void runWriter() {
+        List<Pending> batch = new ArrayList<>(flushSize);
+        while ((running || !queue.isEmpty()) && !Thread.currentThread().isInterrupted()) {
+            try {
+                Pending first = queue.poll(STOP_CHECK_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                inFlight = batch.size();
+                fillBatch(batch);
+                flush(List.copyOf(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+                inFlight = 0;
+            }
+        }
+    }
+
+    /**
+     * Top the batch up to flush-size, waiting at most flush-interval for more messages.
+     * Once the buffer is stopped only what is already queued is taken.
+     */
+    private void fillBatch(List<Pending> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            inFlight = batch.size();
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || remaining <= 0 || !running) {
+                return;
+            }
+            Pending next = queue.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(STOP_CHECK_MS)), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+                inFlight = batch.size();
+            }
+        }
+    }
+
+    /**
+     * Write one batch. Connection-class failures are retried until the batch succeeds: while
+     * the database is unavailable the queue fills up and enqueue applies back-pressure. Any
+     * other failure is retried max-flush-attempts times, then the batch is split into single
+     * messages and a single message is recovered. During shutdown the batch is recovered after
+     * a few attempts so the application can stop.
+     */
+    private void flush(List<Pending> batch) throws InterruptedException {
+        List<Message> messages = batch.stream().map(Pending::message).toList();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Integer inserted = flushTimer.recordCallable(() -> messageStorageService.addMessagesIfAbsent(messages));
+                if (inserted != null) {
+                    flushedCounter.increment(inserted);
+                    duplicateCounter.increment(batch.size() - inserted);
+                }
+                logger.debug("Write-behind flushed {} messages", batch.size());
+                batch.forEach(this::acknowledge);
+                publishStored(messages);
+                return;
+            } catch (Exception e) {
+                if (!running && attempt >= MAX_FLUSH_ATTEMPTS_ON_SHUTDOWN) {
+                    recover(batch, "after " + attempt + " failed attempts during shutdown", e);
+                    return;
+                }
+                if (!isTransient(e) && attempt >= maxFlushAttempts) {
+                    if (batch.size() == 1) {
+                        recover(batch, "after " + attempt + " failed attempts", e);
+                        return;
+                    }
+                    logger.warn("Write-behind flush of {} messages failed {} times, writing them one by one",
+                            batch.size(), attempt, e);
+                    for (Pending pending : batch) {
+                        flush(List.of(pending));
+                    }
+                    return;
+                }
+                logger.warn("Write-behind flush of {} messages failed (attempt {}), retrying", batch.size(), attempt, e);
+                Thread.sleep(flushIntervalMs);
+            }
+        }
+    }
+
+    /**
+     * Acknowledge the records a pending message closes. The message is already written or
+     * recovered, so if this fails the records are merely re-delivered and skipped.
+     */
+    private void acknowledge(Pending pending) {
+        if (pending.acknowledgment() == null) {
+            return;
+        }
+        try {
+            pending.acknowledgment().acknowledge();
+        } catch (Exception e) {
+            logger.warn("Error acknowledging buffered message {}", pending.message().getId(), e);
+        }
+    }
+
+    /**
+     * The batch is already stored, so a failing listener is logged rather than allowed to
+     * make the writer retry it.
+     */
+    private void publishStored(List<Message> messages) {
+        try {
+            eventPublisher.publishEvent(new MessagesConsumedEvent(messages));
+        } catch (Exception e) {
+            logger.warn("Error notifying listeners of {} stored messages", messages.size(), e);
+        }
+    }
+
+    /**
+     * Hand messages that could not be written to the failed attempt recoverer, then acknowledge
+     * them like written ones. A message that cannot be recovered either is not acknowledged,
+     * though acknowledging a later record of its partition still commits past it.
+     */
+    private void recover(List<Pending> batch, String reason, Exception cause) {
+        ConsumerRecordRecoverer failedAttemptRecoverer = recoverer.getIfAvailable();
+        for (Pending pending : batch) {
+            try {
+                if (failedAttemptRecoverer == null) {
+                    throw new IllegalStateException("No failed attempt recoverer available");
+                }
+                failedAttemptRecoverer.accept(pending.record(), cause);
+                recoveredCounter.increment();
+                logger.warn("Handed buffered message {} to the retry topics {}", pending.message().getId(), reason, cause);
+                acknowledge(pending);
+            } catch (Exception e) {
+                droppedCounter.increment();
+                logger.error("Dropping buffered message {} {}; it could not be recovered either",
+                        pending.message().getId(), reason, e);
+            }
+        }
+    }
+
+    /**
+     * @return true if the failure, or any of its causes, means the database could not be
+     *         reached rather than that it refused the data
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException || cause instanceof RecoverableDataAccessException
+                    || cause instanceof CannotCreateTransactionException || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            // SQLSTATE class 08 is connection exception
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A queued message together with the record it was consumed from, and the acknowledgment
+     * for its poll if it is the last message of that poll.
+     */
+    private record Pending(ConsumerRecord<String, String> record, Message message, Acknowledgment acknowledgment) {
+    }
+}
@@ -0,0 +1,305 @@
+package com.kafka.app.service;
+
+import com.kafka.app.event.MessagesConsumedEvent;
+import com.kafka.app.event.MessagesRemovedEvent;
+import com.kafka.app.event.MessagesUpdatedEvent;
+import com.kafka.app.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Ring buffer of the newest {@code app.messages.recent.capacity} messages, so the dashboard's
+ * frequent "latest messages" polls are answered without a query.
+ * <p>
+ * Fed by {@link MessagesConsumedEvent} as messages are stored, kept current by
+ * {@link MessagesUpdatedEvent} and seeded once from the database at startup. Seeded rows only
+ * fill free slots behind anything consumed already, so a seed that finishes after the listeners
+ * started never hides newer messages.
+ * <p>
+ * The events only carry what this instance's consumer stored and changed, so they only feed
+ * the buffer when {@code app.kafka.consumer.single-instance} declares this the only consumer.
+ * Otherwise the buffer follows the database instead: every {@code app.messages.recent.refresh-ms}
+ * it reads the messages changed since its watermark, the same feed as GET /api/messages/changes,
+ * and merges them in createdAt order. Deletions are not part of that feed, so it is reloaded
+ * whole every {@code app.messages.recent.reload-ms}, and also when more changes are waiting
+ * than it holds. Until the first load succeeds {@link #getRecent} reads the database.
+ */
+@Component
+public class RecentMessageBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentMessageBuffer.class);
+
+    /** Database order of the buffer when it follows the database: createdAt, then ID, descending. */
+    private static final Comparator<Message> NEWEST_FIRST = Comparator
+            .comparing(Message::getCreatedAt, Comparator.nullsFirst(Comparator.<Date>naturalOrder()))
+            .thenComparing(Message::getId)
+            .reversed();
+
+    private final MessageStorageService messageStorageService;
+    private final int capacity;
+    private final boolean enabled;
+    private final long changesSettleMs;
+    private final long reloadMs;
+    private final LongSupplier clock;
+
+    /** Newest message first. */
+    private final ArrayDeque<Message> messages;
+    private final Set<UUID> ids = new HashSet<>();
+
+    /** Position of the last change merged when following the database; null until loaded. */
+    private volatile MessageCursor watermark;
+    private volatile long loadedAt;
+
+    public RecentMessageBuffer(MessageStorageService messageStorageService,
+                               @Value("${app.messages.recent.capacity:500}") int capacity,
+                               @Value("${app.kafka.consumer.single-instance:false}") boolean singleInstance,
+                               @Value("${app.messages.changes.settle-ms:2000}") long changesSettleMs,
+                               @Value("${app.messages.recent.reload-ms:60000}") long reloadMs) {
+        this(messageStorageService, capacity, singleInstance, changesSettleMs, reloadMs, System::currentTimeMillis);
+        if (!singleInstance) {
+            logger.info("Recent message buffer follows the database without "
+                    + "app.kafka.consumer.single-instance=true");
+        }
+    }
+
+    RecentMessageBuffer(MessageStorageService messageStorageService, int capacity, boolean singleInstance,
+                        long changesSettleMs, long reloadMs, LongSupplier clock) {
+        this.messageStorageService = messageStorageService;
+        this.capacity = capacity;
+        this.enabled = singleInstance;
+        this.changesSettleMs = changesSettleMs;
+        this.reloadMs = reloadMs;
+        this.clock = clock;
+        this.messages = new ArrayDeque<>(capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        if (!enabled) {
+            refresh();
+            return;
+        }
+        try {
+            List<Message> stored = messageStorageService.getMessagesAfter(null, capacity).getContent();
+            int seeded = seed(stored);
+            logger.info("Seeded recent message buffer with {} stored messages", seeded);
+        } catch (Exception e) {
+            logger.warn("Could not seed recent message buffer; it fills as messages are consumed", e);
+        }
+    }
+
+    /**
+     * Append stored messages behind the buffered ones while there is room.
+     *
+     * @param newestFirst stored messages, newest first
+     * @return the number of messages added
+     */
+    synchronized int seed(List<Message> newestFirst) {
+        int seeded = 0;
+        for (Message message : newestFirst) {
+            if (messages.size() >= capacity) {
+                break;
+            }
+            if (ids.add(message.getId())) {
+                messages.addLast(message);
+                seeded++;
+            }
+        }
+        return seeded;
+    }
+
+    /**
+     * Bring the buffer up to date with the database, unless this instance's consumer feeds it.
+     */
+    @Scheduled(fixedDelayString = "${app.messages.recent.refresh-ms:2000}")
+    public void refresh() {
+        if (enabled) {
+            return;
+        }
+        try {
+            MessageCursor since = watermark;
+            if (since == null || clock.getAsLong() - loadedAt >= reloadMs || !mergeChanges(since)) {
+                reload();
+            }
+        } catch (Exception e) {
+            logger.warn("Could not refresh recent message buffer; retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Replace the buffer with the newest stored messages.
+     */
+    private void reload() {
+        long now = clock.getAsLong();
+        // Taken first: every change before the bound has committed, so the load includes it
+        Date until = messageStorageService.getChangesBound(changesSettleMs);
+        List<Message> stored = messageStorageService.getMessagesAfter(null, capacity).getContent();
+        synchronized (this) {
+            messages.clear();
+            ids.clear();
+            merge(stored);
+        }
+        watermark = MessageCursor.of(until, MessageCursor.MIN_ID);
+        loadedAt = now;
+        logger.debug("Reloaded recent message buffer with {} stored messages", stored.size());
+    }
+
+    /**
+     * Merge the messages changed after the watermark and advance it.
+     *
+     * @param since the current watermark
+     * @return false if more changes are waiting than the buffer holds, so a reload is cheaper
+     */
+    private boolean mergeChanges(MessageCursor since) {
+        Date until = messageStorageService.getChangesBound(changesSettleMs);
+        Slice<Message> changes = messageStorageService.getChangesSince(since, until, capacity);
+        if (changes.hasNext()) {
+            return false;
+        }
+        synchronized (this) {
+            merge(changes.getContent());
+        }
+        if (until.after(since.getTime())) {
+            watermark = MessageCursor.of(until, MessageCursor.MIN_ID);
+        }
+        return true;
+    }
+
+    /**
+     * Replace buffered copies of the given messages and insert the others in createdAt order,
+     * keeping the newest {@code capacity}.
+     */
+    private void merge(List<Message> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        Map<UUID, Message> updated = new HashMap<>();
+        List<Message> merged = new ArrayList<>(messages.size() + changed.size());
+        for (Message message : changed) {
+            if (ids.contains(message.getId())) {
+                updated.put(message.getId(), message);
+            } else if (ids.add(message.getId())) {
+                merged.add(message);
+            }
+        }
+        for (Message message : messages) {
+            merged.add(updated.getOrDefault(message.getId(), message));
+        }
+        merged.sort(NEWEST_FIRST);
+        messages.clear();
+        for (Message message : merged) {
+            if (messages.size() < capacity) {
+                messages.addLast(message);
+            } else {
+                ids.remove(message.getId());
+            }
+        }
+    }
+
+    @EventListener
+    public void onMessagesConsumed(MessagesConsumedEvent event) {
+        if (enabled) {
+            add(event.getMessages());
+        }
+    }
+
+    /**
+     * Push messages in consumption order, dropping the oldest beyond capacity.
+     * Re-delivered messages that are still buffered are ignored.
+     *
+     * @param consumed the messages, oldest first
+     */
+    synchronized void add(List<Message> consumed) {
+        for (Message message : consumed) {
+            if (!ids.add(message.getId())) {
+                continue;
+            }
+            messages.addFirst(message);
+            if (messages.size() > capacity) {
+                ids.remove(messages.removeLast().getId());
+            }
+        }
+    }
+
+    /**
+     * Replace buffered copies of updated messages, keeping their position.
+     */
+    @EventListener
+    public synchronized void onMessagesUpdated(MessagesUpdatedEvent event) {
+        Map<UUID, Message> updated = new HashMap<>();
+        for (Message message : event.getMessages()) {
+            if (ids.contains(message.getId())) {
+                updated.put(message.getId(), message);
+            }
+        }
+        if (updated.isEmpty()) {
+            return;
+        }
+        // Rotate once through the deque, swapping in the new copies
+        for (int i = messages.size(); i > 0; i--) {
+            Message message = messages.pollFirst();
+            messages.addLast(updated.getOrDefault(message.getId(), message));
+        }
+    }
+
+    @EventListener
+    public synchronized void onMessagesRemoved(MessagesRemovedEvent event) {
+        if (event.isAll()) {
+            messages.clear();
+            ids.clear();
+            return;
+        }
+        for (Iterator<Message> it = messages.iterator(); it.hasNext(); ) {
+            Message message = it.next();
+            if (event.removes(message)) {
+                it.remove();
+                ids.remove(message.getId());
+            }
+        }
+    }
+
+    /**
+     * @param limit the maximum number of messages to return
+     * @return up to {@code limit} of the newest messages, newest first
+     */
+    public List<Message> getRecent(int limit) {
+        if (!enabled && watermark == null) {
+            return messageStorageService.getMessagesAfter(null, limit).getContent();
+        }
+        return buffered(limit);
+    }
+
+    private synchronized List<Message> buffered(int limit) {
+        List<Message> recent = new ArrayList<>(Math.min(limit, messages.size()));
+        for (Message message : messages) {
+            if (recent.size() >= limit) {
+                break;
+            }
+            recent.add(message);
+        }
+        return recent;
+    }
+}
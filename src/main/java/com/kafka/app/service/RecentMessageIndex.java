@@ -0,0 +1,380 @@
+package com.kafka.app.service;
+
+import com.kafka.app.event.MessagesConsumedEvent;
+import com.kafka.app.event.MessagesRemovedEvent;
+import com.kafka.app.event.MessagesUpdatedEvent;
+import com.kafka.app.model.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Optional in-memory inverted index over the most recently consumed messages.
+ * <p>
+ * Fed by {@link MessagesConsumedEvent}, which only carries what this instance's consumer
+ * stored. With several instances the consumer group splits the partitions between them and
+ * each index would miss the others' messages, so the index only runs when
+ * {@code app.kafka.consumer.single-instance} declares this the only consumer.
+ * <p>
+ * It keeps the messages of the last
+ * {@code app.search.recent-index.window-ms}, capped at an estimated {@code max-bytes} of heap,
+ * and maps each trigram of their lower-cased content to the messages containing it. Entries
+ * hold no copy of the content or its trigrams; both are derived again when needed. A query narrows the
+ * candidates to messages holding all of its trigrams, then keeps those whose content contains
+ * the query, so as the only consumer it matches exactly what the database's
+ * case-insensitive substring search matches. Results are ordered like the database's time-bounded search: newest first by
+ * creation time, then by ID.
+ * <p>
+ * The index only answers for time ranges it fully covers: messages consumed since it
+ * started, not yet evicted. {@link #search} returns empty for anything older, and the
+ * caller falls back to the database. {@link MessagesUpdatedEvent} re-indexes changed
+ * messages so updates are not answered from a stale copy.
+ */
+@Component
+public class RecentMessageIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentMessageIndex.class);
+    private static final int GRAM_LENGTH = 3;
+    /** Rough heap cost of an entry apart from its content: the message, the entry and its map node. */
+    private static final long ENTRY_BYTES = 256;
+    /** Rough heap cost of one posting: a hash set node plus its share of the table. */
+    private static final long POSTING_BYTES = 48;
+    /** Ties on time are ordered by the ID unsigned, which matches the database's uuid order. */
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator.comparingLong(Entry::createdAt)
+            .thenComparing(entry -> entry.message.getId(), RecentMessageIndex::compareUnsigned)
+            .reversed();
+
+    private final boolean enabled;
+    private final long windowMs;
+    private final long maxBytes;
+    private final LongSupplier clock;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Entries in the order they were indexed, oldest first. */
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>();
+    private final Map<String, Set<Entry>> postings = new HashMap<>();
+    private long bytes;
+    private long coveredSince;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    @Autowired
+    public RecentMessageIndex(MeterRegistry meterRegistry,
+                              @Value("${app.search.recent-index.enabled:false}") boolean enabled,
+                              @Value("${app.search.recent-index.window-ms:3600000}") long windowMs,
+                              @Value("${app.search.recent-index.max-bytes:134217728}") long maxBytes,
+                              @Value("${app.kafka.consumer.single-instance:false}") boolean singleInstance) {
+        this(meterRegistry, enabled && singleInstance, windowMs, maxBytes, System::currentTimeMillis);
+        if (enabled && !singleInstance) {
+            logger.warn("Recent message index disabled: it needs app.kafka.consumer.single-instance=true, "
+                    + "other consumers' messages would be missing from it");
+        }
+    }
+
+    RecentMessageIndex(MeterRegistry meterRegistry, boolean enabled, long windowMs, long maxBytes,
+                       LongSupplier clock) {
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxBytes = maxBytes;
+        this.clock = clock;
+        this.coveredSince = clock.getAsLong();
+        Gauge.builder("messages.recent_index.size", this, RecentMessageIndex::size)
+                .description("Number of messages held by the recent message index")
+                .register(meterRegistry);
+        Gauge.builder("messages.recent_index.bytes", this, RecentMessageIndex::bytes)
+                .description("Estimated heap held by the recent message index")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.hitCounter = Counter.builder("messages.recent_index.searches")
+                .tag("result", "hit")
+                .description("Searches answered by the recent message index")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("messages.recent_index.searches")
+                .tag("result", "miss")
+                .description("Searches outside the recent message index that went to the database")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener
+    public void onMessagesConsumed(MessagesConsumedEvent event) {
+        if (enabled) {
+            add(event.getMessages());
+        }
+    }
+
+    @EventListener
+    public void onMessagesUpdated(MessagesUpdatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Message message : event.getMessages()) {
+                Entry entry = entries.get(message.getId());
+                if (entry != null) {
+                    unindexGrams(entry);
+                    entry.setMessage(message);
+                    indexGrams(entry);
+                }
+            }
+            evict(clock.getAsLong());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onMessagesRemoved(MessagesRemovedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (event.isAll()) {
+                entries.clear();
+                postings.clear();
+                bytes = 0;
+            } else if (!event.getIds().isEmpty()) {
+                for (UUID id : event.getIds()) {
+                    Entry entry = entries.remove(id);
+                    if (entry != null) {
+                        unindexGrams(entry);
+                    }
+                }
+            } else {
+                for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                    Entry entry = it.next();
+                    if (event.removes(entry.message)) {
+                        it.remove();
+                        unindexGrams(entry);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index the given messages, skipping IDs that are already indexed, then evict
+     * whatever has fallen out of the window or exceeds the memory cap.
+     *
+     * @param messages the messages to index
+     */
+    void add(Collection<Message> messages) {
+        long now = clock.getAsLong();
+        lock.writeLock().lock();
+        try {
+            for (Message message : messages) {
+                if (entries.containsKey(message.getId())) {
+                    continue;
+                }
+                Entry entry = new Entry(now, message);
+                entries.put(message.getId(), entry);
+                indexGrams(entry);
+            }
+            evict(now);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find messages created at or after {@code since} whose content contains the query,
+     * ignoring case. Newest first by creation time, then by ID descending.
+     *
+     * @param query the text to look for, at least three characters
+     * @param since the earliest creation time of interest, in epoch milliseconds
+     * @param offset the number of matches to skip
+     * @param limit the maximum number of matches to return
+     * @return the matches, or empty when the index is disabled, the query is too short to
+     *         narrow by trigram or the index does not cover {@code since}
+     */
+    public Optional<List<Message>> search(String query, long since, int offset, int limit) {
+        String needle = query == null ? "" : query.toLowerCase(Locale.ROOT);
+        if (!enabled || needle.length() < GRAM_LENGTH) {
+            return Optional.empty();
+        }
+        long now = clock.getAsLong();
+        lock.readLock().lock();
+        try {
+            if (since < Math.max(coveredSince, now - windowMs)) {
+                missCounter.increment();
+                return Optional.empty();
+            }
+
+            List<Set<Entry>> candidates = new ArrayList<>();
+            for (String gram : grams(needle)) {
+                candidates.add(postings.getOrDefault(gram, Set.of()));
+            }
+            Set<Entry> smallest = candidates.stream().min(Comparator.comparingInt(Set::size)).orElseThrow();
+
+            // Keep only the newest offset + limit matches, with the oldest of them at the head
+            int wanted = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+            PriorityQueue<Entry> newest = new PriorityQueue<>(Math.max(1, Math.min(wanted, smallest.size())),
+                    NEWEST_FIRST.reversed());
+            for (Entry entry : smallest) {
+                if (wanted > 0
+                        && entry.createdAt() >= since
+                        && (newest.size() < wanted || NEWEST_FIRST.compare(entry, newest.peek()) < 0)
+                        && candidates.stream().allMatch(posting -> posting.contains(entry))
+                        && entry.lowerCaseContent().contains(needle)) {
+                    newest.add(entry);
+                    if (newest.size() > wanted) {
+                        newest.poll();
+                    }
+                }
+            }
+            List<Message> messages = newest.stream()
+                    .sorted(NEWEST_FIRST)
+                    .skip(offset)
+                    .map(entry -> entry.message)
+                    .toList();
+            hitCounter.increment();
+            return Optional.of(messages);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long bytes() {
+        lock.readLock().lock();
+        try {
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void evict(long now) {
+        long expiredBefore = now - windowMs;
+        int evicted = 0;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (bytes <= maxBytes && entry.indexedAt >= expiredBefore) {
+                break;
+            }
+            it.remove();
+            unindexGrams(entry);
+            // Anything created or consumed at or before this entry may now be missing from the index
+            coveredSince = Math.max(coveredSince, Math.max(entry.indexedAt, entry.createdAt()) + 1);
+            evicted++;
+        }
+        if (evicted > 0) {
+            logger.debug("Evicted {} messages from the recent message index", evicted);
+        }
+    }
+
+    private void indexGrams(Entry entry) {
+        Set<String> grams = grams(entry.lowerCaseContent());
+        for (String gram : grams) {
+            postings.computeIfAbsent(gram, key -> new HashSet<>()).add(entry);
+        }
+        entry.bytes = estimatedBytes(entry.content, grams.size());
+        bytes += entry.bytes;
+    }
+
+    /** Recomputes the entry's trigrams from the content it was indexed with. */
+    private void unindexGrams(Entry entry) {
+        for (String gram : grams(entry.lowerCaseContent())) {
+            Set<Entry> posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(entry);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        bytes -= entry.bytes;
+    }
+
+    /**
+     * @param content the message content
+     * @param grams the number of distinct trigrams indexed for it
+     * @return the estimated heap held by an entry for the content, counting two bytes a character
+     */
+    static long estimatedBytes(String content, int grams) {
+        return ENTRY_BYTES + 2L * (content == null ? 0 : content.length()) + POSTING_BYTES * grams;
+    }
+
+    private static int compareUnsigned(UUID a, UUID b) {
+        int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    /**
+     * @param text lower-cased text
+     * @return every distinct run of three characters in the text
+     */
+    static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static final class Entry {
+        private final long indexedAt;
+        private Message message;
+        /** The content as indexed; the message itself may be changed in place before it is re-indexed. */
+        private String content;
+        private long bytes;
+
+        private Entry(long indexedAt, Message message) {
+            this.indexedAt = indexedAt;
+            setMessage(message);
+        }
+
+        private void setMessage(Message message) {
+            this.message = message;
+            this.content = message.getContent() == null ? "" : message.getContent();
+        }
+
+        private String lowerCaseContent() {
+            return content.toLowerCase(Locale.ROOT);
+        }
+
+        /** The stored creation time, or the consumption time for messages without one. */
+        private long createdAt() {
+            return message.getCreatedAt() != null ? message.getCreatedAt().getTime() : indexedAt;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+-- Flyway Migration V10: Keep the Kafka record key of each message
+-- A replayed message is sent again with its original key, so it goes to the same partition
+-- and keeps its order relative to the other messages with that key.
+
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS message_key TEXT;
+
+COMMENT ON COLUMN messages.message_key IS 'Key of the Kafka record the message came from, if any';
@@ -0,0 +1,5 @@
+-- Flyway Migration V3: Support keyset pagination
+-- Cursor listing orders by (created_at, id) newest first; this index serves both the
+-- ordering and the seek to the cursor position, so deep pages cost the same as the first.
+
+CREATE INDEX IF NOT EXISTS idx_message_created_at_id ON messages(created_at DESC, id DESC);
@@ -0,0 +1,5 @@
+-- Flyway Migration V5: Support delta sync
+-- Change feeds walk (updated_at, id) oldest first from a client's watermark; updated_at
+-- rather than created_at so that edits to older rows are picked up as well.
+
+CREATE INDEX IF NOT EXISTS idx_message_updated_at_id ON messages(updated_at, id);
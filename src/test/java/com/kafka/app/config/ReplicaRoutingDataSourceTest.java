@@ -0,0 +1,116 @@
+package com.kafka.app.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.setCurrentTransactionReadOnly;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ReplicaRoutingDataSource Unit Tests")
+class ReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private DataSource replica2;
+
+    private final Map<DataSource, Long> lags = new HashMap<>();
+
+    private MeterRegistry meterRegistry;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", replica1);
+        replicas.put("replica-2", replica2);
+        routing = new ReplicaRoutingDataSource(primary, replicas, 1000, meterRegistry, replica -> {
+            Long lag = lags.get(replica);
+            if (lag == null) {
+                throw new SQLException("Connection refused");
+            }
+            return lag;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    @DisplayName("Should send read-only transactions to replicas in turn and writes to the primary")
+    void testRouting() {
+        // Arrange
+        lags.put(replica1, 0L);
+        lags.put(replica2, 200L);
+        routing.checkReplicas();
+
+        // Act
+        Object write = routing.determineCurrentLookupKey();
+        setCurrentTransactionReadOnly(true);
+        Object firstRead = routing.determineCurrentLookupKey();
+        Object secondRead = routing.determineCurrentLookupKey();
+
+        // Assert
+        assertThat(write).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        assertThat(new Object[]{firstRead, secondRead}).containsExactlyInAnyOrder("replica-1", "replica-2");
+        assertThat(meterRegistry.find("db.replica.lag").tag("pool", "replica-2").gauge().value()).isEqualTo(200.0);
+    }
+
+    @Test
+    @DisplayName("Should skip replicas that lag too far or fail the check")
+    void testLaggingReplica() {
+        // Arrange
+        lags.put(replica1, 5000L);
+        lags.put(replica2, 0L);
+        routing.checkReplicas();
+        setCurrentTransactionReadOnly(true);
+
+        // Act & Assert
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-2");
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-2");
+
+        lags.remove(replica2);
+        routing.checkReplicas();
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+        assertThat(meterRegistry.find("db.replica.fallback").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.find("db.replica.available").tag("pool", "replica-2").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should return a replica to rotation once it catches up")
+    void testReplicaRecovers() {
+        // Arrange
+        lags.put(replica1, 5000L);
+        routing.checkReplicas();
+        setCurrentTransactionReadOnly(true);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+
+        // Act
+        lags.put(replica1, 10L);
+        routing.checkReplicas();
+
+        // Assert
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-1");
+    }
+}
@@ -0,0 +1,138 @@
+package com.kafka.app.config;
+
+import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import com.kafka.app.repository.MessageRepository;
+import com.kafka.app.service.MessageByIdCache;
+import com.kafka.app.service.MessageStorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for replica routing through the real LazyConnectionDataSourceProxy,
+ * transaction manager and JPA, with two in-memory H2 databases standing in for the primary
+ * and a replica. Rows written straight into one database show which one a call reached.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingIntegrationTest.PRIMARY_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "app.datasource.replica.enabled=true",
+        "app.datasource.replica.urls=" + ReplicaRoutingIntegrationTest.REPLICA_URL})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ReplicaDataSourceConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Replica Routing Integration Tests")
+class ReplicaRoutingIntegrationTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private static final String INSERT_MESSAGE = "INSERT INTO messages "
+            + "(id, content, timestamp, status, created_at, updated_at, retry_count) "
+            + "VALUES (?, ?, 1, 1, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 0)";
+
+    private static final UUID REPLICA_ONLY = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID PRIMARY_ONLY = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID WRITTEN = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public MessageStorageService messageStorageService(MessageRepository messageRepository,
+                                                           MeterRegistry meterRegistry) {
+            return new MessageStorageService(messageRepository, event -> { },
+                    new MessageByIdCache(meterRegistry, false, 0, 0), meterRegistry, 60_000L, 5000);
+        }
+    }
+
+    @Autowired
+    private MessageStorageService messageStorageService;
+
+    private final JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setUp() {
+        // Flyway only migrates the primary; give the replica the same schema, without data
+        replica.execute("DROP ALL OBJECTS");
+        List<String> schema = primary.queryForList("SCRIPT NODATA", String.class);
+        for (String statement : schema) {
+            if (!statement.startsWith("--")) {
+                replica.execute(statement);
+            }
+        }
+        primary.update("DELETE FROM messages");
+    }
+
+    @Test
+    @DisplayName("Should read from the replica in a read-only service call")
+    void testReadOnlyCallReachesReplica() {
+        // Arrange
+        replica.update(INSERT_MESSAGE, REPLICA_ONLY, "Only on the replica");
+
+        // Act
+        boolean exists = messageStorageService.messageExists(REPLICA_ONLY);
+
+        // Assert
+        assertThat(exists).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should read from the primary in a call that must see its own writes")
+    void testReadYourWritesCallReachesPrimary() {
+        // Arrange
+        replica.update(INSERT_MESSAGE, REPLICA_ONLY, "Only on the replica");
+        primary.update(INSERT_MESSAGE, PRIMARY_ONLY, "Only on the primary");
+
+        // Act
+        Message fromReplica = messageStorageService.getMessageById(REPLICA_ONLY);
+        Message fromPrimary = messageStorageService.getMessageById(PRIMARY_ONLY);
+
+        // Assert
+        assertThat(fromReplica).isNull();
+        assertThat(fromPrimary).isNotNull();
+        assertThat(fromPrimary.getContent()).isEqualTo("Only on the primary");
+    }
+
+    @Test
+    @DisplayName("Should write to the primary only")
+    void testWriteReachesPrimary() {
+        // Arrange
+        Message message = new Message(WRITTEN, "Written by the service", 1L, MessageStatus.PROCESSED, null, null);
+
+        // Act
+        messageStorageService.addMessage(message);
+
+        // Assert
+        assertThat(primary.queryForObject("SELECT COUNT(*) FROM messages WHERE id = ?", Long.class, WRITTEN))
+                .isEqualTo(1);
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM messages WHERE id = ?", Long.class, WRITTEN))
+                .isZero();
+    }
+}
@@ -1,9 +1,15 @@
 package com.kafka.app.consumer;
 
+import com.kafka.app.event.MessagesConsumedEvent;
 import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
 import com.kafka.app.service.MessageStorageService;
+import com.kafka.app.service.MessageWriteBehindBuffer;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,25 +17,53 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayName("KafkaConsumer Unit Tests")
 class KafkaConsumerTest {
 
+    private static final long ORIGINAL_TIMESTAMP = 1_700_000_000_000L;
+
     @Mock
     private MessageStorageService messageStorageService;
 
+    @Mock
+    private MessageWriteBehindBuffer writeBehindBuffer;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private KafkaConsumer kafkaConsumer;
     private MeterRegistry meterRegistry;
+    private final AtomicLong nextOffset = new AtomicLong();
 
     @BeforeEach
     void setUp() {
         meterRegistry = new SimpleMeterRegistry();
-        kafkaConsumer = new KafkaConsumer(messageStorageService, meterRegistry);
+        kafkaConsumer = new KafkaConsumer(messageStorageService, writeBehindBuffer, eventPublisher, meterRegistry);
     }
 
     @Test
@@ -37,44 +71,43 @@ class KafkaConsumerTest {
     void testConsumeMessageSuccess() {
         // Arrange
         String testMessage = "Test message";
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(1);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume(testMessage);
+        kafkaConsumer.consume(record(testMessage), acknowledgment);
 
         // Assert
         ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
-        verify(messageStorageService, times(1)).addMessage(messageCaptor.capture());
+        verify(messageStorageService, times(1)).addMessageIfAbsent(messageCaptor.capture());
 
         Message capturedMessage = messageCaptor.getValue();
         assertThat(capturedMessage.getContent()).isEqualTo(testMessage);
-        assertThat(capturedMessage.getStatus()).isEqualTo("PROCESSED");
+        assertThat(capturedMessage.getStatus()).isEqualTo(MessageStatus.PROCESSED);
         assertThat(capturedMessage.getId()).isNotNull();
         assertThat(capturedMessage.getTimestamp()).isGreaterThan(0);
+        verify(acknowledgment, times(1)).acknowledge();
+        verify(messageStorageService, never()).getMessageCount();
 
         // Verify counter incremented
         assertThat(meterRegistry.find("kafka.messages.consumed").counter().count()).isEqualTo(1.0);
     }
 
     @Test
-    @DisplayName("Should generate UUID for consumed message")
+    @DisplayName("Should generate UUID-formatted ID for consumed message")
     void testConsumeMessageGeneratesUUID() {
         // Arrange
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(1);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume("Message");
+        kafkaConsumer.consume(record("Message"), acknowledgment);
 
         // Assert
         ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
-        verify(messageStorageService).addMessage(messageCaptor.capture());
+        verify(messageStorageService).addMessageIfAbsent(messageCaptor.capture());
 
         Message message = messageCaptor.getValue();
-        assertThat(message.getId())
-                .isNotNull()
-                .isNotBlank()
+        assertThat(message.getId()).isNotNull();
+        assertThat(message.getId().toString())
                 .matches("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
     }
 
@@ -82,17 +115,16 @@ class KafkaConsumerTest {
     @DisplayName("Should set message status to PROCESSED")
     void testMessageStatusIsProcessed() {
         // Arrange
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(1);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume("Message");
+        kafkaConsumer.consume(record("Message"), acknowledgment);
 
         // Assert
         ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
-        verify(messageStorageService).addMessage(messageCaptor.capture());
+        verify(messageStorageService).addMessageIfAbsent(messageCaptor.capture());
 
-        assertThat(messageCaptor.getValue().getStatus()).isEqualTo("PROCESSED");
+        assertThat(messageCaptor.getValue().getStatus()).isEqualTo(MessageStatus.PROCESSED);
     }
 
     @Test
@@ -100,16 +132,15 @@ class KafkaConsumerTest {
     void testMessageTimestampIsSet() {
         // Arrange
         long beforeConsume = System.currentTimeMillis();
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(1);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume("Message");
+        kafkaConsumer.consume(record("Message"), acknowledgment);
         long afterConsume = System.currentTimeMillis();
 
         // Assert
         ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
-        verify(messageStorageService).addMessage(messageCaptor.capture());
+        verify(messageStorageService).addMessageIfAbsent(messageCaptor.capture());
 
         long messageTimestamp = messageCaptor.getValue().getTimestamp();
         assertThat(messageTimestamp)
@@ -121,14 +152,13 @@ class KafkaConsumerTest {
     @DisplayName("Should handle empty message")
     void testConsumeEmptyMessage() {
         // Arrange
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(1);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume("");
+        kafkaConsumer.consume(record(""), acknowledgment);
 
         // Assert
-        verify(messageStorageService, times(1)).addMessage(any(Message.class));
+        verify(messageStorageService, times(1)).addMessageIfAbsent(any(Message.class));
         assertThat(meterRegistry.find("kafka.messages.consumed").counter().count()).isEqualTo(1.0);
     }
 
@@ -137,15 +167,14 @@ class KafkaConsumerTest {
     void testConsumeLongMessage() {
         // Arrange
         String longMessage = "a".repeat(10000);
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(1);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume(longMessage);
+        kafkaConsumer.consume(record(longMessage), acknowledgment);
 
         // Assert
         ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
-        verify(messageStorageService).addMessage(messageCaptor.capture());
+        verify(messageStorageService).addMessageIfAbsent(messageCaptor.capture());
 
         assertThat(messageCaptor.getValue().getContent()).isEqualTo(longMessage);
     }
@@ -154,44 +183,44 @@ class KafkaConsumerTest {
     @DisplayName("Should increment consumed counter on successful consumption")
     void testCounterIncrementOnSuccess() {
         // Arrange
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(1);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume("Message 1");
-        kafkaConsumer.consume("Message 2");
-        kafkaConsumer.consume("Message 3");
+        kafkaConsumer.consume(record("Message 1"), acknowledgment);
+        kafkaConsumer.consume(record("Message 2"), acknowledgment);
+        kafkaConsumer.consume(record("Message 3"), acknowledgment);
 
         // Assert
         assertThat(meterRegistry.find("kafka.messages.consumed").counter().count()).isEqualTo(3.0);
     }
 
     @Test
-    @DisplayName("Should handle exception gracefully without throwing")
+    @DisplayName("Should rethrow storage failures so the record is re-delivered")
     void testConsumeMessageHandlesException() {
         // Arrange
-        doThrow(new RuntimeException("Storage error"))
-                .when(messageStorageService).addMessage(any(Message.class));
+        when(messageStorageService.addMessageIfAbsent(any(Message.class)))
+                .thenThrow(new RuntimeException("Storage error"));
 
-        // Act & Assert - Should not throw, logs the error
-        assertThatNoException().isThrownBy(() -> kafkaConsumer.consume("Message"));
+        // Act & Assert - The container must not commit past a record that was not stored
+        assertThatThrownBy(() -> kafkaConsumer.consume(record("Message"), acknowledgment))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Storage error");
 
-        // Note: The exception is caught and logged, so counter might not increment
-        // depending on implementation
+        verify(acknowledgment, never()).acknowledge();
+        assertThat(meterRegistry.find("kafka.messages.consumed").counter().count()).isEqualTo(0.0);
     }
 
     @Test
     @DisplayName("Should call MessageStorageService addMessage")
     void testCallsMessageStorageService() {
         // Arrange
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(1);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume("Test");
+        kafkaConsumer.consume(record("Test"), acknowledgment);
 
         // Assert
-        verify(messageStorageService, times(1)).addMessage(any(Message.class));
+        verify(messageStorageService, times(1)).addMessageIfAbsent(any(Message.class));
     }
 
     @Test
@@ -199,15 +228,14 @@ class KafkaConsumerTest {
     void testConsumeMessageWithSpecialCharacters() {
         // Arrange
         String specialMessage = "Test!@#$%^&*()_+-=[]{}|;':\",./<>? 中文 العربية";
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(1);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume(specialMessage);
+        kafkaConsumer.consume(record(specialMessage), acknowledgment);
 
         // Assert
         ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
-        verify(messageStorageService).addMessage(messageCaptor.capture());
+        verify(messageStorageService).addMessageIfAbsent(messageCaptor.capture());
 
         assertThat(messageCaptor.getValue().getContent()).isEqualTo(specialMessage);
     }
@@ -216,14 +244,13 @@ class KafkaConsumerTest {
     @DisplayName("Should handle null messageStorageService response")
     void testConsumeWithNullResponse() {
         // Arrange
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(0);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume("Message");
+        kafkaConsumer.consume(record("Message"), acknowledgment);
 
         // Assert
-        verify(messageStorageService, times(1)).addMessage(any(Message.class));
+        verify(messageStorageService, times(1)).addMessageIfAbsent(any(Message.class));
         assertThat(meterRegistry.find("kafka.messages.consumed").counter().count()).isEqualTo(1.0);
     }
 
@@ -232,16 +259,366 @@ class KafkaConsumerTest {
     void testConsumePreservesExactContent() {
         // Arrange
         String originalMessage = "  Leading and trailing spaces  \nNewline\tTab";
-        doNothing().when(messageStorageService).addMessage(any(Message.class));
-        when(messageStorageService.getMessageCount()).thenReturn(1);
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
 
         // Act
-        kafkaConsumer.consume(originalMessage);
+        kafkaConsumer.consume(record(originalMessage), acknowledgment);
 
         // Assert
         ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
-        verify(messageStorageService).addMessage(messageCaptor.capture());
+        verify(messageStorageService).addMessageIfAbsent(messageCaptor.capture());
 
         assertThat(messageCaptor.getValue().getContent()).isEqualTo(originalMessage);
     }
+
+    @Test
+    @DisplayName("Should store a whole batch with a single storage call")
+    @SuppressWarnings("unchecked")
+    void testConsumeBatchStoresAllMessagesAtOnce() {
+        // Arrange
+        List<ConsumerRecord<String, String>> records = List.of(
+                new ConsumerRecord<>("messages", 0, 0L, null, "Message 1"),
+                new ConsumerRecord<>("messages", 0, 1L, null, "Message 2"),
+                new ConsumerRecord<>("messages", 0, 2L, null, "Message 3")
+        );
+
+        when(messageStorageService.addMessagesIfAbsent(anyList())).thenReturn(3);
+
+        // Act
+        kafkaConsumer.consumeBatch(records, acknowledgment);
+
+        // Assert
+        ArgumentCaptor<List<Message>> batchCaptor = ArgumentCaptor.forClass(List.class);
+        verify(messageStorageService, times(1)).addMessagesIfAbsent(batchCaptor.capture());
+        verify(messageStorageService, never()).addMessageIfAbsent(any(Message.class));
+
+        assertThat(batchCaptor.getValue())
+                .extracting(Message::getContent)
+                .containsExactly("Message 1", "Message 2", "Message 3");
+        assertThat(batchCaptor.getValue())
+                .extracting(Message::getStatus)
+                .containsOnly(MessageStatus.PROCESSED);
+        verify(acknowledgment, times(1)).acknowledge();
+        assertThat(meterRegistry.find("kafka.messages.consumed").counter().count()).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("Should publish stored messages to in-process listeners")
+    void testConsumeBatchPublishesEvent() {
+        // Arrange
+        List<ConsumerRecord<String, String>> records = List.of(record("Message 1"), record("Message 2"));
+        when(messageStorageService.addMessagesIfAbsent(anyList())).thenReturn(2);
+
+        // Act
+        kafkaConsumer.consumeBatch(records, acknowledgment);
+
+        // Assert
+        ArgumentCaptor<MessagesConsumedEvent> eventCaptor = ArgumentCaptor.forClass(MessagesConsumedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getMessages())
+                .extracting(Message::getContent)
+                .containsExactly("Message 1", "Message 2");
+    }
+
+    @Test
+    @DisplayName("Should not redeliver a stored batch when a listener fails")
+    void testConsumeBatchIgnoresListenerFailure() {
+        // Arrange
+        when(messageStorageService.addMessagesIfAbsent(anyList())).thenReturn(1);
+        doThrow(new RuntimeException("Listener error")).when(eventPublisher).publishEvent(any(Object.class));
+
+        // Act & Assert
+        assertThatCode(() -> kafkaConsumer.consumeBatch(List.of(record("Message 1")), acknowledgment)).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("Should report the failing record of a batch to the error handler")
+    void testConsumeBatchHandlesException() {
+        // Arrange
+        when(messageStorageService.addMessagesIfAbsent(anyList()))
+                .thenThrow(new RuntimeException("Storage error"));
+        when(messageStorageService.addMessageIfAbsent(any(Message.class)))
+                .thenReturn(true)
+                .thenThrow(new RuntimeException("content is null"));
+        List<ConsumerRecord<String, String>> records = List.of(
+                new ConsumerRecord<>("messages", 0, 0L, null, "Message 1"),
+                new ConsumerRecord<>("messages", 0, 1L, null, null),
+                new ConsumerRecord<>("messages", 0, 2L, null, "Message 3")
+        );
+
+        // Act & Assert - Records before the poison one are stored, the rest are left for re-delivery
+        assertThatThrownBy(() -> kafkaConsumer.consumeBatch(records, acknowledgment))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class,
+                        e -> assertThat(e.getIndex()).isEqualTo(1));
+
+        verify(messageStorageService, times(2)).addMessageIfAbsent(any(Message.class));
+        verify(acknowledgment, never()).acknowledge();
+        assertThat(meterRegistry.find("kafka.messages.consumed").counter().count()).isEqualTo(1.0);
+        ArgumentCaptor<MessagesConsumedEvent> eventCaptor = ArgumentCaptor.forClass(MessagesConsumedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(eventCaptor.capture());
+        assertThat(eventCaptor.getValue().getMessages())
+                .extracting(Message::getContent)
+                .containsExactly("Message 1");
+    }
+
+    @Test
+    @DisplayName("Should count duplicates stored before the failing record of a batch")
+    void testConsumeBatchCountsDuplicatesBeforeFailure() {
+        // Arrange
+        when(messageStorageService.addMessagesIfAbsent(anyList()))
+                .thenThrow(new RuntimeException("Storage error"));
+        when(messageStorageService.addMessageIfAbsent(any(Message.class)))
+                .thenReturn(true)
+                .thenReturn(false)
+                .thenThrow(new RuntimeException("Storage error"));
+        List<ConsumerRecord<String, String>> records = List.of(
+                record("Message 1"), record("Message 2"), record("Message 3"));
+
+        // Act
+        assertThatThrownBy(() -> kafkaConsumer.consumeBatch(records, acknowledgment))
+                .isInstanceOf(BatchListenerFailedException.class);
+
+        // Assert
+        assertThat(meterRegistry.find("kafka.messages.duplicate").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.find("kafka.messages.consumed").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Should fall back to single inserts when a batch insert fails transiently")
+    void testConsumeBatchFallsBackToSingleInserts() {
+        // Arrange
+        when(messageStorageService.addMessagesIfAbsent(anyList()))
+                .thenThrow(new RuntimeException("Deadlock detected"));
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
+        List<ConsumerRecord<String, String>> records = List.of(
+                new ConsumerRecord<>("messages", 0, 0L, null, "Message 1"),
+                new ConsumerRecord<>("messages", 0, 1L, null, "Message 2")
+        );
+
+        // Act
+        kafkaConsumer.consumeBatch(records, acknowledgment);
+
+        // Assert
+        verify(messageStorageService, times(2)).addMessageIfAbsent(any(Message.class));
+        assertThat(meterRegistry.find("kafka.messages.consumed").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Should queue the batch and leave acknowledging it to the buffer in write-behind mode")
+    void testConsumeBatchWriteBehind() {
+        // Arrange
+        when(writeBehindBuffer.isEnabled()).thenReturn(true);
+        List<ConsumerRecord<String, String>> records = List.of(
+                new ConsumerRecord<>("messages", 0, 0L, null, "Message 1"),
+                new ConsumerRecord<>("messages", 0, 1L, null, "Message 2")
+        );
+
+        // Act
+        kafkaConsumer.consumeBatch(records, acknowledgment);
+
+        // Assert
+        verify(writeBehindBuffer, times(1)).enqueue(eq(records), argThat(messages -> messages.size() == 2), eq(acknowledgment));
+        verifyNoInteractions(messageStorageService);
+        verifyNoInteractions(eventPublisher);
+        verifyNoInteractions(acknowledgment);
+        assertThat(meterRegistry.find("kafka.messages.consumed").counter().count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Should nack a retry record that is not yet due")
+    void testConsumeRetryWaitsForBackOff() {
+        // Arrange
+        ConsumerRecord<String, String> record = retryRecord(2, System.currentTimeMillis() + 60_000);
+
+        // Act
+        kafkaConsumer.consumeRetry(record, acknowledgment);
+
+        // Assert
+        verify(acknowledgment).nack(any(Duration.class));
+        verify(acknowledgment, never()).acknowledge();
+        verifyNoInteractions(messageStorageService);
+    }
+
+    @Test
+    @DisplayName("Should store a due retry record under its original ID with retry details")
+    void testConsumeRetryStoresWithOriginalId() {
+        // Arrange
+        ConsumerRecord<String, String> record = retryRecord(2, System.currentTimeMillis() - 1);
+        when(messageStorageService.recordAttempt(any(Message.class))).thenReturn(true);
+
+        // Act
+        kafkaConsumer.consumeRetry(record, acknowledgment);
+
+        // Assert
+        ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(messageStorageService).recordAttempt(messageCaptor.capture());
+        verify(acknowledgment).acknowledge();
+
+        Message message = messageCaptor.getValue();
+        assertThat(message.getId()).isEqualTo(KafkaConsumer.messageId("messages", 1, 99L));
+        assertThat(message.getStatus()).isEqualTo(MessageStatus.PROCESSED);
+        assertThat(message.getRetryCount()).isEqualTo(2);
+        assertThat(message.getErrorMessage()).isEqualTo("Storage error");
+        assertThat(message.getSourceTopic()).isEqualTo("messages");
+        assertThat(message.getCreatedAt()).isEqualTo(new Date(ORIGINAL_TIMESTAMP));
+        assertThat(meterRegistry.find("kafka.messages.retried").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should store a dead-lettered record as FAILED")
+    void testConsumeDeadLetterStoresFailedMessage() {
+        // Arrange
+        ConsumerRecord<String, String> record = retryRecord(4, 0L);
+        when(messageStorageService.recordAttempt(any(Message.class))).thenReturn(true);
+
+        // Act
+        kafkaConsumer.consumeDeadLetter(record, acknowledgment);
+
+        // Assert
+        ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(messageStorageService).recordAttempt(messageCaptor.capture());
+        verify(acknowledgment).acknowledge();
+
+        assertThat(messageCaptor.getValue().getStatus()).isEqualTo(MessageStatus.FAILED);
+        assertThat(messageCaptor.getValue().getRetryCount()).isEqualTo(4);
+        assertThat(meterRegistry.find("kafka.messages.dead_lettered").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should record a failed attempt as PENDING with the next retry count and the error")
+    void testRecordFailedAttempt() {
+        // Arrange
+        ConsumerRecord<String, String> record = retryRecord(2, 0L);
+
+        // Act
+        kafkaConsumer.recordFailedAttempt(record,
+                new ListenerExecutionFailedException("Listener failed", new RuntimeException("Database down")));
+
+        // Assert
+        ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(messageStorageService).recordAttempt(messageCaptor.capture());
+
+        Message message = messageCaptor.getValue();
+        assertThat(message.getId()).isEqualTo(KafkaConsumer.messageId("messages", 1, 99L));
+        assertThat(message.getStatus()).isEqualTo(MessageStatus.PENDING);
+        assertThat(message.getRetryCount()).isEqualTo(3);
+        assertThat(message.getErrorMessage()).isEqualTo("Database down");
+    }
+
+    @Test
+    @DisplayName("Should not fail recovery when a failed attempt cannot be recorded")
+    void testRecordFailedAttemptError() {
+        // Arrange
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("messages", 0, 5L, null, "Message");
+        when(messageStorageService.recordAttempt(any(Message.class))).thenThrow(new RuntimeException("Database error"));
+
+        // Act & Assert
+        assertThatCode(() -> kafkaConsumer.recordFailedAttempt(record, new RuntimeException("Database error")))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("Should derive the same ID when a record is re-delivered")
+    void testMessageIdIsDeterministic() {
+        // Arrange
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("messages", 2, 1234L, null, "Message");
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true, false);
+
+        // Act
+        kafkaConsumer.consume(record, acknowledgment);
+        kafkaConsumer.consume(record, acknowledgment);
+
+        // Assert
+        ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(messageStorageService, times(2)).addMessageIfAbsent(messageCaptor.capture());
+
+        List<Message> stored = messageCaptor.getAllValues();
+        assertThat(stored.get(0).getId()).isEqualTo(stored.get(1).getId());
+        assertThat(meterRegistry.find("kafka.messages.duplicate").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should take the creation time from the record's timestamp, or a fixed time without one")
+    void testCreatedAtIsRecordTimestamp() {
+        // Arrange
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("messages", 0, 7L, ORIGINAL_TIMESTAMP,
+                TimestampType.CREATE_TIME, 0, 7, null, "Message", new RecordHeaders(), Optional.empty());
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
+
+        // Act
+        kafkaConsumer.consume(record, acknowledgment);
+        kafkaConsumer.consume(record("No timestamp"), acknowledgment);
+
+        // Assert
+        ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(messageStorageService, times(2)).addMessageIfAbsent(messageCaptor.capture());
+        assertThat(messageCaptor.getAllValues().get(0).getCreatedAt()).isEqualTo(new Date(ORIGINAL_TIMESTAMP));
+        assertThat(messageCaptor.getAllValues().get(1).getCreatedAt())
+                .isEqualTo(new Date(KafkaConsumer.NO_RECORD_TIME));
+    }
+
+    @Test
+    @DisplayName("Should keep the record key so a replay can send the message with it")
+    void testKeepsRecordKey() {
+        // Arrange
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("messages", 0, 7L, "order-42", "Message");
+        when(messageStorageService.addMessageIfAbsent(any(Message.class))).thenReturn(true);
+
+        // Act
+        kafkaConsumer.consume(record, acknowledgment);
+        kafkaConsumer.consume(record("No key"), acknowledgment);
+
+        // Assert
+        ArgumentCaptor<Message> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(messageStorageService, times(2)).addMessageIfAbsent(messageCaptor.capture());
+        assertThat(messageCaptor.getAllValues().get(0).getKey()).isEqualTo("order-42");
+        assertThat(messageCaptor.getAllValues().get(1).getKey()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should derive distinct IDs for distinct log positions")
+    void testMessageIdsDifferByPosition() {
+        // Act
+        UUID id = KafkaConsumer.messageId("messages", 0, 10L);
+
+        // Assert
+        assertThat(id).isNotEqualTo(KafkaConsumer.messageId("messages", 0, 11L));
+        assertThat(id).isNotEqualTo(KafkaConsumer.messageId("messages", 1, 10L));
+        assertThat(id).isNotEqualTo(KafkaConsumer.messageId("other-topic", 0, 10L));
+        assertThat(KafkaConsumer.messageId("messages", 0, 10L)).isEqualTo(id);
+    }
+
+    @Test
+    @DisplayName("Should derive valid version 8 IDs that keep apart topics with equal hash codes")
+    void testMessageIdLayout() {
+        // Act
+        UUID id = KafkaConsumer.messageId("Aa", 0, 10L);
+        UUID sameHashCode = KafkaConsumer.messageId("BB", 0, 10L);
+
+        // Assert
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        assertThat(id).isNotEqualTo(sameHashCode);
+        assertThat(id.version()).isEqualTo(8);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getLeastSignificantBits() & 0x3FFFFFFFFFFFFFFFL).isEqualTo(10L);
+        assertThat(KafkaConsumer.messageId("Aa", 0, 11L).getMostSignificantBits())
+                .isEqualTo(id.getMostSignificantBits());
+    }
+
+    private ConsumerRecord<String, String> retryRecord(int attempt, long dueAt) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("messages-retry-1", 0, 5L, null, "Message");
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_TOPIC, "messages".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(1).array());
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(99L).array());
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_TIMESTAMP,
+                ByteBuffer.allocate(Long.BYTES).putLong(ORIGINAL_TIMESTAMP).array());
+        record.headers().add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, "Storage error".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(RetryTopicRouter.ATTEMPT_HEADER, ByteBuffer.allocate(Integer.BYTES).putInt(attempt).array());
+        record.headers().add(RetryTopicRouter.DUE_AT_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(dueAt).array());
+        return record;
+    }
+
+    private ConsumerRecord<String, String> record(String value) {
+        return new ConsumerRecord<>("messages", 0, nextOffset.getAndIncrement(), null, value);
+    }
 }
@@ -0,0 +1,86 @@
+package com.kafka.app.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("RetryTopicRouter Unit Tests")
+class RetryTopicRouterTest {
+
+    private RetryTopicRouter router;
+
+    @BeforeEach
+    void setUp() {
+        router = new RetryTopicRouter(List.of(1000L, 10000L));
+    }
+
+    @Test
+    @DisplayName("Should list one retry topic per delay tier")
+    void testRetryTopics() {
+        assertThat(router.getRetryTopics()).containsExactly("messages-retry-0", "messages-retry-1");
+    }
+
+    @Test
+    @DisplayName("Should route through every retry tier and then to the dead-letter topic")
+    void testRoutesThroughTiers() {
+        // Arrange
+        ConsumerRecord<String, String> original = new ConsumerRecord<>("messages", 0, 0L, null, "Message");
+
+        // Act
+        ConsumerRecord<String, String> firstRetry = republish(original, "messages-retry-0");
+        ConsumerRecord<String, String> secondRetry = republish(firstRetry, "messages-retry-1");
+        TopicPartition afterLastTier = router.nextDestination(secondRetry, new RuntimeException("Still failing"));
+
+        // Assert
+        assertThat(RetryTopicRouter.attempt(original)).isZero();
+        assertThat(RetryTopicRouter.attempt(firstRetry)).isEqualTo(1);
+        assertThat(RetryTopicRouter.attempt(secondRetry)).isEqualTo(2);
+        assertThat(afterLastTier.topic()).isEqualTo("messages-dlt");
+    }
+
+    @Test
+    @DisplayName("Should set the due time from the tier's delay")
+    void testDueTimeFollowsTierDelay() {
+        // Arrange
+        ConsumerRecord<String, String> original = new ConsumerRecord<>("messages", 0, 0L, null, "Message");
+        long before = System.currentTimeMillis();
+
+        // Act
+        ConsumerRecord<String, String> firstRetry = republish(original, "messages-retry-0");
+
+        // Assert
+        assertThat(RetryTopicRouter.dueAt(firstRetry))
+                .isGreaterThanOrEqualTo(before + 1000L)
+                .isLessThanOrEqualTo(System.currentTimeMillis() + 1000L);
+    }
+
+    @Test
+    @DisplayName("Should not route records that fail on the dead-letter topic")
+    void testDeadLetterIsTerminal() {
+        ConsumerRecord<String, String> deadLetter = new ConsumerRecord<>("messages-dlt", 0, 0L, null, "Message");
+
+        assertThat(router.nextDestination(deadLetter, new RuntimeException("Storage error"))).isNull();
+    }
+
+    private ConsumerRecord<String, String> republish(ConsumerRecord<String, String> record, String expectedTopic) {
+        RuntimeException failure = new RuntimeException("Storage error");
+        TopicPartition destination = router.nextDestination(record, failure);
+        assertThat(destination.topic()).isEqualTo(expectedTopic);
+
+        Headers headers = router.nextHeaders(record, failure);
+        ConsumerRecord<String, String> republished =
+                new ConsumerRecord<>(destination.topic(), 0, 0L, record.key(), record.value());
+        for (Header header : headers) {
+            republished.headers().add(header);
+        }
+        return republished;
+    }
+}
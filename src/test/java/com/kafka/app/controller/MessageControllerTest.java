@@ -1,21 +1,40 @@
 package com.kafka.app.controller;
 
 import com.kafka.app.dto.ApiResponse;
+import com.kafka.app.dto.BatchSendItemResult;
 import com.kafka.app.dto.MessageRequest;
+import com.kafka.app.dto.MessageSendResult;
+import com.kafka.app.dto.MessageSummary;
 import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
 import com.kafka.app.producer.KafkaProducer;
+import com.kafka.app.service.MessageBroadcaster;
+import com.kafka.app.service.MessageCursor;
+import com.kafka.app.service.MessageSearchService;
 import com.kafka.app.service.MessageStorageService;
+import com.kafka.app.service.RecentMessageBuffer;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.hamcrest.Matchers.*;
@@ -28,6 +47,12 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @DisplayName("MessageController Unit Tests")
 class MessageControllerTest {
 
+    private static final UUID MESSAGE_ID = UUID.fromString("6f1c2a9e-3b4d-4c5e-8f70-9a1b2c3d4e5f");
+    /** The default of app.messages.list.max-size. */
+    private static final int MAX_LIST_SIZE = 10_000;
+
+    private static final UUID MISSING_ID = UUID.fromString("0b7e4d21-8c6a-4f3e-9d12-5e6f7a8b9c0d");
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -37,14 +62,23 @@ class MessageControllerTest {
     @MockBean
     private MessageStorageService messageStorageService;
 
+    @MockBean
+    private MessageSearchService messageSearchService;
+
+    @MockBean
+    private RecentMessageBuffer recentMessageBuffer;
+
+    @MockBean
+    private MessageBroadcaster messageBroadcaster;
+
     @Test
     @DisplayName("Should send message successfully via POST")
     void testSendMessageSuccess() throws Exception {
         // Arrange
-        doNothing().when(kafkaProducer).sendMessage(anyString());
+        when(kafkaProducer.sendMessageAsync(any(), anyString())).thenReturn(acknowledged());
 
         // Act & Assert
-        mockMvc.perform(post("/api/messages/send")
+        performAsync(post("/api/messages/send")
                         .param("message", "Test message")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -52,91 +86,190 @@ class MessageControllerTest {
                 .andExpect(jsonPath("$.message", containsString("sent successfully")))
                 .andExpect(jsonPath("$.data", is("Test message")));
 
-        verify(kafkaProducer, times(1)).sendMessage("Test message");
+        verify(kafkaProducer, times(1)).sendMessageAsync(null, "Test message");
     }
 
     @Test
     @DisplayName("Should return 500 when sending message fails")
     void testSendMessageFailure() throws Exception {
         // Arrange
-        doThrow(new RuntimeException("Kafka error"))
-                .when(kafkaProducer).sendMessage(anyString());
+        when(kafkaProducer.sendMessageAsync(any(), anyString()))
+                .thenThrow(new RuntimeException("Kafka error"));
 
         // Act & Assert
-        mockMvc.perform(post("/api/messages/send")
+        performAsync(post("/api/messages/send")
                         .param("message", "Test message")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.success", is(false)))
                 .andExpect(jsonPath("$.message", containsString("Failed to send message")));
 
-        verify(kafkaProducer, times(1)).sendMessage("Test message");
+        verify(kafkaProducer, times(1)).sendMessageAsync(null, "Test message");
     }
 
     @Test
     @DisplayName("Should send JSON message successfully")
     void testSendJsonMessageSuccess() throws Exception {
         // Arrange
-        doNothing().when(kafkaProducer).sendMessage(anyString());
+        when(kafkaProducer.sendMessageAsync(any(), anyString())).thenReturn(acknowledged());
         String jsonPayload = "{\"message\": \"Test JSON message\"}";
 
         // Act & Assert
-        mockMvc.perform(post("/api/messages/send-json")
+        performAsync(post("/api/messages/send-json")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(jsonPayload))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success", is(true)))
                 .andExpect(jsonPath("$.message", containsString("sent successfully")));
 
-        verify(kafkaProducer, times(1)).sendMessage("Test JSON message");
+        verify(kafkaProducer, times(1)).sendMessageAsync(null, "Test JSON message");
     }
 
     @Test
     @DisplayName("Should return 500 when sending JSON message fails")
     void testSendJsonMessageFailure() throws Exception {
         // Arrange
-        doThrow(new RuntimeException("Kafka error"))
-                .when(kafkaProducer).sendMessage(anyString());
+        when(kafkaProducer.sendMessageAsync(any(), anyString()))
+                .thenThrow(new RuntimeException("Kafka error"));
         String jsonPayload = "{\"message\": \"Test message\"}";
 
         // Act & Assert
-        mockMvc.perform(post("/api/messages/send-json")
+        performAsync(post("/api/messages/send-json")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(jsonPayload))
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.success", is(false)));
 
-        verify(kafkaProducer, times(1)).sendMessage(anyString());
+        verify(kafkaProducer, times(1)).sendMessageAsync(any(), anyString());
     }
 
     @Test
-    @DisplayName("Should retrieve all messages")
+    @DisplayName("Should retrieve all messages in full when requested")
     void testGetAllMessages() throws Exception {
         // Arrange
-        Message msg1 = new Message("id1", "Content 1", System.currentTimeMillis(), "PROCESSED", null, null);
-        Message msg2 = new Message("id2", "Content 2", System.currentTimeMillis(), "PROCESSED", null, null);
-        List<Message> messages = Arrays.asList(msg1, msg2);
-
-        when(messageStorageService.getAllMessages()).thenReturn(messages);
+        Message msg1 = new Message(id(1), "Content 1", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
+        Message msg2 = new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
+        when(messageStorageService.getMessagesAfter(isNull(), eq(MAX_LIST_SIZE)))
+                .thenReturn(new SliceImpl<>(List.of(msg1, msg2)));
 
         // Act & Assert
-        mockMvc.perform(get("/api/messages")
+        mockMvc.perform(get("/api/messages").param("full", "true")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success", is(true)))
                 .andExpect(jsonPath("$.message", containsString("retrieved successfully")))
                 .andExpect(jsonPath("$.data", hasSize(2)))
-                .andExpect(jsonPath("$.data[0].id", is("id1")))
-                .andExpect(jsonPath("$.data[1].id", is("id2")));
+                .andExpect(jsonPath("$.data[0].id", is(id(1).toString())))
+                .andExpect(jsonPath("$.data[0].content", is("Content 1")))
+                .andExpect(jsonPath("$.data[0].retryCount", is(0)))
+                .andExpect(jsonPath("$.data[1].id", is(id(2).toString())));
 
-        verify(messageStorageService, times(1)).getAllMessages();
+        verify(messageStorageService, never()).getMessageSummariesAfter(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should retrieve summaries by default")
+    void testGetAllMessagesSummary() throws Exception {
+        // Arrange
+        MessageSummary msg1 = new MessageSummary(id(1), MessageStatus.PROCESSED, System.currentTimeMillis(), null, "Content 1");
+        when(messageStorageService.getMessageSummariesAfter(isNull(), eq(MAX_LIST_SIZE), eq(200)))
+                .thenReturn(new SliceImpl<>(List.of(msg1)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].id", is(id(1).toString())))
+                .andExpect(jsonPath("$.data[0].truncated", is(false)));
+
+        verify(messageStorageService, never()).getMessagesAfter(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should list messages by status as summaries unless full is requested")
+    void testGetMessagesByStatus() throws Exception {
+        // Arrange
+        MessageSummary summary = new MessageSummary(id(1), MessageStatus.FAILED, 1L, null, "Content 1");
+        Message message = new Message(id(1), "Content 1", 1L, MessageStatus.FAILED, null, null);
+        when(messageStorageService.getMessageSummariesByStatus(MessageStatus.FAILED, MAX_LIST_SIZE, 200))
+                .thenReturn(new SliceImpl<>(List.of(summary)));
+        when(messageStorageService.getMessagesByStatus(MessageStatus.FAILED, MAX_LIST_SIZE))
+                .thenReturn(new SliceImpl<>(List.of(message)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/status/FAILED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].truncated", is(false)))
+                .andExpect(jsonPath("$.data[0].retryCount").doesNotExist());
+        mockMvc.perform(get("/api/messages/status/FAILED").param("full", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].retryCount", is(0)));
+        mockMvc.perform(get("/api/messages/status/UNKNOWN"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Should list messages in a date range as summaries and reject a reversed range")
+    void testGetMessagesByDateRange() throws Exception {
+        // Arrange
+        MessageSummary summary = new MessageSummary(id(1), MessageStatus.PROCESSED, 1L, null, "Content 1");
+        when(messageStorageService.getMessageSummariesByDateRange(ArgumentMatchers.any(java.util.Date.class),
+                ArgumentMatchers.any(java.util.Date.class),
+                eq(MAX_LIST_SIZE), eq(200)))
+                .thenReturn(new SliceImpl<>(List.of(summary), PageRequest.ofSize(MAX_LIST_SIZE), true));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/range")
+                        .param("from", "2024-01-01T00:00:00.000Z").param("to", "2024-01-02T00:00:00.000Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message", containsString("Newest " + MAX_LIST_SIZE)))
+                .andExpect(jsonPath("$.data", hasSize(1)));
+        mockMvc.perform(get("/api/messages/range")
+                        .param("from", "2024-01-02T00:00:00.000Z").param("to", "2024-01-01T00:00:00.000Z"))
+                .andExpect(status().isBadRequest());
+
+        verify(messageStorageService, never()).getMessagesByDateRange(any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should list processed messages as summaries")
+    void testGetProcessedMessages() throws Exception {
+        // Arrange
+        MessageSummary summary = new MessageSummary(id(1), MessageStatus.PROCESSED, 1L, null, "Content 1");
+        when(messageStorageService.getProcessedMessageSummaries(MAX_LIST_SIZE, 200))
+                .thenReturn(new SliceImpl<>(List.of(summary)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/processed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message", containsString("retrieved successfully")))
+                .andExpect(jsonPath("$.data[0].id", is(id(1).toString())));
+
+        verify(messageStorageService, never()).getProcessedMessages(anyInt());
+    }
+
+    @Test
+    @DisplayName("Should list only the newest messages beyond the list size and say so")
+    void testGetAllMessagesCapped() throws Exception {
+        // Arrange
+        MessageSummary newest = new MessageSummary(id(1), MessageStatus.PROCESSED, System.currentTimeMillis(), null, "Content 1");
+        when(messageStorageService.getMessageSummariesAfter(isNull(), eq(MAX_LIST_SIZE), eq(200)))
+                .thenReturn(new SliceImpl<>(List.of(newest), PageRequest.ofSize(MAX_LIST_SIZE), true));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success", is(true)))
+                .andExpect(jsonPath("$.message", containsString("Newest " + MAX_LIST_SIZE)))
+                .andExpect(jsonPath("$.data", hasSize(1)));
     }
 
     @Test
     @DisplayName("Should return empty list when no messages stored")
     void testGetAllMessagesEmpty() throws Exception {
         // Arrange
-        when(messageStorageService.getAllMessages()).thenReturn(Collections.emptyList());
+        when(messageStorageService.getMessageSummariesAfter(isNull(), eq(MAX_LIST_SIZE), eq(200)))
+                .thenReturn(new SliceImpl<>(List.of()));
 
         // Act & Assert
         mockMvc.perform(get("/api/messages")
@@ -145,49 +278,112 @@ class MessageControllerTest {
                 .andExpect(jsonPath("$.success", is(true)))
                 .andExpect(jsonPath("$.data", hasSize(0)));
 
-        verify(messageStorageService, times(1)).getAllMessages();
+        verify(messageStorageService, times(1)).getMessageSummariesAfter(null, MAX_LIST_SIZE, 200);
+    }
+
+    @Test
+    @DisplayName("Should reject a cursor without a limit instead of listing everything")
+    void testGetAllMessagesWithCursorWithoutLimit() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/messages").param("after", "anything"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success", is(false)))
+                .andExpect(jsonPath("$.message", containsString("requires 'limit'")));
+
+        verifyNoInteractions(messageStorageService);
+    }
+
+    @Test
+    @DisplayName("Should tag the message list and count with the storage version")
+    void testConditionalGetTags() throws Exception {
+        // Arrange
+        when(messageStorageService.getVersionTag()).thenReturn("v-1");
+        when(messageStorageService.getLastModified()).thenReturn(1_700_000_000_000L);
+        when(messageStorageService.getMessageSummariesAfter(isNull(), eq(MAX_LIST_SIZE), eq(200)))
+                .thenReturn(new SliceImpl<>(List.of()));
+        when(messageStorageService.getMessageCount()).thenReturn(0);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v-1\""))
+                .andExpect(header().exists("Last-Modified"));
+        mockMvc.perform(get("/api/messages/count"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"v-1\""));
+    }
+
+    @Test
+    @DisplayName("Should answer 304 without querying when the version is unchanged")
+    void testConditionalGetNotModified() throws Exception {
+        // Arrange
+        when(messageStorageService.getVersionTag()).thenReturn("v-1");
+        when(messageStorageService.getLastModified()).thenReturn(1_700_000_000_000L);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages").header("If-None-Match", "\"v-1\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/messages/count").header("If-None-Match", "\"v-1\""))
+                .andExpect(status().isNotModified());
+
+        verify(messageStorageService, never()).getMessageSummariesAfter(any(), anyInt(), anyInt());
+        verify(messageStorageService, never()).getMessageCount();
     }
 
     @Test
     @DisplayName("Should retrieve message by ID")
     void testGetMessageById() throws Exception {
         // Arrange
-        Message message = new Message("id1", "Test content", System.currentTimeMillis(), "PROCESSED", null, null);
-        when(messageStorageService.getMessageById("id1")).thenReturn(message);
+        Message message = new Message(MESSAGE_ID, "Test content", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
+        when(messageStorageService.getMessageById(MESSAGE_ID)).thenReturn(message);
 
         // Act & Assert
-        mockMvc.perform(get("/api/messages/id1")
+        mockMvc.perform(get("/api/messages/" + MESSAGE_ID)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success", is(true)))
-                .andExpect(jsonPath("$.data.id", is("id1")))
+                .andExpect(jsonPath("$.data.id", is(MESSAGE_ID.toString())))
                 .andExpect(jsonPath("$.data.content", is("Test content")))
                 .andExpect(jsonPath("$.data.status", is("PROCESSED")));
 
-        verify(messageStorageService, times(1)).getMessageById("id1");
+        verify(messageStorageService, times(1)).getMessageById(MESSAGE_ID);
     }
 
     @Test
     @DisplayName("Should return 404 when message not found")
     void testGetMessageByIdNotFound() throws Exception {
         // Arrange
-        when(messageStorageService.getMessageById("nonexistent")).thenReturn(null);
+        when(messageStorageService.getMessageById(MISSING_ID)).thenReturn(null);
 
         // Act & Assert
-        mockMvc.perform(get("/api/messages/nonexistent")
+        mockMvc.perform(get("/api/messages/" + MISSING_ID)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.success", is(false)))
                 .andExpect(jsonPath("$.message", containsString("not found")));
 
-        verify(messageStorageService, times(1)).getMessageById("nonexistent");
+        verify(messageStorageService, times(1)).getMessageById(MISSING_ID);
+    }
+
+    @Test
+    @DisplayName("Should return 404 for a malformed ID without querying the database")
+    void testGetMessageByIdMalformed() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/not-a-uuid"))
+                .andExpect(status().isNotFound());
+        performAsync(post("/api/messages/not-a-uuid/replay"))
+                .andExpect(status().isNotFound());
+
+        verify(messageStorageService, never()).getMessageById(ArgumentMatchers.any(UUID.class));
+        verify(messageStorageService, never()).markReplayed(ArgumentMatchers.any(UUID.class));
     }
 
     @Test
     @DisplayName("Should handle exception when retrieving all messages")
     void testGetAllMessagesException() throws Exception {
         // Arrange
-        when(messageStorageService.getAllMessages()).thenThrow(new RuntimeException("Database error"));
+        when(messageStorageService.getMessageSummariesAfter(isNull(), eq(MAX_LIST_SIZE), eq(200)))
+                .thenThrow(new RuntimeException("Database error"));
 
         // Act & Assert
         mockMvc.perform(get("/api/messages")
@@ -196,39 +392,39 @@ class MessageControllerTest {
                 .andExpect(jsonPath("$.success", is(false)))
                 .andExpect(jsonPath("$.message", containsString("Failed to retrieve messages")));
 
-        verify(messageStorageService, times(1)).getAllMessages();
+        verify(messageStorageService, times(1)).getMessageSummariesAfter(null, MAX_LIST_SIZE, 200);
     }
 
     @Test
     @DisplayName("Should handle exception when retrieving message by ID")
     void testGetMessageByIdException() throws Exception {
         // Arrange
-        when(messageStorageService.getMessageById(anyString()))
+        when(messageStorageService.getMessageById(ArgumentMatchers.any(UUID.class)))
                 .thenThrow(new RuntimeException("Database error"));
 
         // Act & Assert
-        mockMvc.perform(get("/api/messages/id1")
+        mockMvc.perform(get("/api/messages/" + MESSAGE_ID)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isInternalServerError())
                 .andExpect(jsonPath("$.success", is(false)));
 
-        verify(messageStorageService, times(1)).getMessageById(anyString());
+        verify(messageStorageService, times(1)).getMessageById(ArgumentMatchers.any(UUID.class));
     }
 
     @Test
     @DisplayName("Should handle empty message parameter")
     void testSendMessageWithEmptyParameter() throws Exception {
         // Arrange
-        doNothing().when(kafkaProducer).sendMessage(anyString());
+        when(kafkaProducer.sendMessageAsync(any(), anyString())).thenReturn(acknowledged());
 
         // Act & Assert
-        mockMvc.perform(post("/api/messages/send")
+        performAsync(post("/api/messages/send")
                         .param("message", "")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success", is(true)));
 
-        verify(kafkaProducer, times(1)).sendMessage("");
+        verify(kafkaProducer, times(1)).sendMessageAsync(null, "");
     }
 
     @Test
@@ -236,24 +432,25 @@ class MessageControllerTest {
     void testSendMessageWithSpecialCharacters() throws Exception {
         // Arrange
         String specialMessage = "Test!@#$%^&*()_+-=[]{}|;':\",./<>?";
-        doNothing().when(kafkaProducer).sendMessage(specialMessage);
+        when(kafkaProducer.sendMessageAsync(null, specialMessage)).thenReturn(acknowledged());
 
         // Act & Assert
-        mockMvc.perform(post("/api/messages/send")
+        performAsync(post("/api/messages/send")
                         .param("message", specialMessage)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success", is(true)))
                 .andExpect(jsonPath("$.data", is(specialMessage)));
 
-        verify(kafkaProducer, times(1)).sendMessage(specialMessage);
+        verify(kafkaProducer, times(1)).sendMessageAsync(null, specialMessage);
     }
 
     @Test
     @DisplayName("Should support CORS headers")
     void testCORSHeaders() throws Exception {
         // Arrange
-        when(messageStorageService.getAllMessages()).thenReturn(Collections.emptyList());
+        when(messageStorageService.getMessageSummariesAfter(isNull(), eq(MAX_LIST_SIZE), eq(200)))
+                .thenReturn(new SliceImpl<>(List.of()));
 
         // Act & Assert
         mockMvc.perform(get("/api/messages")
@@ -267,30 +464,30 @@ class MessageControllerTest {
     void testSendMessageWithLongContent() throws Exception {
         // Arrange
         String longMessage = "a".repeat(5000);
-        doNothing().when(kafkaProducer).sendMessage(longMessage);
+        when(kafkaProducer.sendMessageAsync(null, longMessage)).thenReturn(acknowledged());
 
         // Act & Assert
-        mockMvc.perform(post("/api/messages/send")
+        performAsync(post("/api/messages/send")
                         .param("message", longMessage)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success", is(true)));
 
-        verify(kafkaProducer, times(1)).sendMessage(longMessage);
+        verify(kafkaProducer, times(1)).sendMessageAsync(null, longMessage);
     }
 
     @Test
     @DisplayName("Should return API response with timestamp")
     void testApiResponseIncludesTimestamp() throws Exception {
         // Arrange
-        doNothing().when(kafkaProducer).sendMessage(anyString());
+        when(kafkaProducer.sendMessageAsync(any(), anyString())).thenReturn(acknowledged());
 
         // Act & Assert
-        mockMvc.perform(post("/api/messages/send")
+        performAsync(post("/api/messages/send")
                         .param("message", "Test")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.timestamp", greaterThan(0)));
+                .andExpect(jsonPath("$.timestamp", greaterThan(0L)));
     }
 
     @Test
@@ -300,7 +497,7 @@ class MessageControllerTest {
         String jsonPayload = "{}";
 
         // Act & Assert
-        mockMvc.perform(post("/api/messages/send-json")
+        performAsync(post("/api/messages/send-json")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(jsonPayload))
                 .andExpect(status().is4xxClientError());
@@ -311,15 +508,499 @@ class MessageControllerTest {
     void testGetCorrectMessageContent() throws Exception {
         // Arrange
         String expectedContent = "Expected message content";
-        Message message = new Message("id1", expectedContent, System.currentTimeMillis(), "PROCESSED", null, null);
-        when(messageStorageService.getMessageById("id1")).thenReturn(message);
+        Message message = new Message(MESSAGE_ID, expectedContent, System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
+        when(messageStorageService.getMessageById(MESSAGE_ID)).thenReturn(message);
 
         // Act & Assert
-        mockMvc.perform(get("/api/messages/id1")
+        mockMvc.perform(get("/api/messages/" + MESSAGE_ID)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.data.content", is(expectedContent)));
 
-        verify(messageStorageService, times(1)).getMessageById("id1");
+        verify(messageStorageService, times(1)).getMessageById(MESSAGE_ID);
+    }
+
+    @Test
+    @DisplayName("Should return partition and offset once the broker acknowledges")
+    void testSendJsonMessageReturnsSendResult() throws Exception {
+        // Arrange
+        when(kafkaProducer.sendMessageAsync(null, "Test JSON message"))
+                .thenReturn(CompletableFuture.completedFuture(new MessageSendResult("messages", 2, 17L, 0L)));
+        String jsonPayload = "{\"message\": \"Test JSON message\"}";
+
+        // Act & Assert
+        performAsync(post("/api/messages/send-json")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonPayload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.topic", is("messages")))
+                .andExpect(jsonPath("$.data.partition", is(2)))
+                .andExpect(jsonPath("$.data.offset", is(17)));
+    }
+
+    @Test
+    @DisplayName("Should return 500 when the broker rejects the message")
+    void testSendMessageBrokerFailure() throws Exception {
+        // Arrange
+        when(kafkaProducer.sendMessageAsync(any(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Failed to send message to Kafka")));
+
+        // Act & Assert
+        performAsync(post("/api/messages/send")
+                        .param("message", "Test message")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.success", is(false)))
+                .andExpect(jsonPath("$.message", containsString("Failed to send message")));
+    }
+
+    @Test
+    @DisplayName("Should send a JSON array batch and return per-item results")
+    void testSendBatchJson() throws Exception {
+        // Arrange
+        when(kafkaProducer.sendMessagesAsync(List.of(new MessageRequest("Message 1", null), new MessageRequest("Message 2", null))))
+                .thenReturn(CompletableFuture.completedFuture(List.of(
+                        BatchSendItemResult.sent(0, new MessageSendResult("messages", 0, 10L, 0L)),
+                        BatchSendItemResult.sent(1, new MessageSendResult("messages", 0, 11L, 0L)))));
+        String jsonPayload = "[{\"message\": \"Message 1\"}, {\"message\": \"Message 2\"}]";
+
+        // Act & Assert
+        performAsync(post("/api/messages/send-batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonPayload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success", is(true)))
+                .andExpect(jsonPath("$.data", hasSize(2)))
+                .andExpect(jsonPath("$.data[1].result.offset", is(11)));
+
+        verify(kafkaProducer, times(1)).sendMessagesAsync(List.of(new MessageRequest("Message 1", null), new MessageRequest("Message 2", null)));
+    }
+
+    @Test
+    @DisplayName("Should send an NDJSON batch and report partial failures")
+    void testSendBatchNdjson() throws Exception {
+        // Arrange
+        when(kafkaProducer.sendMessagesAsync(List.of(new MessageRequest("Message 1", null), new MessageRequest("Message 2", null))))
+                .thenReturn(CompletableFuture.completedFuture(List.of(
+                        BatchSendItemResult.sent(0, new MessageSendResult("messages", 0, 10L, 0L)),
+                        BatchSendItemResult.failed(1, "Broker unavailable"))));
+        String ndjsonPayload = "{\"message\": \"Message 1\"}\n\n{\"message\": \"Message 2\"}\n";
+
+        // Act & Assert
+        performAsync(post("/api/messages/send-batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjsonPayload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success", is(false)))
+                .andExpect(jsonPath("$.message", containsString("1 of 2")))
+                .andExpect(jsonPath("$.data[1].success", is(false)))
+                .andExpect(jsonPath("$.data[1].error", is("Broker unavailable")));
+    }
+
+    @Test
+    @DisplayName("Should reject an empty batch")
+    void testSendBatchEmpty() throws Exception {
+        // Act & Assert
+        performAsync(post("/api/messages/send-batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success", is(false)));
+
+        verify(kafkaProducer, never()).sendMessagesAsync(anyList());
+    }
+
+    @Test
+    @DisplayName("Should reject an oversized NDJSON batch without parsing past the limit")
+    void testSendBatchNdjsonTooLarge() throws Exception {
+        // Arrange - the malformed last line would fail the request if it were parsed
+        String ndjsonPayload = "{\"message\": \"Message\"}\n".repeat(1001) + "not json\n";
+
+        // Act & Assert
+        performAsync(post("/api/messages/send-batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjsonPayload))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", containsString("between 1 and 1000")));
+
+        verify(kafkaProducer, never()).sendMessagesAsync(anyList());
+    }
+
+    @Test
+    @DisplayName("Should read an NDJSON batch as UTF-8")
+    void testSendBatchNdjsonUtf8() throws Exception {
+        // Arrange
+        when(kafkaProducer.sendMessagesAsync(List.of(new MessageRequest("Grüße", null))))
+                .thenReturn(CompletableFuture.completedFuture(List.of(
+                        BatchSendItemResult.sent(0, new MessageSendResult("messages", 0, 10L, 0L)))));
+
+        // Act & Assert
+        performAsync(post("/api/messages/send-batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"message\": \"Grüße\"}\n".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success", is(true)));
+    }
+
+    @Test
+    @DisplayName("Should pass the partitioning key through to the producer")
+    void testSendJsonMessageWithKey() throws Exception {
+        // Arrange
+        when(kafkaProducer.sendMessageAsync("order-42", "Order created")).thenReturn(acknowledged());
+        String jsonPayload = "{\"message\": \"Order created\", \"key\": \"order-42\"}";
+
+        // Act & Assert
+        performAsync(post("/api/messages/send-json")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(jsonPayload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success", is(true)));
+
+        verify(kafkaProducer, times(1)).sendMessageAsync("order-42", "Order created");
+    }
+
+    @Test
+    @DisplayName("Should claim a failed message as replayed and then send it")
+    void testReplayFailedMessage() throws Exception {
+        // Arrange
+        Message replayed = new Message(MESSAGE_ID, "Poison", System.currentTimeMillis(), MessageStatus.REPLAYED, null, null);
+        replayed.setKey("order-42");
+        when(messageStorageService.markReplayed(MESSAGE_ID)).thenReturn(replayed);
+        when(kafkaProducer.sendMessageAsync("order-42", "Poison")).thenReturn(acknowledged());
+
+        // Act & Assert
+        performAsync(post("/api/messages/" + MESSAGE_ID + "/replay"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success", is(true)));
+
+        verify(kafkaProducer, times(1)).sendMessageAsync("order-42", "Poison");
+        verify(messageStorageService, never()).revertReplayed(ArgumentMatchers.any(UUID.class));
+    }
+
+    @Test
+    @DisplayName("Should not send a message that is not failed or was claimed by another replay")
+    void testReplayProcessedMessage() throws Exception {
+        // Arrange
+        when(messageStorageService.markReplayed(MESSAGE_ID)).thenReturn(null);
+
+        // Act & Assert
+        performAsync(post("/api/messages/" + MESSAGE_ID + "/replay"))
+                .andExpect(status().isNotFound());
+
+        verify(kafkaProducer, never()).sendMessageAsync(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return a replayed message to failed when the replay cannot be sent")
+    void testReplaySendFailure() throws Exception {
+        // Arrange
+        Message replayed = new Message(MESSAGE_ID, "Poison", System.currentTimeMillis(), MessageStatus.REPLAYED, null, null);
+        when(messageStorageService.markReplayed(MESSAGE_ID)).thenReturn(replayed);
+        when(kafkaProducer.sendMessageAsync(null, "Poison"))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Failed to send message to Kafka")));
+        List<String> revertThreads = new CopyOnWriteArrayList<>();
+        when(messageStorageService.revertReplayed(MESSAGE_ID)).thenAnswer(invocation -> {
+            revertThreads.add(Thread.currentThread().getName());
+            return true;
+        });
+
+        // Act & Assert
+        performAsync(post("/api/messages/" + MESSAGE_ID + "/replay"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.success", is(false)));
+
+        verify(messageStorageService, times(1)).revertReplayed(MESSAGE_ID);
+        assertThat(revertThreads).singleElement().asString().startsWith("message-replay-");
+    }
+
+    @Test
+    @DisplayName("Should return a cursor page of summaries with an opaque next cursor by default")
+    void testGetMessagesPageSummary() throws Exception {
+        // Arrange
+        MessageSummary newest = new MessageSummary(id(2), MessageStatus.PROCESSED, 2L, new java.util.Date(2000L), "Content 2");
+        MessageSummary older = new MessageSummary(id(1), MessageStatus.PROCESSED, 1L, new java.util.Date(1000L), "Content 1");
+        when(messageStorageService.getMessageSummariesAfter(isNull(), eq(2), eq(200)))
+                .thenReturn(new SliceImpl<>(List.of(newest, older), PageRequest.ofSize(2), true));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.messages", hasSize(2)))
+                .andExpect(jsonPath("$.data.messages[0].createdAt").doesNotExist())
+                .andExpect(jsonPath("$.data.hasNext", is(true)))
+                .andExpect(jsonPath("$.data.nextCursor", is(MessageCursor.after(older).encode())));
+
+        verify(messageStorageService, never()).getAllMessages();
+        verify(messageStorageService, never()).getMessagesAfter(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should return a cursor page of full messages with an opaque next cursor when requested")
+    void testGetMessagesPage() throws Exception {
+        // Arrange
+        Message newest = new Message(id(2), "Content 2", 2L, MessageStatus.PROCESSED, new java.util.Date(2000L), null);
+        Message older = new Message(id(1), "Content 1", 1L, MessageStatus.PROCESSED, new java.util.Date(1000L), null);
+        when(messageStorageService.getMessagesAfter(isNull(), eq(2)))
+                .thenReturn(new SliceImpl<>(List.of(newest, older), PageRequest.ofSize(2), true));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages").param("limit", "2").param("full", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.messages", hasSize(2)))
+                .andExpect(jsonPath("$.data.nextCursor", is(MessageCursor.after(older).encode())));
+
+        verify(messageStorageService, never()).getMessageSummariesAfter(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should pass the decoded cursor to the service")
+    void testGetMessagesPageAfterCursor() throws Exception {
+        // Arrange
+        Message last = new Message(MESSAGE_ID, "Content 1", 1L, MessageStatus.PROCESSED, new java.util.Date(1000L), null);
+        String cursor = MessageCursor.after(last).encode();
+        when(messageStorageService.getMessagesAfter(ArgumentMatchers.any(MessageCursor.class), eq(2)))
+                .thenReturn(new SliceImpl<>(Collections.emptyList(), PageRequest.ofSize(2), false));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages").param("limit", "2").param("after", cursor).param("full", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.hasNext", is(false)))
+                .andExpect(jsonPath("$.data.nextCursor").value(nullValue()));
+
+        verify(messageStorageService).getMessagesAfter(argThat(c -> MESSAGE_ID.equals(c.getId())
+                && c.getTime().getTime() == 1000L), eq(2));
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed cursor or an out-of-range limit")
+    void testGetMessagesPageInvalid() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/messages").param("limit", "2").param("after", "%%%"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/messages").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(messageStorageService, never()).getMessagesAfter(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should return changes with the last change as watermark while more are waiting")
+    void testGetChanges() throws Exception {
+        // Arrange
+        Message first = new Message(id(1), "Content 1", 1L, MessageStatus.PROCESSED, null, new java.util.Date(1000L));
+        Message second = new Message(id(2), "Content 2", 2L, MessageStatus.PROCESSED, null, new java.util.Date(2000L));
+        when(messageStorageService.getChangesBound(anyLong())).thenReturn(new java.util.Date(10_000L));
+        when(messageStorageService.getChangesSince(ArgumentMatchers.any(MessageCursor.class), any(), eq(2)))
+                .thenReturn(new SliceImpl<>(List.of(first, second), PageRequest.ofSize(2), true));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/changes").param("since", "500").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.messages", hasSize(2)))
+                .andExpect(jsonPath("$.data.hasMore", is(true)))
+                .andExpect(jsonPath("$.data.watermark", is(MessageCursor.afterUpdate(second).encode())));
+
+        verify(messageStorageService).getChangesSince(argThat(c -> MessageCursor.MIN_ID.equals(c.getId())
+                && c.getTime().getTime() == 500L), any(), eq(2));
+    }
+
+    @Test
+    @DisplayName("Should move the watermark up to the changes bound once caught up")
+    void testGetChangesCaughtUp() throws Exception {
+        // Arrange
+        java.util.Date bound = new java.util.Date(10_000L);
+        when(messageStorageService.getChangesBound(anyLong())).thenReturn(bound);
+        when(messageStorageService.getChangesSince(ArgumentMatchers.any(MessageCursor.class), eq(bound), eq(500)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(500), false));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/changes").param("since", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.hasMore", is(false)))
+                .andExpect(jsonPath("$.data.watermark", is(MessageCursor.of(bound, MessageCursor.MIN_ID).encode())));
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed watermark")
+    void testGetChangesInvalid() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/changes").param("since", "%%%"))
+                .andExpect(status().isBadRequest());
+
+        verify(messageStorageService, never()).getChangesSince(any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should delete messages by status through the chunked service call")
+    void testDeleteMessagesByStatus() throws Exception {
+        // Arrange
+        when(messageStorageService.deleteMessagesByStatus(MessageStatus.FAILED)).thenReturn(12L);
+
+        // Act & Assert
+        mockMvc.perform(delete("/api/messages").param("status", "FAILED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", is(12)));
+
+        verify(messageStorageService, never()).clearMessages();
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown status when deleting or exporting")
+    void testUnknownStatus() throws Exception {
+        // Act & Assert
+        mockMvc.perform(delete("/api/messages").param("status", "DONE"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/messages/export").param("status", "processed"))
+                .andExpect(status().isBadRequest());
+
+        verify(messageStorageService, never()).deleteMessagesByStatus(any());
+        verify(messageStorageService, never()).exportMessages(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should stream messages as NDJSON lines")
+    void testExportMessages() throws Exception {
+        // Arrange
+        Message first = new Message(id(1), "Content 1", 1L, MessageStatus.PROCESSED, null, null);
+        Message second = new Message(id(2), "Content 2", 2L, MessageStatus.PROCESSED, null, null);
+        when(messageStorageService.exportMessages(eq(MessageStatus.PROCESSED), isNull(), isNull(), any())).thenAnswer(invocation -> {
+            java.util.function.Consumer<Message> sink = invocation.getArgument(3);
+            sink.accept(first);
+            sink.accept(second);
+            return 2L;
+        });
+
+        // Act
+        MvcResult result = performAsync(get("/api/messages/export").param("status", "PROCESSED"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        // Assert
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"id\":\"" + id(1) + "\"");
+        assertThat(lines[1]).contains("\"id\":\"" + id(2) + "\"");
+    }
+
+    @Test
+    @DisplayName("Should give only the export stream the long export timeout")
+    void testExportTimeout() throws Exception {
+        // Arrange
+        when(messageStorageService.exportMessages(any(), any(), any(), any())).thenReturn(0L);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/messages/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(1_800_000L);
+    }
+
+    @Test
+    @DisplayName("Should search messages and reject terms too short for the index")
+    void testSearchMessages() throws Exception {
+        // Arrange
+        Message message = new Message(id(1), "Important data", 1L, MessageStatus.PROCESSED, null, null);
+        when(messageSearchService.search("Important", null, 0, 20)).thenReturn(List.of(message));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/search").param("q", "Important"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].id", is(id(1).toString())));
+        mockMvc.perform(get("/api/messages/search").param("q", "ab"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/messages/search").param("q", "Important")
+                        .param("page", String.valueOf(Integer.MAX_VALUE)).param("size", "20"))
+                .andExpect(status().isBadRequest());
+
+        verify(messageSearchService, times(1)).search(anyString(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should page failed messages and reject out-of-range pages")
+    void testGetFailedMessages() throws Exception {
+        // Arrange
+        Message message = new Message(id(1), "Poison", 1L, MessageStatus.FAILED, null, null);
+        when(messageStorageService.getFailedMessages(0, 50)).thenReturn(new PageImpl<>(List.of(message)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/failed"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].id", is(id(1).toString())));
+        mockMvc.perform(get("/api/messages/failed").param("page", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/messages/failed").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/messages/failed").param("size", "1001"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/messages/failed")
+                        .param("page", String.valueOf(Integer.MAX_VALUE)).param("size", "50"))
+                .andExpect(status().isBadRequest());
+
+        verify(messageStorageService, times(1)).getFailedMessages(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should serve recent messages from the in-memory buffer")
+    void testGetRecentMessages() throws Exception {
+        // Arrange
+        Message message = new Message(id(1), "Content", 1L, MessageStatus.PROCESSED, null, null);
+        when(recentMessageBuffer.getCapacity()).thenReturn(500);
+        when(recentMessageBuffer.getRecent(10)).thenReturn(List.of(message));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/recent").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].id", is(id(1).toString())));
+        mockMvc.perform(get("/api/messages/recent").param("limit", "501"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(messageStorageService);
+    }
+
+    @Test
+    @DisplayName("Should open an event stream and refuse one beyond the subscriber limit")
+    void testStreamMessages() throws Exception {
+        // Arrange
+        when(messageBroadcaster.isEnabled()).thenReturn(true);
+        when(messageBroadcaster.subscribe()).thenReturn(new SseEmitter(), (SseEmitter) null);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/stream"))
+                .andExpect(request().asyncStarted());
+        mockMvc.perform(get("/api/messages/stream"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @DisplayName("Should not offer the event stream unless this is the only consuming instance")
+    void testStreamMessagesDisabled() throws Exception {
+        // Arrange
+        when(messageBroadcaster.isEnabled()).thenReturn(false);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/messages/stream"))
+                .andExpect(status().isNotFound());
+        verify(messageBroadcaster, never()).subscribe();
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(mvcResult));
+    }
+
+    private static CompletableFuture<MessageSendResult> acknowledged() {
+        return CompletableFuture.completedFuture(new MessageSendResult("messages", 0, 0L, System.currentTimeMillis()));
+    }
+
+    private static UUID id(int n) {
+        return new UUID(0L, n);
     }
 }
@@ -2,6 +2,7 @@ package com.kafka.app.integration;
 
 import com.kafka.app.consumer.KafkaConsumer;
 import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
 import com.kafka.app.producer.KafkaProducer;
 import com.kafka.app.service.MessageStorageService;
 import org.junit.jupiter.api.DisplayName;
@@ -11,12 +12,13 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.kafka.test.context.EmbeddedKafka;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.awaitility.Awaitility.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "app.kafka.topic.partitions=1")
 @EmbeddedKafka(
         partitions = 1,
         brokerProperties = {
@@ -58,7 +60,7 @@ class KafkaIntegrationTest {
 
         Message storedMessage = messageStorageService.getAllMessages().get(0);
         assertThat(storedMessage.getContent()).isEqualTo(testMessage);
-        assertThat(storedMessage.getStatus()).isEqualTo("PROCESSED");
+        assertThat(storedMessage.getStatus()).isEqualTo(MessageStatus.PROCESSED);
     }
 
     @Test
@@ -150,7 +152,7 @@ class KafkaIntegrationTest {
                     assertThat(messageStorageService.getMessageCount()).isEqualTo(2);
                     assertThat(messageStorageService.getAllMessages())
                             .extracting(Message::getId)
-                            .allMatch(id -> id != null && !id.isEmpty());
+                            .doesNotContainNull();
                 });
     }
 
@@ -243,7 +245,7 @@ class KafkaIntegrationTest {
                     assertThat(messageStorageService.getAllMessages())
                             .hasSize(3)
                             .extracting(Message::getStatus)
-                            .containsOnly("PROCESSED");
+                            .containsOnly(MessageStatus.PROCESSED);
                 });
     }
 
@@ -283,7 +285,7 @@ class KafkaIntegrationTest {
                     assertThat(messageStorageService.getMessageCount()).isEqualTo(1);
 
                     Message message = messageStorageService.getAllMessages().get(0);
-                    String messageId = message.getId();
+                    UUID messageId = message.getId();
 
                     Message retrievedMessage = messageStorageService.getMessageById(messageId);
                     assertThat(retrievedMessage)
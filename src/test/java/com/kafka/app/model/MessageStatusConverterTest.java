@@ -0,0 +1,43 @@
+package com.kafka.app.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("MessageStatusConverter Unit Tests")
+class MessageStatusConverterTest {
+
+    private final MessageStatusConverter converter = new MessageStatusConverter();
+
+    @Test
+    @DisplayName("Should round-trip every status through its stored code")
+    void testRoundTrip() {
+        for (MessageStatus status : MessageStatus.values()) {
+            // Act
+            Short code = converter.convertToDatabaseColumn(status);
+
+            // Assert
+            assertThat(code).isEqualTo(status.getCode());
+            assertThat(converter.convertToEntityAttribute(code)).isEqualTo(status);
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the persisted codes stable")
+    void testStableCodes() {
+        // Assert
+        assertThat(converter.convertToDatabaseColumn(MessageStatus.PROCESSED)).isEqualTo((short) 1);
+        assertThat(converter.convertToDatabaseColumn(MessageStatus.FAILED)).isEqualTo((short) 3);
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should reject unknown codes")
+    void testUnknown() {
+        // Act & Assert
+        assertThatThrownBy(() -> converter.convertToEntityAttribute((short) 99))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -1,8 +1,14 @@
 package com.kafka.app.producer;
 
+import com.kafka.app.dto.BatchSendItemResult;
+import com.kafka.app.dto.MessageRequest;
+import com.kafka.app.dto.MessageSendResult;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,10 +16,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.messaging.Message;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -39,7 +50,7 @@ class KafkaProducerTest {
     void testSendMessageSuccess() {
         // Arrange
         String testMessage = "Test message";
-        doNothing().when(kafkaTemplate).send(any(Message.class));
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged());
 
         // Act
         kafkaProducer.sendMessage(testMessage);
@@ -62,7 +73,7 @@ class KafkaProducerTest {
     void testSendEmptyMessage() {
         // Arrange
         String emptyMessage = "";
-        doNothing().when(kafkaTemplate).send(any(Message.class));
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged());
 
         // Act
         kafkaProducer.sendMessage(emptyMessage);
@@ -77,7 +88,7 @@ class KafkaProducerTest {
     void testSendLongMessage() {
         // Arrange
         String longMessage = "a".repeat(10000);
-        doNothing().when(kafkaTemplate).send(any(Message.class));
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged());
 
         // Act
         kafkaProducer.sendMessage(longMessage);
@@ -108,7 +119,7 @@ class KafkaProducerTest {
     @DisplayName("Should increment sent counter on successful send")
     void testCounterIncrementOnSuccess() {
         // Arrange
-        doNothing().when(kafkaTemplate).send(any(Message.class));
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged());
 
         // Act
         kafkaProducer.sendMessage("Message 1");
@@ -138,7 +149,7 @@ class KafkaProducerTest {
     @DisplayName("Should set correct topic header")
     void testTopicHeaderIsSet() {
         // Arrange
-        doNothing().when(kafkaTemplate).send(any(Message.class));
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged());
 
         // Act
         kafkaProducer.sendMessage("Test");
@@ -156,7 +167,7 @@ class KafkaProducerTest {
     @DisplayName("Should send multiple messages independently")
     void testSendMultipleMessages() {
         // Arrange
-        doNothing().when(kafkaTemplate).send(any(Message.class));
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged());
         String[] messages = {"Message1", "Message2", "Message3"};
 
         // Act
@@ -170,7 +181,7 @@ class KafkaProducerTest {
 
         assertThat(messageCaptor.getAllValues())
                 .hasSize(3)
-                .extracting(Message::getPayload)
+                .extracting(message -> (Object) message.getPayload())
                 .containsExactly("Message1", "Message2", "Message3");
     }
 
@@ -179,7 +190,7 @@ class KafkaProducerTest {
     void testSendMessageWithSpecialCharacters() {
         // Arrange
         String specialMessage = "Test!@#$%^&*()_+-=[]{}|;':\",./<>?";
-        doNothing().when(kafkaTemplate).send(any(Message.class));
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged());
 
         // Act
         kafkaProducer.sendMessage(specialMessage);
@@ -204,4 +215,104 @@ class KafkaProducerTest {
 
         assertThat(meterRegistry.find("kafka.messages.failed").counter().count()).isEqualTo(1.0);
     }
+
+    @Test
+    @DisplayName("Should complete async send with partition and offset")
+    void testSendMessageAsyncReturnsMetadata() {
+        // Arrange
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged());
+
+        // Act
+        MessageSendResult result = kafkaProducer.sendMessageAsync("Test message").join();
+
+        // Assert
+        assertThat(result.getTopic()).isEqualTo("messages");
+        assertThat(result.getPartition()).isEqualTo(0);
+        assertThat(result.getOffset()).isEqualTo(42L);
+        assertThat(meterRegistry.find("kafka.messages.sent").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should count broker-side failures and not count them as sent")
+    void testSendMessageAsyncBrokerFailure() {
+        // Arrange
+        when(kafkaTemplate.send(any(Message.class)))
+                .thenReturn(CompletableFuture.failedFuture(new KafkaException("Broker unavailable")));
+
+        // Act
+        CompletableFuture<MessageSendResult> future = kafkaProducer.sendMessageAsync("Test message");
+
+        // Assert
+        assertThatThrownBy(future::join)
+                .hasCauseInstanceOf(RuntimeException.class)
+                .hasMessageContaining("Failed to send message to Kafka");
+        assertThat(meterRegistry.find("kafka.messages.failed").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.find("kafka.messages.sent").counter().count()).isEqualTo(0.0);
+    }
+
+    @Test
+    @DisplayName("Should not count a message as sent before the broker acknowledges it")
+    void testSendMessageAsyncCountsOnAcknowledgement() {
+        // Arrange
+        CompletableFuture<SendResult<String, String>> pending = new CompletableFuture<>();
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(pending);
+
+        // Act
+        CompletableFuture<MessageSendResult> future = kafkaProducer.sendMessageAsync("Test message");
+
+        // Assert
+        assertThat(meterRegistry.find("kafka.messages.sent").counter().count()).isEqualTo(0.0);
+        pending.complete(acknowledged().join());
+        assertThat(future).isCompleted();
+        assertThat(meterRegistry.find("kafka.messages.sent").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should send a batch and report per-item results in order")
+    void testSendMessagesAsyncReportsPerItemResults() {
+        // Arrange
+        when(kafkaTemplate.send(any(Message.class)))
+                .thenReturn(acknowledged())
+                .thenReturn(CompletableFuture.failedFuture(new KafkaException("Record too large")))
+                .thenReturn(acknowledged());
+
+        // Act
+        List<BatchSendItemResult> results = kafkaProducer
+                .sendMessagesAsync(List.of(
+                        new MessageRequest("Message 1", null),
+                        new MessageRequest("Message 2", null),
+                        new MessageRequest("Message 3", null)))
+                .join();
+
+        // Assert
+        verify(kafkaTemplate, times(3)).send(any(Message.class));
+        assertThat(results).extracting(BatchSendItemResult::getIndex).containsExactly(0, 1, 2);
+        assertThat(results).extracting(BatchSendItemResult::isSuccess).containsExactly(true, false, true);
+        assertThat(results.get(1).getError()).isEqualTo("Record too large");
+        assertThat(meterRegistry.find("kafka.messages.sent").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.find("kafka.messages.failed").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should set the record key when one is given")
+    void testSendMessageAsyncWithKey() {
+        // Arrange
+        when(kafkaTemplate.send(any(Message.class))).thenReturn(acknowledged());
+
+        // Act
+        kafkaProducer.sendMessageAsync("order-42", "Order created").join();
+        kafkaProducer.sendMessageAsync("Unkeyed").join();
+
+        // Assert
+        ArgumentCaptor<Message<?>> messageCaptor = ArgumentCaptor.forClass(Message.class);
+        verify(kafkaTemplate, times(2)).send(messageCaptor.capture());
+
+        assertThat(messageCaptor.getAllValues().get(0).getHeaders().get(KafkaHeaders.KEY)).isEqualTo("order-42");
+        assertThat(messageCaptor.getAllValues().get(1).getHeaders().containsKey(KafkaHeaders.KEY)).isFalse();
+    }
+
+    private static CompletableFuture<SendResult<String, String>> acknowledged() {
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("messages", 0), 42L, 0, System.currentTimeMillis(), 0, 0);
+        return CompletableFuture.completedFuture(new SendResult<>(new ProducerRecord<>("messages", "payload"), metadata));
+    }
 }
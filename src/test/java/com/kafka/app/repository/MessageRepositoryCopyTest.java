@@ -0,0 +1,220 @@
+package com.kafka.app.repository;
+
+import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Integration tests for the PostgreSQL-only paths of MessageRepositoryImpl: the COPY insert,
+ * its ON CONFLICT on the partitioned (id, created_at) key and partition retention, run
+ * against the real schema in a PostgreSQL container.
+ */
+@DataJpaTest(properties = "app.storage.copy-threshold=10")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("MessageRepository PostgreSQL COPY Tests")
+class MessageRepositoryCopyTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    /** Consumed messages carry their record's time, so every copy of one has the same key. */
+    private static final Date RECORD_TIME = new Date();
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Should copy a batch through the staging table and skip duplicate IDs")
+    void testCopySkipsDuplicates() {
+        // Arrange
+        UUID existingId = UUID.randomUUID();
+        messageRepository.insertIgnoringDuplicates(
+                List.of(new Message(existingId, "Already stored", 1L, MessageStatus.PROCESSED, RECORD_TIME, null)));
+        List<Message> batch = newBatch(20);
+        batch.add(new Message(existingId, "Duplicate of stored", 2L, MessageStatus.PROCESSED, RECORD_TIME, null));
+        batch.add(new Message(batch.get(0).getId(), "Duplicate within batch", 3L, MessageStatus.PROCESSED,
+                RECORD_TIME, null));
+
+        // Act
+        int inserted = messageRepository.insertIgnoringDuplicates(batch);
+
+        // Assert
+        assertThat(inserted).isEqualTo(20);
+        assertThat(messageRepository.count()).isEqualTo(21);
+        assertThat(messageRepository.findById(existingId)).get()
+                .extracting(Message::getContent).isEqualTo("Already stored");
+    }
+
+    @Test
+    @DisplayName("Should skip a redelivery by its (id, created_at) key, which is all that keeps IDs unique here")
+    void testUniqueOnIdAndCreatedAt() {
+        // Arrange
+        UUID id = UUID.randomUUID();
+        Date noRecordTime = new Date(0L);
+        messageRepository.insertIgnoringDuplicates(
+                List.of(new Message(id, "First delivery", 1L, MessageStatus.PROCESSED, noRecordTime, null)));
+
+        // Act
+        int redelivered = messageRepository.insertIgnoringDuplicates(
+                List.of(new Message(id, "Redelivery", 1L, MessageStatus.PROCESSED, noRecordTime, null)));
+        int otherTime = messageRepository.insertIgnoringDuplicates(
+                List.of(new Message(id, "Same ID, other time", 1L, MessageStatus.PROCESSED, RECORD_TIME, null)));
+
+        // Assert
+        assertThat(redelivered).isZero();
+        // Nothing but the key stops this; writers must derive created_at deterministically
+        assertThat(otherTime).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM messages WHERE id = ?", Long.class, id))
+                .isEqualTo(2L);
+    }
+
+    @Test
+    @DisplayName("Should round-trip quotes, delimiters, newlines, empty strings and nulls")
+    void testCopyPreservesContent() {
+        // Arrange
+        List<Message> batch = newBatch(10);
+        Message quoted = batch.get(0);
+        quoted.setContent("say \"hi\",\nbye");
+        Message empty = batch.get(1);
+        empty.setContent("");
+        empty.setSourceTopic(null);
+        Message failed = batch.get(2);
+        failed.setStatus(MessageStatus.FAILED);
+        failed.setRetryCount(3);
+        failed.setErrorMessage("boom, \"again\"");
+
+        // Act
+        messageRepository.insertIgnoringDuplicates(batch);
+
+        // Assert
+        assertThat(messageRepository.findById(quoted.getId())).get()
+                .extracting(Message::getContent).isEqualTo("say \"hi\",\nbye");
+        Message storedEmpty = messageRepository.findById(empty.getId()).orElseThrow();
+        assertThat(storedEmpty.getContent()).isEmpty();
+        assertThat(storedEmpty.getSourceTopic()).isNull();
+        Message storedFailed = messageRepository.findById(failed.getId()).orElseThrow();
+        assertThat(storedFailed.getStatus()).isEqualTo(MessageStatus.FAILED);
+        assertThat(storedFailed.getRetryCount()).isEqualTo(3);
+        assertThat(storedFailed.getErrorMessage()).isEqualTo("boom, \"again\"");
+    }
+
+    @Test
+    @DisplayName("Should keep the trigger-maintained status counts in step with copied rows")
+    void testCopyUpdatesStatusCounts() {
+        // Arrange
+        List<Message> batch = newBatch(12);
+        batch.get(0).setStatus(MessageStatus.FAILED);
+        batch.get(1).setStatus(MessageStatus.FAILED);
+
+        // Act
+        messageRepository.insertIgnoringDuplicates(batch);
+
+        // Assert
+        assertThat(messageRepository.countMessagesByStatus())
+                .containsEntry(MessageStatus.PROCESSED, 10L)
+                .containsEntry(MessageStatus.FAILED, 2L);
+    }
+
+    @Test
+    @DisplayName("Should store deleted messages again when they are redelivered")
+    void testStoresDeletedMessagesAgain() {
+        // Arrange
+        List<Message> batch = newBatch(10);
+        messageRepository.insertIgnoringDuplicates(batch);
+        messageRepository.deleteChunk(null, null, 100);
+
+        // Act
+        int inserted = messageRepository.insertIgnoringDuplicates(newBatchWithIds(batch));
+
+        // Assert
+        assertThat(inserted).isEqualTo(10);
+        assertThat(messageRepository.count()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Should drop an expired partition and take its rows off the counts")
+    void testDropPartition() {
+        // Arrange - a day after the partitions V7 created, since earlier days belong to messages_legacy
+        LocalDate day = LocalDate.now().plusDays(30);
+        messageRepository.createPartitions(day, day);
+        UUID id = UUID.randomUUID();
+        Timestamp createdAt = Timestamp.valueOf(day.atTime(12, 0));
+        jdbcTemplate.update("INSERT INTO messages (id, content, timestamp, status, created_at, updated_at, retry_count) "
+                + "VALUES (?, 'Expired', 1, 3, ?, ?, 0)", id, createdAt, createdAt);
+
+        // Act
+        List<LocalDate> expired = messageRepository.findExpiredPartitions(day.plusDays(1));
+        long dropped = messageRepository.dropPartition(day);
+
+        // Assert
+        assertThat(expired).contains(day);
+        assertThat(dropped).isEqualTo(1);
+        assertThat(messageRepository.findExpiredPartitions(day.plusDays(1))).doesNotContain(day);
+        assertThat(messageRepository.countMessagesByStatus()).doesNotContainKey(MessageStatus.FAILED);
+        assertThat(messageRepository.findById(id)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should report the start of a transaction that has written and is still open")
+    void testFindOldestOpenWriteStart() {
+        // Arrange
+        long before = System.currentTimeMillis();
+        messageRepository.insertIgnoringDuplicates(newBatch(1));
+
+        // Act
+        Date oldest = messageRepository.findOldestOpenWriteStart();
+
+        // Assert
+        assertThat(oldest).isNotNull();
+        assertThat(oldest.getTime()).isLessThanOrEqualTo(System.currentTimeMillis());
+        assertThat(oldest.getTime()).isGreaterThan(before - 60_000L);
+    }
+
+    private static List<Message> newBatch(int size) {
+        List<Message> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Message message = new Message(UUID.randomUUID(), "Content " + i, i, MessageStatus.PROCESSED, RECORD_TIME, null);
+            message.setSourceTopic("messages");
+            batch.add(message);
+        }
+        return batch;
+    }
+
+    private static List<Message> newBatchWithIds(List<Message> messages) {
+        List<Message> batch = newBatch(messages.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).setId(messages.get(i).getId());
+        }
+        return batch;
+    }
+}
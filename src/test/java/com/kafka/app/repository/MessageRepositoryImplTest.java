@@ -0,0 +1,77 @@
+package com.kafka.app.repository;
+
+import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests for the COPY row encoding and partition naming used by MessageRepositoryImpl.
+ */
+@DisplayName("MessageRepositoryImpl Unit Tests")
+class MessageRepositoryImplTest {
+
+    private static final Timestamp NOW = Timestamp.valueOf("2024-01-15 10:30:00.5");
+    private static final UUID ID = UUID.fromString("6f1c2a9e-3b4d-4c5e-8f70-9a1b2c3d4e5f");
+
+    @Test
+    @DisplayName("Should encode a message as one CSV row with quoted text, the plain ID and the status code")
+    void testAppendCsvRow() {
+        // Arrange
+        Message message = new Message(ID, "hello", 1000L, MessageStatus.PROCESSED, null, null);
+        message.setSourceTopic("messages");
+        message.setKey("order-42");
+        StringBuilder row = new StringBuilder();
+
+        // Act
+        MessageRepositoryImpl.appendCsvRow(row, message, NOW);
+
+        // Assert
+        assertThat(row.toString()).isEqualTo(
+                ID + ",\"hello\",1000,1,2024-01-15 10:30:00.5,2024-01-15 10:30:00.5,0,,\"messages\",\"order-42\"\n");
+    }
+
+    @Test
+    @DisplayName("Should escape quotes and keep delimiters and newlines inside quoted content")
+    void testAppendCsvRowEscaping() {
+        // Arrange
+        Message message = new Message(ID, "say \"hi\",\nbye", 1L, MessageStatus.PROCESSED, null, null);
+        StringBuilder row = new StringBuilder();
+
+        // Act
+        MessageRepositoryImpl.appendCsvRow(row, message, NOW);
+
+        // Assert
+        assertThat(row.toString()).startsWith(ID + ",\"say \"\"hi\"\",\nbye\",1,");
+    }
+
+    @Test
+    @DisplayName("Should distinguish empty content from a null column")
+    void testAppendCsvRowEmptyVersusNull() {
+        // Arrange
+        Message message = new Message(ID, "", 1L, MessageStatus.FAILED, null, null);
+        message.setSourceTopic(null);
+        StringBuilder row = new StringBuilder();
+
+        // Act
+        MessageRepositoryImpl.appendCsvRow(row, message, NOW);
+
+        // Assert
+        assertThat(row.toString()).startsWith(ID + ",\"\",").endsWith(",0,,,\n");
+    }
+
+    @Test
+    @DisplayName("Should read the day from daily partition names and ignore other partitions")
+    void testPartitionDay() {
+        // Act & Assert
+        assertThat(MessageRepositoryImpl.partitionDay("messages_p20240115")).isEqualTo(LocalDate.of(2024, 1, 15));
+        assertThat(MessageRepositoryImpl.partitionDay("messages_default")).isNull();
+        assertThat(MessageRepositoryImpl.partitionDay("messages_pold")).isNull();
+    }
+}
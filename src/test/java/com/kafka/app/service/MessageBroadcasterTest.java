@@ -0,0 +1,184 @@
+package com.kafka.app.service;
+
+import com.kafka.app.event.MessagesConsumedEvent;
+import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("MessageBroadcaster Unit Tests")
+class MessageBroadcasterTest {
+
+    private MeterRegistry meterRegistry;
+    private MessageBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (broadcaster != null) {
+            broadcaster.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should push consumed messages to every subscriber in order")
+    void testBroadcast() {
+        // Arrange
+        broadcaster = new MessageBroadcaster(meterRegistry, true, 10, 10, 60_000L, 60_000L,
+                Executors.newSingleThreadExecutor(), RecordingEmitter::new);
+        RecordingEmitter first = (RecordingEmitter) broadcaster.subscribe();
+        RecordingEmitter second = (RecordingEmitter) broadcaster.subscribe();
+
+        // Act
+        broadcaster.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(1)), message(id(2)))));
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            assertThat(first.events).hasSize(2);
+            assertThat(second.events).hasSize(2);
+        });
+        assertThat(first.events.get(0).toString()).contains("id:" + id(1));
+        assertThat(first.events.get(1).toString()).contains("id:" + id(2));
+    }
+
+    @Test
+    @DisplayName("Should disconnect a subscriber whose queue overflows without touching its connection")
+    void testDropSlowSubscriber() {
+        // Arrange - a sender pool that never runs leaves every queue undrained, like a stuck send
+        ExecutorService stalled = mock(ExecutorService.class);
+        broadcaster = new MessageBroadcaster(meterRegistry, true, 2, 10, 60_000L, 60_000L, stalled, RecordingEmitter::new);
+        RecordingEmitter slow = (RecordingEmitter) broadcaster.subscribe();
+
+        // Act
+        broadcaster.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(1)), message(id(2)))));
+        broadcaster.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(3)))));
+
+        // Assert
+        assertThat(broadcaster.getSubscriberCount()).isZero();
+        assertThat(meterRegistry.find("messages.stream.dropped").counter().count()).isEqualTo(1.0);
+        // Left to the drain already pending, never done on the consumer thread
+        assertThat(slow.completed).isFalse();
+        verify(stalled, times(1)).execute(any(Runnable.class));
+    }
+
+    @Test
+    @DisplayName("Should keep serving other subscribers while one has stopped reading")
+    void testStalledSubscriber() {
+        // Arrange - a single sender thread, which a send to the stuck subscriber holds
+        StuckEmitter stuck = new StuckEmitter();
+        RecordingEmitter healthy = new RecordingEmitter();
+        Iterator<SseEmitter> emitters = List.<SseEmitter>of(stuck, healthy).iterator();
+        broadcaster = new MessageBroadcaster(meterRegistry, true, 10, 10, 50L, 200L,
+                Executors.newFixedThreadPool(1), emitters::next);
+        broadcaster.subscribe();
+        broadcaster.subscribe();
+
+        // Act
+        broadcaster.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(1)))));
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            assertThat(healthy.events).anyMatch(event -> event.contains("id:" + id(1)));
+            assertThat(broadcaster.getSubscriberCount()).isEqualTo(1);
+        });
+        assertThat(meterRegistry.find("messages.stream.dropped").counter().count()).isEqualTo(1.0);
+        stuck.released.countDown();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> stuck.completed);
+    }
+
+    @Test
+    @DisplayName("Should refuse subscribers beyond the limit")
+    void testSubscriberLimit() {
+        // Arrange
+        broadcaster = new MessageBroadcaster(meterRegistry, true, 10, 1, 60_000L, 60_000L,
+                Executors.newSingleThreadExecutor(), RecordingEmitter::new);
+
+        // Act
+        SseEmitter accepted = broadcaster.subscribe();
+        SseEmitter rejected = broadcaster.subscribe();
+
+        // Assert
+        assertThat(accepted).isNotNull();
+        assertThat(rejected).isNull();
+    }
+
+    @Test
+    @DisplayName("Should refuse every subscriber when disabled")
+    void testDisabled() {
+        // Arrange
+        broadcaster = new MessageBroadcaster(meterRegistry, false, 10, 10, 60_000L, 60_000L,
+                Executors.newSingleThreadExecutor(), RecordingEmitter::new);
+
+        // Act
+        SseEmitter rejected = broadcaster.subscribe();
+
+        // Assert
+        assertThat(broadcaster.isEnabled()).isFalse();
+        assertThat(rejected).isNull();
+    }
+
+    private static UUID id(int n) {
+        return new UUID(0L, n);
+    }
+
+    private static Message message(UUID id) {
+        return new Message(id, "Content " + id, 1L, MessageStatus.PROCESSED, null, null);
+    }
+
+    /** Emitter that records events instead of writing them to a response. */
+    private static class RecordingEmitter extends SseEmitter {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder event = new StringBuilder();
+            builder.build().forEach(part -> event.append(part.getData()));
+            events.add(event.toString());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+    }
+
+    /** Emitter whose sends block until released, like a client that stopped reading. */
+    private static class StuckEmitter extends RecordingEmitter {
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sending", e);
+            }
+            super.send(builder);
+        }
+    }
+}
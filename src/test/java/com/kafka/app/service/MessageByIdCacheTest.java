@@ -0,0 +1,150 @@
+package com.kafka.app.service;
+
+import com.kafka.app.event.MessagesRemovedEvent;
+import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import com.kafka.app.repository.MessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MessageByIdCache Unit Tests")
+class MessageByIdCacheTest {
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    private MeterRegistry meterRegistry;
+    private MessageStorageService messageStorageService;
+    private List<Object> events;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        MessageByIdCache cache = new MessageByIdCache(meterRegistry, true, 100, 60_000L);
+        events = new ArrayList<>();
+        messageStorageService = new MessageStorageService(messageRepository, events::add, cache, meterRegistry, 60_000L, 5000);
+    }
+
+    @Test
+    @DisplayName("Should serve repeated lookups from the cache and record hits and misses")
+    void testReadThrough() {
+        // Arrange
+        Message message = new Message(id(1), "Content", 1L, MessageStatus.PROCESSED, null, null);
+        when(messageRepository.findById(id(1))).thenReturn(Optional.of(message));
+
+        // Act
+        Message first = messageStorageService.getMessageById(id(1));
+        Message second = messageStorageService.getMessageById(id(1));
+
+        // Assert
+        assertThat(first).isSameAs(message);
+        assertThat(second).isSameAs(message);
+        verify(messageRepository, times(1)).findById(id(1));
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should not cache lookups of missing messages")
+    void testMissingNotCached() {
+        // Arrange
+        when(messageRepository.findById(id(2))).thenReturn(Optional.empty());
+
+        // Act
+        messageStorageService.getMessageById(id(2));
+        messageStorageService.getMessageById(id(2));
+
+        // Assert
+        verify(messageRepository, times(2)).findById(id(2));
+    }
+
+    @Test
+    @DisplayName("Should reload a message after it is updated")
+    void testInvalidateOnUpdate() {
+        // Arrange
+        Message message = new Message(id(1), "Content", 1L, MessageStatus.PROCESSED, null, null);
+        when(messageRepository.findById(id(1))).thenReturn(Optional.of(message));
+        when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        messageStorageService.getMessageById(id(1));
+
+        // Act
+        messageStorageService.updateMessage(message);
+        messageStorageService.getMessageById(id(1));
+
+        // Assert
+        verify(messageRepository, times(2)).findById(id(1));
+    }
+
+    @Test
+    @DisplayName("Should forget a deleted message and everything on clear")
+    void testInvalidateOnDeleteAndClear() {
+        // Arrange
+        Message message = new Message(id(1), "Content", 1L, MessageStatus.PROCESSED, null, null);
+        when(messageRepository.findById(id(1))).thenReturn(Optional.of(message)).thenReturn(Optional.empty()).thenReturn(Optional.of(message));
+        when(messageRepository.existsById(id(1))).thenReturn(true);
+        messageStorageService.getMessageById(id(1));
+
+        // Act
+        messageStorageService.deleteMessageById(id(1));
+        Message afterDelete = messageStorageService.getMessageById(id(1));
+        messageStorageService.getMessageById(id(1));
+        messageStorageService.clearMessages();
+        messageStorageService.getMessageById(id(1));
+
+        // Assert
+        assertThat(afterDelete).isNull();
+        verify(messageRepository, times(4)).findById(id(1));
+    }
+
+    @Test
+    @DisplayName("Should forget cached messages and announce the removed days after dropping partitions")
+    void testInvalidateOnPartitionDrop() {
+        // Arrange
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        Message expired = new Message(id(1), "Content", 1L, MessageStatus.PROCESSED, new Date(toDate(day).getTime() + 12 * 3_600_000L), null);
+        Message kept = new Message(id(2), "Content", 1L, MessageStatus.PROCESSED, toDate(day.plusDays(1)), null);
+        when(messageRepository.findById(id(1))).thenReturn(Optional.of(expired)).thenReturn(Optional.empty());
+        when(messageRepository.findExpiredPartitions(day.plusDays(1))).thenReturn(List.of(day));
+        when(messageRepository.dropPartition(day)).thenReturn(3L);
+        messageStorageService.getMessageById(id(1));
+
+        // Act
+        long dropped = messageStorageService.dropPartitionsBefore(day.plusDays(1));
+        Message afterDrop = messageStorageService.getMessageById(id(1));
+
+        // Assert
+        assertThat(dropped).isEqualTo(3);
+        assertThat(afterDrop).isNull();
+        assertThat(events).singleElement().isInstanceOfSatisfying(MessagesRemovedEvent.class, event -> {
+            assertThat(event.removes(expired)).isTrue();
+            assertThat(event.removes(kept)).isFalse();
+        });
+    }
+
+    private static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static UUID id(int n) {
+        return new UUID(0L, n);
+    }
+}
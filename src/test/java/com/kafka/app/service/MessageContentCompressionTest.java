@@ -0,0 +1,91 @@
+package com.kafka.app.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MessageContentCompression Unit Tests")
+class MessageContentCompressionTest {
+
+    @Mock
+    private MessageStorageService messageStorageService;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should apply compression settings and publish the sampled ratio and read time")
+    void testRefresh() {
+        // Arrange
+        when(messageStorageService.configureContentCompression("lz4", 512)).thenReturn(true);
+        when(messageStorageService.sampleContentSizes(100)).thenReturn(new long[]{20L, 40_000L, 10_000L});
+        MessageContentCompression compression =
+                new MessageContentCompression(messageStorageService, meterRegistry, true, "lz4", 512, 100);
+
+        // Act
+        compression.refresh();
+
+        // Assert
+        verify(messageStorageService).configureContentCompression("lz4", 512);
+        assertThat(meterRegistry.find("messages.content.compression.ratio").gauge().value()).isEqualTo(4.0);
+        assertThat(meterRegistry.find("messages.content.sampled.bytes").tag("form", "stored").gauge().value())
+                .isEqualTo(10_000.0);
+        assertThat(meterRegistry.find("messages.content.sample.read").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should neither configure nor sample when compression is disabled")
+    void testDisabled() {
+        // Arrange
+        MessageContentCompression compression =
+                new MessageContentCompression(messageStorageService, meterRegistry, false, "lz4", 512, 100);
+
+        // Act
+        compression.refresh();
+
+        // Assert
+        verify(messageStorageService, never()).configureContentCompression(anyString(), anyInt());
+        verify(messageStorageService, never()).sampleContentSizes(anyInt());
+        assertThat(compression.getCompressionRatio()).isEqualTo(1.0);
+        assertThat(meterRegistry.find("messages.content.sample.read").timer().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should keep running when the database rejects the settings")
+    void testFailure() {
+        // Arrange
+        when(messageStorageService.configureContentCompression("pglz", 2032))
+                .thenThrow(new RuntimeException("Failed to configure message content compression"));
+        MessageContentCompression compression =
+                new MessageContentCompression(messageStorageService, meterRegistry, true, "pglz", 2032, 100);
+
+        // Act & Assert
+        assertThatCode(compression::refresh).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("Should reject unknown codecs, out-of-range thresholds and empty samples")
+    void testInvalidSettings() {
+        // Act & Assert
+        assertThatThrownBy(() -> new MessageContentCompression(messageStorageService, meterRegistry, true, "zstd", 512, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MessageContentCompression(messageStorageService, meterRegistry, true, "lz4", 64, 100))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new MessageContentCompression(messageStorageService, meterRegistry, true, "lz4", 512, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,108 @@
+package com.kafka.app.service;
+
+import com.kafka.app.model.MessageStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("MessageCounters Unit Tests")
+class MessageCountersTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicLong now = new AtomicLong(1_000L);
+    private Map<MessageStatus, Long> stored;
+    private MessageCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        stored = Map.of(MessageStatus.PROCESSED, 5L, MessageStatus.FAILED, 1L);
+        counters = new MessageCounters(() -> {
+            loads.incrementAndGet();
+            return stored;
+        }, 60_000L, now::get);
+    }
+
+    @Test
+    @DisplayName("Should load once and then apply committed deltas without reloading")
+    void testApplyDeltas() {
+        // Arrange
+        counters.get();
+
+        // Act
+        counters.writeStarted();
+        counters.writeCompleted(Map.of(MessageStatus.PROCESSED, 2L), true);
+        counters.writeStarted();
+        counters.writeCompleted(Map.of(MessageStatus.FAILED, -1L, MessageStatus.REPLAYED, 1L), true);
+        counters.writeStarted();
+        counters.writeCompleted(Map.of(MessageStatus.PROCESSED, 100L), false);
+
+        // Assert
+        assertThat(counters.get()).containsOnly(Map.entry(MessageStatus.PROCESSED, 7L), Map.entry(MessageStatus.REPLAYED, 1L));
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should reload after a write with an unknown effect")
+    void testUnknownDelta() {
+        // Arrange
+        counters.get();
+        stored = Map.of(MessageStatus.PROCESSED, 4L);
+
+        // Act
+        counters.writeStarted();
+        counters.writeCompleted(null, true);
+
+        // Assert
+        assertThat(counters.get()).containsOnly(Map.entry(MessageStatus.PROCESSED, 4L));
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should not keep counts loaded while a write is in flight")
+    void testNoSnapshotDuringWrite() {
+        // Arrange
+        counters.writeStarted();
+
+        // Act
+        counters.get();
+        counters.get();
+        counters.writeCompleted(Map.of(MessageStatus.PROCESSED, 1L), true);
+        counters.get();
+        counters.get();
+
+        // Assert
+        assertThat(loads).hasValue(3);
+    }
+
+    @Test
+    @DisplayName("Should reload once the refresh interval has passed")
+    void testRefresh() {
+        // Arrange
+        counters.get();
+
+        // Act
+        now.addAndGet(60_000L);
+        counters.get();
+
+        // Assert
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should peek at a fresh snapshot without loading")
+    void testPeek() {
+        // Act & Assert
+        assertThat(counters.peek()).isNull();
+        counters.get();
+        assertThat(counters.peek()).containsOnly(Map.entry(MessageStatus.PROCESSED, 5L), Map.entry(MessageStatus.FAILED, 1L));
+        now.addAndGet(60_000L);
+        assertThat(counters.peek()).isNull();
+        assertThat(loads).hasValue(1);
+    }
+}
@@ -0,0 +1,89 @@
+package com.kafka.app.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MessagePartitionMaintainer Unit Tests")
+class MessagePartitionMaintainerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 10);
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-03-10T12:00:00Z"), ZoneOffset.UTC);
+
+    @Mock
+    private MessageStorageService messageStorageService;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should create partitions ahead and drop those past retention")
+    void testMaintain() {
+        // Arrange
+        when(messageStorageService.isPartitioned()).thenReturn(true);
+        when(messageStorageService.dropPartitionsBefore(TODAY.minusDays(30))).thenReturn(42L);
+        MessagePartitionMaintainer maintainer = new MessagePartitionMaintainer(messageStorageService, meterRegistry, 7, 30, CLOCK);
+
+        // Act
+        maintainer.maintain();
+
+        // Assert
+        verify(messageStorageService).createPartitions(TODAY, TODAY.plusDays(7));
+        verify(messageStorageService).deleteMessagesCreatedBefore(Date.from(Instant.parse("2024-02-09T00:00:00Z")));
+        assertThat(meterRegistry.find("messages.retention.dropped").counter().count()).isEqualTo(42.0);
+    }
+
+    @Test
+    @DisplayName("Should keep every partition when retention is disabled")
+    void testRetentionDisabled() {
+        // Arrange
+        when(messageStorageService.isPartitioned()).thenReturn(true);
+        MessagePartitionMaintainer maintainer = new MessagePartitionMaintainer(messageStorageService, meterRegistry, 7, 0, CLOCK);
+
+        // Act
+        maintainer.maintain();
+
+        // Assert
+        verify(messageStorageService).createPartitions(TODAY, TODAY.plusDays(7));
+        verify(messageStorageService, never()).dropPartitionsBefore(any());
+        verify(messageStorageService, never()).deleteMessagesCreatedBefore(any());
+    }
+
+    @Test
+    @DisplayName("Should delete expired rows in chunks when the table is not partitioned")
+    void testNotPartitioned() {
+        // Arrange
+        when(messageStorageService.isPartitioned()).thenReturn(false);
+        MessagePartitionMaintainer maintainer = new MessagePartitionMaintainer(messageStorageService, meterRegistry, 7, 30, CLOCK);
+
+        // Act
+        maintainer.maintain();
+        maintainer.maintain();
+
+        // Assert
+        verify(messageStorageService, times(1)).isPartitioned();
+        verify(messageStorageService, never()).createPartitions(any(), any());
+        verify(messageStorageService, never()).dropPartitionsBefore(any());
+        verify(messageStorageService, times(2)).deleteMessagesCreatedBefore(any());
+    }
+}
@@ -1,7 +1,11 @@
 package com.kafka.app.service;
 
+import com.kafka.app.dto.MessageSummary;
 import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
 import com.kafka.app.repository.MessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,8 +14,13 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -27,7 +36,17 @@ class MessageStorageServiceTest {
     static class TestConfig {
         @Bean
         public MessageStorageService messageStorageService(MessageRepository messageRepository) {
-            return new MessageStorageService(messageRepository);
+            return newService(messageRepository, 5000);
+        }
+
+        /**
+         * A service without caching, metrics export or event listeners. Tests build it
+         * directly rather than through the bean so its methods join the test transaction.
+         */
+        static MessageStorageService newService(MessageRepository messageRepository, int deleteChunkSize) {
+            MeterRegistry meterRegistry = new SimpleMeterRegistry();
+            return new MessageStorageService(messageRepository, event -> { },
+                    new MessageByIdCache(meterRegistry, false, 0, 0), meterRegistry, 60_000L, deleteChunkSize);
         }
     }
 
@@ -38,30 +57,78 @@ class MessageStorageServiceTest {
 
     @BeforeEach
     void setUp() {
-        messageStorageService = new MessageStorageService(messageRepository);
+        messageStorageService = TestConfig.newService(messageRepository, 5000);
         messageRepository.deleteAll();
     }
 
+    private static UUID id(int n) {
+        return new UUID(0L, n);
+    }
+
     @Test
     @DisplayName("Should add message to database")
     void testAddMessage() {
         // Arrange
-        Message message = new Message("id1", "Test content", System.currentTimeMillis(), "PROCESSED", null, null);
+        Message message = new Message(id(1), "Test content", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
 
         // Act
         messageStorageService.addMessage(message);
 
         // Assert
         assertThat(messageStorageService.getMessageCount()).isEqualTo(1);
-        assertThat(messageRepository.existsById("id1")).isTrue();
+        assertThat(messageRepository.existsById(id(1))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should add a batch of messages to database")
+    void testAddMessages() {
+        // Arrange
+        List<Message> batch = List.of(
+                new Message(id(1), "Content 1", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null),
+                new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null),
+                new Message(id(3), "Content 3", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null)
+        );
+
+        // Act
+        messageStorageService.addMessages(batch);
+
+        // Assert
+        assertThat(messageStorageService.getMessageCount()).isEqualTo(3);
+        assertThat(messageStorageService.getAllMessages())
+                .extracting(Message::getId)
+                .containsExactlyInAnyOrder(id(1), id(2), id(3));
+    }
+
+    @Test
+    @DisplayName("Should skip messages whose ID is already stored")
+    void testAddMessagesIfAbsentSkipsDuplicates() {
+        // Arrange
+        messageStorageService.addMessage(new Message(id(1), "Original", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+
+        Message duplicate = new Message(id(1), "Replayed", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
+        Message added = new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
+
+        // Act
+        Integer inserted = messageStorageService.addMessagesIfAbsent(List.of(duplicate, added));
+        boolean replayedAgain = messageStorageService.addMessageIfAbsent(
+                new Message(id(2), "Replayed", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+
+        // Assert
+        assertThat(inserted).isEqualTo(1);
+        assertThat(replayedAgain).isFalse();
+        assertThat(messageStorageService.getMessageCount()).isEqualTo(2);
+        assertThat(messageStorageService.getMessageById(id(1)).getContent()).isEqualTo("Original");
+        // Only the inserted copy carries the stored creation time
+        assertThat(added.getCreatedAt()).isNotNull();
+        assertThat(duplicate.getCreatedAt()).isNull();
     }
 
     @Test
     @DisplayName("Should retrieve all messages from database")
     void testGetAllMessages() {
         // Arrange
-        Message message1 = new Message("id1", "Content 1", System.currentTimeMillis(), "PROCESSED", null, null);
-        Message message2 = new Message("id2", "Content 2", System.currentTimeMillis(), "PROCESSED", null, null);
+        Message message1 = new Message(id(1), "Content 1", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
+        Message message2 = new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
 
         messageStorageService.addMessage(message1);
         messageStorageService.addMessage(message2);
@@ -70,28 +137,28 @@ class MessageStorageServiceTest {
         List<Message> messages = messageStorageService.getAllMessages();
 
         // Assert
-        assertThat(messages).hasSize(2).extracting(Message::getId).contains("id1", "id2");
+        assertThat(messages).hasSize(2).extracting(Message::getId).contains(id(1), id(2));
     }
 
     @Test
     @DisplayName("Should retrieve message by ID from database")
     void testGetMessageById() {
         // Arrange
-        Message message = new Message("id123", "Test content", System.currentTimeMillis(), "PROCESSED", null, null);
+        Message message = new Message(id(123), "Test content", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
         messageStorageService.addMessage(message);
 
         // Act
-        Message retrieved = messageStorageService.getMessageById("id123");
+        Message retrieved = messageStorageService.getMessageById(id(123));
 
         // Assert
-        assertThat(retrieved).isNotNull().extracting(Message::getId).isEqualTo("id123");
+        assertThat(retrieved).isNotNull().extracting(Message::getId).isEqualTo(id(123));
     }
 
     @Test
     @DisplayName("Should return null when message not found")
     void testGetMessageByIdNotFound() {
         // Act
-        Message retrieved = messageStorageService.getMessageById("nonexistent");
+        Message retrieved = messageStorageService.getMessageById(id(999));
 
         // Assert
         assertThat(retrieved).isNull();
@@ -103,9 +170,9 @@ class MessageStorageServiceTest {
         // Arrange
         assertThat(messageStorageService.getMessageCount()).isEqualTo(0);
 
-        Message message1 = new Message("id1", "Content 1", System.currentTimeMillis(), "PROCESSED", null, null);
-        Message message2 = new Message("id2", "Content 2", System.currentTimeMillis(), "PROCESSED", null, null);
-        Message message3 = new Message("id3", "Content 3", System.currentTimeMillis(), "PROCESSED", null, null);
+        Message message1 = new Message(id(1), "Content 1", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
+        Message message2 = new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
+        Message message3 = new Message(id(3), "Content 3", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
 
         messageStorageService.addMessage(message1);
         assertThat(messageStorageService.getMessageCount()).isEqualTo(1);
@@ -123,8 +190,8 @@ class MessageStorageServiceTest {
     @DisplayName("Should clear all messages from database")
     void testClearMessages() {
         // Arrange
-        messageStorageService.addMessage(new Message("id1", "Content 1", System.currentTimeMillis(), "PROCESSED", null, null));
-        messageStorageService.addMessage(new Message("id2", "Content 2", System.currentTimeMillis(), "PROCESSED", null, null));
+        messageStorageService.addMessage(new Message(id(1), "Content 1", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
         assertThat(messageStorageService.getMessageCount()).isEqualTo(2);
 
         // Act
@@ -149,30 +216,30 @@ class MessageStorageServiceTest {
     @DisplayName("Should get messages by status")
     void testGetMessagesByStatus() {
         // Arrange
-        messageStorageService.addMessage(new Message("id1", "Content 1", System.currentTimeMillis(), "PROCESSED", null, null));
-        messageStorageService.addMessage(new Message("id2", "Content 2", System.currentTimeMillis(), "PENDING", null, null));
-        messageStorageService.addMessage(new Message("id3", "Content 3", System.currentTimeMillis(), "PROCESSED", null, null));
+        messageStorageService.addMessage(new Message(id(1), "Content 1", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.PENDING, null, null));
+        messageStorageService.addMessage(new Message(id(3), "Content 3", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
 
         // Act
-        List<Message> processed = messageStorageService.getMessagesByStatus("PROCESSED");
-        List<Message> pending = messageStorageService.getMessagesByStatus("PENDING");
+        List<Message> processed = messageStorageService.getMessagesByStatus(MessageStatus.PROCESSED);
+        List<Message> pending = messageStorageService.getMessagesByStatus(MessageStatus.PENDING);
 
         // Assert
         assertThat(processed).hasSize(2);
-        assertThat(pending).hasSize(1).extracting(Message::getStatus).containsOnly("PENDING");
+        assertThat(pending).hasSize(1).extracting(Message::getStatus).containsOnly(MessageStatus.PENDING);
     }
 
     @Test
     @DisplayName("Should count messages by status")
     void testGetMessageCountByStatus() {
         // Arrange
-        messageStorageService.addMessage(new Message("id1", "Content 1", System.currentTimeMillis(), "PROCESSED", null, null));
-        messageStorageService.addMessage(new Message("id2", "Content 2", System.currentTimeMillis(), "PROCESSED", null, null));
-        messageStorageService.addMessage(new Message("id3", "Content 3", System.currentTimeMillis(), "FAILED", null, null));
+        messageStorageService.addMessage(new Message(id(1), "Content 1", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(3), "Content 3", System.currentTimeMillis(), MessageStatus.FAILED, null, null));
 
         // Act
-        long processedCount = messageStorageService.getMessageCountByStatus("PROCESSED");
-        long failedCount = messageStorageService.getMessageCountByStatus("FAILED");
+        long processedCount = messageStorageService.getMessageCountByStatus(MessageStatus.PROCESSED);
+        long failedCount = messageStorageService.getMessageCountByStatus(MessageStatus.FAILED);
 
         // Assert
         assertThat(processedCount).isEqualTo(2);
@@ -183,38 +250,59 @@ class MessageStorageServiceTest {
     @DisplayName("Should search messages by content")
     void testSearchMessages() {
         // Arrange
-        messageStorageService.addMessage(new Message("id1", "Important data", System.currentTimeMillis(), "PROCESSED", null, null));
-        messageStorageService.addMessage(new Message("id2", "Other data", System.currentTimeMillis(), "PROCESSED", null, null));
-        messageStorageService.addMessage(new Message("id3", "Important event", System.currentTimeMillis(), "PROCESSED", null, null));
+        messageStorageService.addMessage(new Message(id(1), "Important data", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(2), "Other data", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(3), "Important event", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+
+        // Act
+        List<Message> results = messageStorageService.searchMessages("Important", 0, 10).getContent();
+
+        // Assert
+        assertThat(results).hasSize(2).extracting(Message::getId).contains(id(1), id(3));
+    }
+
+    @Test
+    @DisplayName("Should page search results and match wildcards literally")
+    void testSearchMessagesPaginated() {
+        // Arrange
+        messageStorageService.addMessage(new Message(id(1), "100% done", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(2), "100 done", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(3), "Also 100% DONE", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
 
         // Act
-        List<Message> results = messageStorageService.searchMessages("Important");
+        Slice<Message> first = messageStorageService.searchMessages("100% done", 0, 1);
+        Slice<Message> second = messageStorageService.searchMessages("100% done", 1, 1);
 
         // Assert
-        assertThat(results).hasSize(2).extracting(Message::getId).contains("id1", "id3");
+        assertThat(first.getContent()).hasSize(1);
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).hasSize(1);
+        assertThat(second.hasNext()).isFalse();
+        assertThat(List.of(first.getContent().get(0).getId(), second.getContent().get(0).getId()))
+                .containsExactlyInAnyOrder(id(1), id(3));
     }
 
     @Test
     @DisplayName("Should delete message by ID")
     void testDeleteMessageById() {
         // Arrange
-        Message message = new Message("id1", "Content", System.currentTimeMillis(), "PROCESSED", null, null);
+        Message message = new Message(id(1), "Content", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
         messageStorageService.addMessage(message);
-        assertThat(messageStorageService.messageExists("id1")).isTrue();
+        assertThat(messageStorageService.messageExists(id(1))).isTrue();
 
         // Act
-        boolean deleted = messageStorageService.deleteMessageById("id1");
+        boolean deleted = messageStorageService.deleteMessageById(id(1));
 
         // Assert
         assertThat(deleted).isTrue();
-        assertThat(messageStorageService.messageExists("id1")).isFalse();
+        assertThat(messageStorageService.messageExists(id(1))).isFalse();
     }
 
     @Test
     @DisplayName("Should return false when deleting non-existent message")
     void testDeleteMessageByIdNotFound() {
         // Act
-        boolean deleted = messageStorageService.deleteMessageById("nonexistent");
+        boolean deleted = messageStorageService.deleteMessageById(id(999));
 
         // Assert
         assertThat(deleted).isFalse();
@@ -224,7 +312,7 @@ class MessageStorageServiceTest {
     @DisplayName("Should update message")
     void testUpdateMessage() {
         // Arrange
-        Message message = new Message("id1", "Original content", System.currentTimeMillis(), "PROCESSED", null, null);
+        Message message = new Message(id(1), "Original content", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
         messageStorageService.addMessage(message);
 
         // Act
@@ -233,34 +321,34 @@ class MessageStorageServiceTest {
 
         // Assert
         assertThat(updated.getContent()).isEqualTo("Updated content");
-        assertThat(messageStorageService.getMessageById("id1").getContent()).isEqualTo("Updated content");
+        assertThat(messageStorageService.getMessageById(id(1)).getContent()).isEqualTo("Updated content");
     }
 
     @Test
     @DisplayName("Should check if message exists")
     void testMessageExists() {
         // Arrange
-        Message message = new Message("id1", "Content", System.currentTimeMillis(), "PROCESSED", null, null);
+        Message message = new Message(id(1), "Content", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
         
         // Act & Assert
-        assertThat(messageStorageService.messageExists("id1")).isFalse();
+        assertThat(messageStorageService.messageExists(id(1))).isFalse();
         messageStorageService.addMessage(message);
-        assertThat(messageStorageService.messageExists("id1")).isTrue();
+        assertThat(messageStorageService.messageExists(id(1))).isTrue();
     }
 
     @Test
     @DisplayName("Should get all processed messages")
     void testGetAllProcessedMessages() {
         // Arrange
-        messageStorageService.addMessage(new Message("id1", "Content 1", System.currentTimeMillis(), "PROCESSED", null, null));
-        messageStorageService.addMessage(new Message("id2", "Content 2", System.currentTimeMillis(), "FAILED", null, null));
-        messageStorageService.addMessage(new Message("id3", "Content 3", System.currentTimeMillis(), "PROCESSED", null, null));
+        messageStorageService.addMessage(new Message(id(1), "Content 1", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.FAILED, null, null));
+        messageStorageService.addMessage(new Message(id(3), "Content 3", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
 
         // Act
         List<Message> processed = messageStorageService.getAllProcessedMessages();
 
         // Assert
-        assertThat(processed).hasSize(2).extracting(Message::getStatus).containsOnly("PROCESSED");
+        assertThat(processed).hasSize(2).extracting(Message::getStatus).containsOnly(MessageStatus.PROCESSED);
     }
 
     @Test
@@ -269,7 +357,7 @@ class MessageStorageServiceTest {
         // Arrange
         for (int i = 0; i < 15; i++) {
             messageStorageService.addMessage(
-                new Message("id" + i, "Content " + i, System.currentTimeMillis(), "PROCESSED", null, null)
+                new Message(id(i), "Content " + i, System.currentTimeMillis(), MessageStatus.PROCESSED, null, null)
             );
         }
 
@@ -289,13 +377,13 @@ class MessageStorageServiceTest {
         // Arrange & Act
         for (int i = 0; i < 100; i++) {
             messageStorageService.addMessage(
-                new Message("id" + i, "Content " + i, System.currentTimeMillis(), "PROCESSED", null, null)
+                new Message(id(i), "Content " + i, System.currentTimeMillis(), MessageStatus.PROCESSED, null, null)
             );
         }
 
         // Assert
         assertThat(messageStorageService.getMessageCount()).isEqualTo(100);
-        assertThat(messageStorageService.getMessageById("id50")).isNotNull();
+        assertThat(messageStorageService.getMessageById(id(50))).isNotNull();
     }
 
     @Test
@@ -303,13 +391,361 @@ class MessageStorageServiceTest {
     void testPreserveMessageContent() {
         // Arrange
         String originalContent = "  Leading and trailing spaces  \nNewline\tTab";
-        Message message = new Message("id1", originalContent, System.currentTimeMillis(), "PROCESSED", null, null);
+        Message message = new Message(id(1), originalContent, System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
 
         // Act
         messageStorageService.addMessage(message);
-        Message retrieved = messageStorageService.getMessageById("id1");
+        Message retrieved = messageStorageService.getMessageById(id(1));
 
         // Assert
         assertThat(retrieved.getContent()).isEqualTo(originalContent);
     }
+
+    @Test
+    @DisplayName("Should list failed messages with their retry details")
+    void testGetFailedMessages() {
+        // Arrange
+        Message failed = new Message(id(1), "Poison", System.currentTimeMillis(), MessageStatus.FAILED, null, null);
+        failed.setRetryCount(3);
+        failed.setErrorMessage("Storage error");
+        failed.setSourceTopic("messages");
+        messageStorageService.addMessage(failed);
+        messageStorageService.addMessage(new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+
+        // Act
+        Page<Message> page = messageStorageService.getFailedMessages(0, 10);
+
+        // Assert
+        assertThat(page.getContent()).hasSize(1);
+        Message retrieved = page.getContent().get(0);
+        assertThat(retrieved.getId()).isEqualTo(id(1));
+        assertThat(retrieved.getRetryCount()).isEqualTo(3);
+        assertThat(retrieved.getErrorMessage()).isEqualTo("Storage error");
+        assertThat(retrieved.getSourceTopic()).isEqualTo("messages");
+    }
+
+    @Test
+    @DisplayName("Should mark only failed messages as replayed")
+    void testMarkReplayed() {
+        // Arrange
+        messageStorageService.addMessage(new Message(id(1), "Poison", System.currentTimeMillis(), MessageStatus.FAILED, null, null));
+        messageStorageService.addMessage(new Message(id(2), "Content 2", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+
+        // Act
+        Message replayed = messageStorageService.markReplayed(id(1));
+        Message notFailed = messageStorageService.markReplayed(id(2));
+
+        // Assert
+        assertThat(replayed.getStatus()).isEqualTo(MessageStatus.REPLAYED);
+        assertThat(notFailed).isNull();
+        assertThat(messageStorageService.getFailedMessages(0, 10).getContent()).isEmpty();
+        assertThat(messageStorageService.markReplayed(id(1))).isNull();
+    }
+
+    @Test
+    @DisplayName("Should return a replayed message to failed once")
+    void testRevertReplayed() {
+        // Arrange
+        messageStorageService.addMessage(new Message(id(1), "Poison", System.currentTimeMillis(), MessageStatus.FAILED, null, null));
+        messageStorageService.markReplayed(id(1));
+
+        // Act
+        boolean reverted = messageStorageService.revertReplayed(id(1));
+        boolean revertedAgain = messageStorageService.revertReplayed(id(1));
+
+        // Assert
+        assertThat(reverted).isTrue();
+        assertThat(revertedAgain).isFalse();
+        assertThat(messageRepository.findById(id(1))).get().extracting(Message::getStatus).isEqualTo(MessageStatus.FAILED);
+    }
+
+    @Test
+    @DisplayName("Should overwrite a pending attempt but keep a final outcome")
+    void testRecordAttempt() {
+        // Arrange
+        Message pending = new Message(id(1), "Content", System.currentTimeMillis(), MessageStatus.PENDING, null, null);
+        pending.setRetryCount(1);
+        pending.setErrorMessage("Database down");
+        Message processed = new Message(id(1), "Content", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null);
+        processed.setRetryCount(1);
+        processed.setErrorMessage("Database down");
+        Message failed = new Message(id(1), "Content", System.currentTimeMillis(), MessageStatus.FAILED, null, null);
+        failed.setRetryCount(4);
+
+        // Act
+        boolean pendingStored = messageStorageService.recordAttempt(pending);
+        boolean processedStored = messageStorageService.recordAttempt(processed);
+        boolean failedStored = messageStorageService.recordAttempt(failed);
+
+        // Assert
+        assertThat(pendingStored).isTrue();
+        assertThat(processedStored).isTrue();
+        assertThat(failedStored).isFalse();
+        Message stored = messageRepository.findById(id(1)).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(MessageStatus.PROCESSED);
+        assertThat(stored.getRetryCount()).isEqualTo(1);
+        assertThat(stored.getErrorMessage()).isEqualTo("Database down");
+    }
+
+    @Test
+    @DisplayName("Should walk all messages with keyset pagination without repeats")
+    void testGetMessagesAfter() {
+        // Arrange
+        for (int i = 1; i <= 5; i++) {
+            messageStorageService.addMessage(new Message(id(i), "Content " + i, System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        }
+
+        // Act
+        List<UUID> seen = new java.util.ArrayList<>();
+        MessageCursor cursor = null;
+        Slice<Message> slice;
+        do {
+            slice = messageStorageService.getMessagesAfter(cursor, 2);
+            slice.getContent().forEach(message -> seen.add(message.getId()));
+            if (slice.hasContent()) {
+                cursor = MessageCursor.after(slice.getContent().get(slice.getNumberOfElements() - 1));
+            }
+        } while (slice.hasNext());
+
+        // Assert
+        assertThat(seen).hasSize(5).doesNotHaveDuplicates()
+                .containsExactlyInAnyOrder(id(1), id(2), id(3), id(4), id(5));
+        assertThat(slice.getNumberOfElements()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should list summaries with content cut to the preview length")
+    void testGetMessageSummaries() {
+        // Arrange
+        messageStorageService.addMessage(new Message(id(1), "Short", 1L, MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(2), "A much longer body", 2L, MessageStatus.PENDING, null, null));
+
+        // Act
+        List<MessageSummary> all = messageStorageService.getMessageSummariesAfter(null, 10, 6).getContent();
+
+        // Assert
+        assertThat(all).hasSize(2);
+        assertThat(all).filteredOn(summary -> summary.getId().equals(id(2))).singleElement().satisfies(summary -> {
+            assertThat(summary.getStatus()).isEqualTo(MessageStatus.PENDING);
+            assertThat(summary.getTimestamp()).isEqualTo(2L);
+            assertThat(summary.getContent()).isEqualTo("A much");
+            assertThat(summary.isTruncated()).isTrue();
+        });
+        assertThat(all).filteredOn(summary -> summary.getId().equals(id(1))).singleElement().satisfies(summary -> {
+            assertThat(summary.getContent()).isEqualTo("Short");
+            assertThat(summary.isTruncated()).isFalse();
+        });
+    }
+
+    @Test
+    @DisplayName("Should list summaries by status, date range and processed, capped at the limit")
+    void testGetFilteredMessageSummaries() {
+        // Arrange
+        messageStorageService.addMessage(new Message(id(1), "Short", 1L, MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(2), "A much longer body", 2L, MessageStatus.PENDING, null, null));
+        messageStorageService.addMessage(new Message(id(3), "Processed later", 3L, MessageStatus.PROCESSED, null, null));
+        Date from = new Date(System.currentTimeMillis() - 60_000L);
+        Date to = new Date(System.currentTimeMillis() + 60_000L);
+
+        // Act
+        Slice<MessageSummary> pending = messageStorageService.getMessageSummariesByStatus(MessageStatus.PENDING, 10, 6);
+        Slice<MessageSummary> inRange = messageStorageService.getMessageSummariesByDateRange(from, to, 2, 6);
+        Slice<MessageSummary> processed = messageStorageService.getProcessedMessageSummaries(10, 6);
+
+        // Assert
+        assertThat(pending.getContent()).singleElement().satisfies(summary -> {
+            assertThat(summary.getId()).isEqualTo(id(2));
+            assertThat(summary.getContent()).isEqualTo("A much");
+            assertThat(summary.isTruncated()).isTrue();
+        });
+        assertThat(inRange.getContent()).hasSize(2);
+        assertThat(inRange.hasNext()).isTrue();
+        assertThat(processed.getContent()).extracting(MessageSummary::getId).containsExactly(id(3), id(1));
+        assertThat(processed.getContent()).extracting(MessageSummary::getContent).containsExactly("Proces", "Short");
+        assertThat(messageStorageService.getProcessedMessages(1).getContent())
+                .extracting(Message::getContent).containsExactly("Processed later");
+    }
+
+    @Test
+    @DisplayName("Should walk all summaries with keyset pagination without repeats")
+    void testGetMessageSummariesAfter() {
+        // Arrange
+        for (int i = 1; i <= 5; i++) {
+            messageStorageService.addMessage(new Message(id(i), "Content " + i, System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        }
+
+        // Act
+        List<UUID> seen = new java.util.ArrayList<>();
+        MessageCursor cursor = null;
+        Slice<MessageSummary> slice;
+        do {
+            slice = messageStorageService.getMessageSummariesAfter(cursor, 2, 100);
+            slice.getContent().forEach(summary -> seen.add(summary.getId()));
+            if (slice.hasContent()) {
+                cursor = MessageCursor.after(slice.getContent().get(slice.getNumberOfElements() - 1));
+            }
+        } while (slice.hasNext());
+
+        // Assert
+        assertThat(seen).hasSize(5).doesNotHaveDuplicates()
+                .containsExactlyInAnyOrder(id(1), id(2), id(3), id(4), id(5));
+    }
+
+    @Test
+    @DisplayName("Should round-trip a keyset cursor through its opaque form")
+    void testMessageCursorRoundTrip() {
+        // Arrange
+        UUID id = UUID.fromString("6f1c2a9e-3b4d-4c5e-8f70-9a1b2c3d4e5f");
+        Message message = new Message(id, "Content", 1L, MessageStatus.PROCESSED, new java.sql.Timestamp(1_700_000_000_123L), null);
+        String foreign = java.util.Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2023-11-14T22:13:20.123Z|id1".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        // Act
+        MessageCursor decoded = MessageCursor.decode(MessageCursor.after(message).encode());
+
+        // Assert
+        assertThat(decoded.getId()).isEqualTo(id);
+        assertThat(decoded.getTime().getTime()).isEqualTo(1_700_000_000_123L);
+        assertThatThrownBy(() -> MessageCursor.decode("not a cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MessageCursor.decode(foreign))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should hold the changes bound back by the settle time")
+    void testGetChangesBound() {
+        // Arrange
+        long before = System.currentTimeMillis();
+
+        // Act
+        java.util.Date bound = messageStorageService.getChangesBound(1000L);
+
+        // Assert
+        assertThat(bound.getTime()).isBetween(before - 1000L, System.currentTimeMillis() - 1000L);
+    }
+
+    @Test
+    @DisplayName("Should return inserted and then updated messages after a watermark")
+    void testGetChangesSince() throws InterruptedException {
+        // Arrange
+        for (int i = 1; i <= 3; i++) {
+            messageStorageService.addMessage(new Message(id(i), "Content " + i, System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        }
+        java.util.Date until = new java.util.Date(System.currentTimeMillis() + 60_000L);
+
+        // Act
+        List<UUID> inserted = new java.util.ArrayList<>();
+        MessageCursor watermark = MessageCursor.of(new java.util.Date(0), MessageCursor.MIN_ID);
+        Slice<Message> slice;
+        do {
+            slice = messageStorageService.getChangesSince(watermark, until, 2);
+            slice.getContent().forEach(message -> inserted.add(message.getId()));
+            if (slice.hasContent()) {
+                watermark = MessageCursor.afterUpdate(slice.getContent().get(slice.getNumberOfElements() - 1));
+            }
+        } while (slice.hasNext());
+        Thread.sleep(10);
+        Message changed = messageStorageService.getMessageById(id(2));
+        changed.setStatus(MessageStatus.REPLAYED);
+        messageStorageService.updateMessage(changed);
+        Slice<Message> updated = messageStorageService.getChangesSince(watermark, until, 2);
+
+        // Assert
+        assertThat(inserted).containsExactlyInAnyOrder(id(1), id(2), id(3));
+        assertThat(updated.getContent()).extracting(Message::getId).containsExactly(id(2));
+        assertThat(updated.hasNext()).isFalse();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Should change the version tag on writes but not on reads")
+    void testVersionTag() {
+        // Arrange
+        String initial = messageStorageService.getVersionTag();
+
+        // Act
+        messageStorageService.getAllMessages();
+        String afterRead = messageStorageService.getVersionTag();
+        messageStorageService.addMessage(new Message(id(1), "Content", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        String afterInsert = messageStorageService.getVersionTag();
+        messageStorageService.deleteMessageById(id(1));
+        String afterDelete = messageStorageService.getVersionTag();
+
+        // Assert
+        assertThat(afterRead).isEqualTo(initial);
+        assertThat(afterInsert).isNotEqualTo(initial);
+        assertThat(afterDelete).isNotEqualTo(afterInsert);
+    }
+
+    @Test
+    @DisplayName("Should change the version tag after a write made outside this instance")
+    void testSharedVersionCheck() {
+        // Arrange
+        messageStorageService.checkSharedVersion();
+        String initial = messageStorageService.getVersionTag();
+
+        // Act
+        messageRepository.insertIgnoringDuplicates(
+                List.of(new Message(id(1), "Content", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null)));
+        messageStorageService.checkSharedVersion();
+        String afterForeignWrite = messageStorageService.getVersionTag();
+        messageStorageService.checkSharedVersion();
+        String afterQuietCheck = messageStorageService.getVersionTag();
+
+        // Assert
+        assertThat(afterForeignWrite).isNotEqualTo(initial);
+        assertThat(afterQuietCheck).isEqualTo(afterForeignWrite);
+    }
+
+    @Test
+    @DisplayName("Should delete by status and by age in chunks")
+    void testChunkedDeletes() {
+        // Arrange
+        MessageStorageService chunked = TestConfig.newService(messageRepository, 2);
+        for (int i = 1; i <= 5; i++) {
+            chunked.addMessage(new Message(id(i), "Poison", System.currentTimeMillis(), MessageStatus.FAILED, null, null));
+        }
+        chunked.addMessage(new Message(id(6), "Content", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+
+        // Act
+        long byStatus = chunked.deleteMessagesByStatus(MessageStatus.FAILED);
+        long byAge = chunked.deleteMessagesCreatedBefore(new java.util.Date(System.currentTimeMillis() + 60_000L));
+
+        // Assert
+        assertThat(byStatus).isEqualTo(5);
+        assertThat(byAge).isEqualTo(1);
+        assertThat(messageRepository.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should export only messages matching the status filter")
+    void testExportMessages() {
+        // Arrange
+        messageStorageService.addMessage(new Message(id(1), "Content 1", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        messageStorageService.addMessage(new Message(id(2), "Poison", System.currentTimeMillis(), MessageStatus.FAILED, null, null));
+        messageStorageService.addMessage(new Message(id(3), "Content 3", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        List<UUID> exported = new java.util.ArrayList<>();
+
+        // Act
+        long count = messageStorageService.exportMessages(MessageStatus.PROCESSED, null, null, message -> exported.add(message.getId()));
+
+        // Assert
+        assertThat(count).isEqualTo(2);
+        assertThat(exported).containsExactlyInAnyOrder(id(1), id(3));
+    }
+
+    @Test
+    @DisplayName("Should export nothing outside the date range")
+    void testExportMessagesDateRange() {
+        // Arrange
+        messageStorageService.addMessage(new Message(id(1), "Content 1", System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        java.util.Date future = new java.util.Date(System.currentTimeMillis() + 60_000);
+
+        // Act
+        long count = messageStorageService.exportMessages(null, future, null, message -> { });
+
+        // Assert
+        assertThat(count).isZero();
+    }
 }
@@ -0,0 +1,287 @@
+package com.kafka.app.service;
+
+import com.kafka.app.event.MessagesConsumedEvent;
+import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MessageWriteBehindBuffer Unit Tests")
+class MessageWriteBehindBufferTest {
+
+    @Mock
+    private MessageStorageService messageStorageService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ConsumerRecordRecoverer recoverer;
+
+    @Mock
+    private ObjectProvider<ConsumerRecordRecoverer> recovererProvider;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @Captor
+    private ArgumentCaptor<List<Message>> batchCaptor;
+
+    private MeterRegistry meterRegistry;
+    private MessageWriteBehindBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (buffer != null) {
+            buffer.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Should flush as soon as a full batch is queued")
+    void testFlushOnSize() {
+        // Arrange
+        buffer = newBuffer(10, 3, 60_000L, 1_000L);
+        when(messageStorageService.addMessagesIfAbsent(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+        buffer.start();
+
+        // Act
+        enqueue(messages(3));
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                verify(messageStorageService, times(1)).addMessagesIfAbsent(argThat(batch -> batch.size() == 3)));
+        assertThat(meterRegistry.find("messages.write_behind.flushed").counter().count()).isEqualTo(3.0);
+    }
+
+    @Test
+    @DisplayName("Should acknowledge the records and publish the consumed event only once the batch is stored")
+    void testAcknowledgeAndPublishAfterFlush() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        buffer = newBuffer(10, 2, 60_000L, 1_000L);
+        when(messageStorageService.addMessagesIfAbsent(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return 2;
+        });
+        buffer.start();
+
+        // Act
+        enqueue(messages(2));
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                verify(messageStorageService).addMessagesIfAbsent(anyList()));
+        verifyNoInteractions(eventPublisher);
+        verifyNoInteractions(acknowledgment);
+        release.countDown();
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof MessagesConsumedEvent consumed
+                        && consumed.getMessages().size() == 2)));
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+
+    @Test
+    @DisplayName("Should flush a partial batch after the flush interval")
+    void testFlushOnInterval() {
+        // Arrange
+        buffer = newBuffer(10, 100, 50L, 1_000L);
+        when(messageStorageService.addMessagesIfAbsent(anyList())).thenReturn(2);
+        buffer.start();
+
+        // Act
+        enqueue(messages(2));
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                verify(messageStorageService, times(1)).addMessagesIfAbsent(argThat(batch -> batch.size() == 2)));
+    }
+
+    @Test
+    @DisplayName("Should reject messages once the buffer stays full")
+    void testBackPressureWhenFull() throws Exception {
+        // Arrange - hold the writer inside its first flush so the queue cannot drain
+        CountDownLatch release = new CountDownLatch(1);
+        buffer = newBuffer(2, 1, 10L, 50L);
+        when(messageStorageService.addMessagesIfAbsent(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return 1;
+        });
+        buffer.start();
+        enqueue(messages(1));
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                verify(messageStorageService).addMessagesIfAbsent(anyList()));
+
+        // Act & Assert
+        enqueue(messages(2));
+        assertThatThrownBy(() -> enqueue(messages(1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("full");
+        assertThat(meterRegistry.find("messages.write_behind.rejected").counter().count()).isEqualTo(1.0);
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Should drain queued messages on stop")
+    void testDrainOnStop() {
+        // Arrange
+        buffer = newBuffer(100, 1000, 60_000L, 1_000L);
+        when(messageStorageService.addMessagesIfAbsent(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+        buffer.start();
+        enqueue(messages(5));
+
+        // Act
+        buffer.stop();
+
+        // Assert
+        verify(messageStorageService, atLeastOnce()).addMessagesIfAbsent(batchCaptor.capture());
+        assertThat(batchCaptor.getAllValues().stream().mapToInt(List::size).sum()).isEqualTo(5);
+        assertThat(buffer.isRunning()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should write a repeatedly rejected batch one by one and recover only the bad message")
+    void testPoisonMessageIsolated() {
+        // Arrange
+        when(recovererProvider.getIfAvailable()).thenReturn(recoverer);
+        buffer = newBuffer(10, 3, 10L, 1_000L);
+        List<Message> batch = messages(3);
+        Message poison = batch.get(1);
+        when(messageStorageService.addMessagesIfAbsent(anyList())).thenAnswer(invocation -> {
+            List<Message> messages = invocation.getArgument(0);
+            if (messages.contains(poison)) {
+                throw new RuntimeException("Failed to add messages", new DataIntegrityViolationException("value too long"));
+            }
+            return messages.size();
+        });
+        buffer.start();
+
+        // Act
+        List<ConsumerRecord<String, String>> records = enqueue(batch);
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(meterRegistry.find("messages.write_behind.recovered").counter().count()).isEqualTo(1.0));
+        assertThat(meterRegistry.find("messages.write_behind.flushed").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.find("messages.write_behind.dropped").counter().count()).isZero();
+        verify(messageStorageService, times(2)).addMessagesIfAbsent(List.of(poison));
+        verify(recoverer, times(1)).accept(eq(records.get(1)), any(Exception.class));
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+
+    @Test
+    @DisplayName("Should drop a bad message only when it cannot be recovered either")
+    void testPoisonMessageDroppedWhenRecoveryFails() {
+        // Arrange
+        when(recovererProvider.getIfAvailable()).thenReturn(recoverer);
+        doThrow(new IllegalStateException("Broker unavailable")).when(recoverer).accept(any(), any());
+        buffer = newBuffer(10, 1, 10L, 1_000L);
+        when(messageStorageService.addMessagesIfAbsent(anyList()))
+                .thenThrow(new RuntimeException("Failed to add messages", new DataIntegrityViolationException("value too long")));
+        buffer.start();
+
+        // Act
+        enqueue(messages(1));
+
+        // Assert
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(meterRegistry.find("messages.write_behind.dropped").counter().count()).isEqualTo(1.0));
+        assertThat(meterRegistry.find("messages.write_behind.recovered").counter().count()).isZero();
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    @DisplayName("Should keep retrying a batch while the database is unreachable")
+    void testTransientFailureRetried() {
+        // Arrange
+        buffer = newBuffer(10, 1, 10L, 1_000L);
+        when(messageStorageService.addMessagesIfAbsent(anyList()))
+                .thenThrow(new CannotCreateTransactionException("Connection refused"))
+                .thenThrow(new CannotCreateTransactionException("Connection refused"))
+                .thenThrow(new CannotCreateTransactionException("Connection refused"))
+                .thenReturn(1);
+        buffer.start();
+
+        // Act
+        enqueue(messages(1));
+
+        // Assert - more attempts than max-flush-attempts, and nothing dropped
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() ->
+                assertThat(meterRegistry.find("messages.write_behind.flushed").counter().count()).isEqualTo(1.0));
+        verify(messageStorageService, times(4)).addMessagesIfAbsent(anyList());
+        assertThat(meterRegistry.find("messages.write_behind.dropped").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should not accept messages when write-behind is disabled")
+    void testDisabledBufferDoesNotStart() {
+        // Arrange
+        buffer = new MessageWriteBehindBuffer(messageStorageService, eventPublisher, recovererProvider, meterRegistry,
+                false, 10, 10, 100L, 100L, 1_000L, 3);
+
+        // Act
+        buffer.start();
+
+        // Assert
+        assertThat(buffer.isEnabled()).isFalse();
+        assertThat(buffer.isRunning()).isFalse();
+        assertThatThrownBy(() -> enqueue(messages(1))).isInstanceOf(IllegalStateException.class);
+    }
+
+    private MessageWriteBehindBuffer newBuffer(int capacity, int flushSize, long flushIntervalMs, long offerTimeoutMs) {
+        return new MessageWriteBehindBuffer(messageStorageService, eventPublisher, recovererProvider, meterRegistry, true,
+                capacity, flushSize, flushIntervalMs, offerTimeoutMs, 5_000L, 2);
+    }
+
+    /** Queue the messages along with a record for each, as the consumer does. */
+    private List<ConsumerRecord<String, String>> enqueue(List<Message> messages) {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            records.add(new ConsumerRecord<>("messages", 0, i, null, messages.get(i).getContent()));
+        }
+        buffer.enqueue(records, messages, acknowledgment);
+        return records;
+    }
+
+    private static List<Message> messages(int count) {
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(new Message(UUID.randomUUID(), "Content " + i, System.currentTimeMillis(), MessageStatus.PROCESSED, null, null));
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,229 @@
+package com.kafka.app.service;
+
+import com.kafka.app.event.MessagesConsumedEvent;
+import com.kafka.app.event.MessagesRemovedEvent;
+import com.kafka.app.event.MessagesUpdatedEvent;
+import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RecentMessageBuffer Unit Tests")
+class RecentMessageBufferTest {
+
+    private static final long START = 1_000_000L;
+    private static final long SETTLE_MS = 2_000L;
+    private static final long RELOAD_MS = 60_000L;
+
+    @Mock
+    private MessageStorageService messageStorageService;
+
+    private final AtomicLong clock = new AtomicLong(START);
+
+    private RecentMessageBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new RecentMessageBuffer(messageStorageService, 3, true, SETTLE_MS, RELOAD_MS, clock::get);
+    }
+
+    @Test
+    @DisplayName("Should keep only the newest messages, newest first")
+    void testKeepsNewest() {
+        // Act
+        buffer.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(1)), message(id(2)))));
+        buffer.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(3)), message(id(4)))));
+
+        // Assert
+        assertThat(buffer.getRecent(10)).extracting(Message::getId).containsExactly(id(4), id(3), id(2));
+        assertThat(buffer.getRecent(2)).extracting(Message::getId).containsExactly(id(4), id(3));
+    }
+
+    @Test
+    @DisplayName("Should ignore re-delivered messages that are still buffered")
+    void testSkipsDuplicates() {
+        // Act
+        buffer.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(1)), message(id(2)))));
+        buffer.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(1)))));
+
+        // Assert
+        assertThat(buffer.getRecent(10)).extracting(Message::getId).containsExactly(id(2), id(1));
+    }
+
+    @Test
+    @DisplayName("Should seed from the database behind already consumed messages")
+    void testSeedBehindConsumed() {
+        // Arrange
+        buffer.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(9)))));
+        when(messageStorageService.getMessagesAfter(isNull(), eq(3))).thenReturn(new SliceImpl<>(
+                List.of(message(id(9)), message(id(8)), message(id(7)), message(id(6))), PageRequest.ofSize(3), true));
+
+        // Act
+        buffer.seed();
+
+        // Assert
+        assertThat(buffer.getRecent(10)).extracting(Message::getId).containsExactly(id(9), id(8), id(7));
+    }
+
+    @Test
+    @DisplayName("Should survive a failing seed query")
+    void testSeedFailure() {
+        // Arrange
+        when(messageStorageService.getMessagesAfter(isNull(), eq(3))).thenThrow(new RuntimeException("Database error"));
+
+        // Act & Assert
+        assertThatCode(() -> buffer.seed()).doesNotThrowAnyException();
+        assertThat(buffer.getRecent(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should drop removed messages")
+    void testRemovesMessages() {
+        // Arrange
+        buffer.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(1)), message(id(2)))));
+
+        // Act
+        buffer.onMessagesRemoved(MessagesRemovedEvent.of(Set.of(id(1))));
+
+        // Assert
+        assertThat(buffer.getRecent(10)).extracting(Message::getId).containsExactly(id(2));
+
+        buffer.onMessagesRemoved(MessagesRemovedEvent.all());
+        assertThat(buffer.getRecent(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should replace updated messages in place")
+    void testReplacesUpdatedMessages() {
+        // Arrange
+        buffer.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(1)), message(id(2)))));
+        Message replayed = new Message(id(1), "Content " + id(1), 1L, MessageStatus.REPLAYED, null, null);
+
+        // Act
+        buffer.onMessagesUpdated(new MessagesUpdatedEvent(List.of(replayed, message(id(9)))));
+
+        // Assert
+        assertThat(buffer.getRecent(10)).extracting(Message::getId).containsExactly(id(2), id(1));
+        assertThat(buffer.getRecent(10)).extracting(Message::getStatus).containsExactly(MessageStatus.PROCESSED, MessageStatus.REPLAYED);
+    }
+
+    @Test
+    @DisplayName("Should read from the database until the buffer has followed it once")
+    void testReadsDatabaseUntilLoaded() {
+        // Arrange
+        RecentMessageBuffer shared = sharedBuffer();
+        when(messageStorageService.getMessagesAfter(isNull(), eq(2))).thenReturn(new SliceImpl<>(
+                List.of(message(id(8), 8L), message(id(7), 7L)), PageRequest.ofSize(2), true));
+
+        // Act
+        List<Message> recent = shared.getRecent(2);
+
+        // Assert
+        assertThat(recent).extracting(Message::getId).containsExactly(id(8), id(7));
+    }
+
+    @Test
+    @DisplayName("Should load from the database and then merge its changes unless this is the only consuming instance")
+    void testFollowsDatabaseWithoutSingleInstance() {
+        // Arrange
+        RecentMessageBuffer shared = sharedBuffer();
+        when(messageStorageService.getChangesBound(SETTLE_MS)).thenReturn(new Date(100L), new Date(200L));
+        when(messageStorageService.getMessagesAfter(isNull(), eq(3))).thenReturn(new SliceImpl<>(
+                List.of(message(id(8), 8L), message(id(7), 7L), message(id(6), 6L)), PageRequest.ofSize(3), true));
+        Message replayed = new Message(id(7), "Content " + id(7), 1L, MessageStatus.REPLAYED, new Date(7L), null);
+        when(messageStorageService.getChangesSince(
+                argThat(since -> since.getTime().getTime() == 100L), eq(new Date(200L)), eq(3))).thenReturn(new SliceImpl<>(
+                List.of(replayed, message(id(9), 9L), message(id(5), 5L)), PageRequest.ofSize(3), false));
+
+        // Act
+        shared.seed();
+        shared.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(10), 10L))));
+        shared.refresh();
+        List<Message> recent = shared.getRecent(3);
+
+        // Assert
+        assertThat(recent).extracting(Message::getId).containsExactly(id(9), id(8), id(7));
+        assertThat(recent).extracting(Message::getStatus)
+                .containsExactly(MessageStatus.PROCESSED, MessageStatus.PROCESSED, MessageStatus.REPLAYED);
+        verify(messageStorageService, times(1)).getMessagesAfter(isNull(), eq(3));
+        verify(messageStorageService, never()).getMessagesAfter(isNull(), eq(2));
+    }
+
+    @Test
+    @DisplayName("Should reload instead of merging once the reload interval passed or too many changes wait")
+    void testReloadsFromDatabase() {
+        // Arrange
+        RecentMessageBuffer shared = sharedBuffer();
+        when(messageStorageService.getChangesBound(SETTLE_MS)).thenReturn(new Date(100L));
+        when(messageStorageService.getMessagesAfter(isNull(), eq(3)))
+                .thenReturn(new SliceImpl<>(List.of(message(id(8), 8L), message(id(7), 7L)), PageRequest.ofSize(3), false))
+                .thenReturn(new SliceImpl<>(List.of(message(id(8), 8L)), PageRequest.ofSize(3), false))
+                .thenReturn(new SliceImpl<>(List.of(message(id(9), 9L)), PageRequest.ofSize(3), false));
+        when(messageStorageService.getChangesSince(any(MessageCursor.class), any(Date.class), eq(3)))
+                .thenReturn(new SliceImpl<>(List.of(message(id(1), 1L), message(id(2), 2L), message(id(3), 3L)),
+                        PageRequest.ofSize(3), true));
+
+        // Act
+        shared.seed();
+        clock.addAndGet(RELOAD_MS);
+        shared.refresh();
+        List<Message> afterInterval = shared.getRecent(3);
+        shared.refresh();
+
+        // Assert
+        assertThat(afterInterval).extracting(Message::getId).containsExactly(id(8));
+        assertThat(shared.getRecent(3)).extracting(Message::getId).containsExactly(id(9));
+        verify(messageStorageService, times(3)).getMessagesAfter(isNull(), eq(3));
+    }
+
+    @Test
+    @DisplayName("Should retry a failed load on the next refresh")
+    void testRetriesFailedLoad() {
+        // Arrange
+        RecentMessageBuffer shared = sharedBuffer();
+        when(messageStorageService.getChangesBound(SETTLE_MS)).thenReturn(new Date(100L));
+        when(messageStorageService.getMessagesAfter(isNull(), eq(3)))
+                .thenThrow(new RuntimeException("Database error"))
+                .thenReturn(new SliceImpl<>(List.of(message(id(8), 8L)), PageRequest.ofSize(3), false));
+
+        // Act
+        assertThatCode(shared::seed).doesNotThrowAnyException();
+        shared.refresh();
+
+        // Assert
+        assertThat(shared.getRecent(3)).extracting(Message::getId).containsExactly(id(8));
+    }
+
+    private RecentMessageBuffer sharedBuffer() {
+        return new RecentMessageBuffer(messageStorageService, 3, false, SETTLE_MS, RELOAD_MS, clock::get);
+    }
+
+    private static UUID id(int n) {
+        return new UUID(0L, n);
+    }
+
+    private static Message message(UUID id) {
+        return new Message(id, "Content " + id, 1L, MessageStatus.PROCESSED, null, null);
+    }
+
+    private static Message message(UUID id, long createdAt) {
+        return new Message(id, "Content " + id, 1L, MessageStatus.PROCESSED, new Date(createdAt), null);
+    }
+}
@@ -0,0 +1,231 @@
+package com.kafka.app.service;
+
+import com.kafka.app.event.MessagesConsumedEvent;
+import com.kafka.app.event.MessagesRemovedEvent;
+import com.kafka.app.event.MessagesUpdatedEvent;
+import com.kafka.app.model.Message;
+import com.kafka.app.model.MessageStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+@DisplayName("RecentMessageIndex Unit Tests")
+class RecentMessageIndexTest {
+
+    private static final long START = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(START);
+
+    @Test
+    @DisplayName("Should match case-insensitive substrings, newest first then by ID")
+    void testSearchSubstrings() {
+        // Arrange
+        RecentMessageIndex index = newIndex(60_000L, 1_000_000L);
+        index.onMessagesConsumed(new MessagesConsumedEvent(List.of(
+                message(id(1), "Order created for customer-42", START + 1),
+                message(id(2), "Order shipped", START + 2),
+                message(id(3), "Customer ORDERS updated", START + 2))));
+
+        // Act
+        Optional<List<Message>> orders = index.search("order", START, 0, 10);
+        Optional<List<Message>> spanning = index.search("tomer ord", START, 0, 10);
+        Optional<List<Message>> newest = index.search("order", START + 2, 0, 10);
+
+        // Assert
+        assertThat(orders.orElseThrow()).extracting(Message::getId).containsExactly(id(3), id(2), id(1));
+        assertThat(spanning.orElseThrow()).extracting(Message::getId).containsExactly(id(3));
+        assertThat(newest.orElseThrow()).extracting(Message::getId).containsExactly(id(3), id(2));
+        assertThat(index.search("or", START, 0, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should index a re-delivered message only once")
+    void testSkipsDuplicates() {
+        // Arrange
+        RecentMessageIndex index = newIndex(60_000L, 1_000_000L);
+
+        // Act
+        index.add(List.of(message(id(1), "hello world")));
+        index.add(List.of(message(id(1), "hello world")));
+
+        // Assert
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("hello", START, 0, 10).orElseThrow()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Should decline searches older than the window or before startup")
+    void testDeclinesUncoveredRange() {
+        // Arrange
+        RecentMessageIndex index = newIndex(60_000L, 1_000_000L);
+        index.add(List.of(message(id(1), "hello")));
+        clock.addAndGet(30_000L);
+
+        // Act & Assert
+        assertThat(index.search("hello", START - 1, 0, 10)).isEmpty();
+        assertThat(index.search("hello", START, 0, 10)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should evict expired postings and stop covering their time range")
+    void testEvictsByTime() {
+        // Arrange
+        RecentMessageIndex index = newIndex(60_000L, 1_000_000L);
+        index.add(List.of(message(id(1), "old news")));
+        clock.addAndGet(61_000L);
+
+        // Act
+        index.add(List.of(message(id(2), "fresh news")));
+
+        // Assert
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("news", START, 0, 10)).isEmpty();
+        assertThat(index.search("news", clock.get(), 0, 10).orElseThrow()).extracting(Message::getId).containsExactly(id(2));
+    }
+
+    @Test
+    @DisplayName("Should evict the oldest messages beyond the memory cap")
+    void testEvictsBySize() {
+        // Arrange
+        long maxBytes = RecentMessageIndex.estimatedBytes("event two", RecentMessageIndex.grams("event two").size())
+                + RecentMessageIndex.estimatedBytes("event three", RecentMessageIndex.grams("event three").size());
+        RecentMessageIndex index = newIndex(60_000L, maxBytes);
+        index.add(List.of(message(id(1), "event one")));
+        clock.incrementAndGet();
+        index.add(List.of(message(id(2), "event two")));
+        clock.incrementAndGet();
+
+        // Act
+        index.add(List.of(message(id(3), "event three")));
+
+        // Assert
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(index.bytes()).isEqualTo(maxBytes);
+        assertThat(index.search("event", START, 0, 10)).isEmpty();
+        assertThat(index.search("event", START + 1, 0, 10).orElseThrow()).extracting(Message::getId).containsExactly(id(3), id(2));
+    }
+
+    @Test
+    @DisplayName("Should drop removed messages")
+    void testRemovesMessages() {
+        // Arrange
+        RecentMessageIndex index = newIndex(60_000L, 1_000_000L);
+        index.add(List.of(message(id(1), "alpha"), message(id(2), "alpha beta")));
+
+        // Act
+        index.onMessagesRemoved(MessagesRemovedEvent.of(Set.of(id(1))));
+
+        // Assert
+        assertThat(index.search("alpha", START, 0, 10).orElseThrow()).extracting(Message::getId).containsExactly(id(2));
+
+        index.onMessagesRemoved(MessagesRemovedEvent.all());
+        assertThat(index.size()).isZero();
+        assertThat(index.bytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should page through matches newest first")
+    void testPagesMatches() {
+        // Arrange
+        RecentMessageIndex index = newIndex(60_000L, 1_000_000L);
+        for (int i = 1; i <= 5; i++) {
+            index.add(List.of(message(id(i), "match " + i, START + i)));
+        }
+
+        // Act
+        Optional<List<Message>> page = index.search("match", START, 1, 2);
+        Optional<List<Message>> beyond = index.search("match", START, 5, 2);
+
+        // Assert
+        assertThat(page.orElseThrow()).extracting(Message::getId).containsExactly(id(4), id(3));
+        assertThat(beyond.orElseThrow()).isEmpty();
+        assertThat(index.search("match", START, 0, 0).orElseThrow()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should unindex a message by the content it was indexed with")
+    void testRemovesMessageChangedInPlace() {
+        // Arrange
+        RecentMessageIndex index = newIndex(60_000L, 1_000_000L);
+        Message message = message(id(1), "alpha");
+        index.add(List.of(message));
+        message.setContent("beta");
+
+        // Act
+        index.onMessagesRemoved(MessagesRemovedEvent.of(Set.of(id(1))));
+
+        // Assert
+        assertThat(index.search("alpha", START, 0, 10).orElseThrow()).isEmpty();
+        assertThat(index.bytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should re-index updated messages and ignore ones it does not hold")
+    void testReindexesUpdatedMessages() {
+        // Arrange
+        RecentMessageIndex index = newIndex(60_000L, 1_000_000L);
+        index.add(List.of(message(id(1), "alpha")));
+
+        // Act
+        index.onMessagesUpdated(new MessagesUpdatedEvent(List.of(message(id(1), "beta"), message(id(2), "beta"))));
+
+        // Assert
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.search("alpha", START, 0, 10).orElseThrow()).isEmpty();
+        assertThat(index.search("beta", START, 0, 10).orElseThrow())
+                .extracting(Message::getContent).containsExactly("beta");
+    }
+
+    @Test
+    @DisplayName("Should not answer searches when disabled")
+    void testDisabled() {
+        // Arrange
+        RecentMessageIndex index = new RecentMessageIndex(new SimpleMeterRegistry(), false, 60_000L, 1_000_000L, clock::get);
+
+        // Act
+        index.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(1), "hello"))));
+
+        // Assert
+        assertThat(index.size()).isZero();
+        assertThat(index.search("hello", START, 0, 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should stay disabled unless this is the only consuming instance")
+    void testDisabledWithoutSingleInstance() {
+        // Arrange
+        RecentMessageIndex index = new RecentMessageIndex(new SimpleMeterRegistry(), true, 60_000L, 1_000_000L, false);
+
+        // Act
+        index.onMessagesConsumed(new MessagesConsumedEvent(List.of(message(id(1), "hello"))));
+
+        // Assert
+        assertThat(index.isEnabled()).isFalse();
+        assertThat(index.size()).isZero();
+    }
+
+    private RecentMessageIndex newIndex(long windowMs, long maxBytes) {
+        return new RecentMessageIndex(new SimpleMeterRegistry(), true, windowMs, maxBytes, clock::get);
+    }
+
+    private static UUID id(int n) {
+        return new UUID(0L, n);
+    }
+
+    private static Message message(UUID id, String content) {
+        return new Message(id, content, START, MessageStatus.PROCESSED, null, null);
+    }
+
+    private static Message message(UUID id, String content, long createdAt) {
+        return new Message(id, content, START, MessageStatus.PROCESSED, new Date(createdAt), null);
+    }
+}